@@ -0,0 +1,92 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo;
+
+import org.apache.maven.model.Developer;
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.mail.internet.InternetAddress;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures evaluating the recipients of {@link MailMojo} and {@link MailDevelopersMojo}.
+ *
+ * @since 10/18/26 3:48 AM
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecipientsBenchmark {
+  @Param({"1", "100", "10000"})
+  public int recipients;
+
+  private MailMojo mailMojo;
+  private MailDevelopersMojo mailDevelopersMojo;
+
+  @Setup
+  public void setUp() throws Exception {
+    final List<String> to = new ArrayList<String>(recipients);
+    final Model model = new Model();
+    for (int i = 0; i < recipients; i++) {
+      to.add("Recipient " + i + " <recipient" + i + "@example.org>");
+      final Developer developer = new Developer();
+      developer.setId("id" + i);
+      developer.setEmail("developer" + i + "@example.org");
+      developer.setName("Deve Löper " + i);
+      model.addDeveloper(developer);
+    }
+    mailMojo = new MailMojo();
+    set(mailMojo, MailMojo.class, "to", to);
+    mailDevelopersMojo = new MailDevelopersMojo();
+    set(mailDevelopersMojo, AbstractMailDevelopersMojo.class, "project", new MavenProject(model));
+    set(mailDevelopersMojo, AbstractMailMojo.class, "charset", "UTF-8");
+  }
+
+  @Benchmark
+  public InternetAddress[] mailMojo() throws Exception {
+    return mailMojo.getRecipients();
+  }
+
+  @Benchmark
+  public InternetAddress[] mailDevelopersMojo() throws Exception {
+    return mailDevelopersMojo.getRecipients();
+  }
+
+  private static void set(final Object target, final Class<?> declaringClass, final String name, final Object value) throws Exception {
+    final Field field = declaringClass.getDeclaredField(name);
+    field.setAccessible(true);
+    field.set(target, value);
+  }
+}
@@ -0,0 +1,59 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+/**
+ * Creates mail bodies of a given size which resemble build reports: mostly short lines, some very
+ * long ones which have to be folded and some non-ASCII characters.
+ *
+ * @since 10/18/26 3:31 AM
+ */
+final class Bodies {
+  private static final String SHORT_LINE = "Tests run: 42, Failures: 0, Errors: 0, Skipped: 1 - Größenprüfung\r\n";
+  private static final String LONG_LINE;
+
+  static {
+    final StringBuilder builder = new StringBuilder();
+    while (builder.length() < 400) {
+      builder.append("at de.mmichaelis.maven.mojo.mail.MailBase.execute(MailBase.java:337) ");
+    }
+    LONG_LINE = builder.append("\r\n").toString();
+  }
+
+  /**
+   * Utility class.
+   */
+  private Bodies() {
+    // utility class
+  }
+
+  /**
+   * Create a body.
+   *
+   * @param size number of characters
+   * @return the body
+   */
+  static String create(final int size) {
+    final StringBuilder builder = new StringBuilder(size + LONG_LINE.length());
+    int line = 0;
+    while (builder.length() < size) {
+      builder.append(++line % 10 == 0 ? LONG_LINE : SHORT_LINE);
+    }
+    builder.setLength(size);
+    return builder.toString();
+  }
+}
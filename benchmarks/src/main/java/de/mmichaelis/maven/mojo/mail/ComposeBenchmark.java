@@ -0,0 +1,130 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import javax.mail.internet.MimeUtility;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static javax.mail.internet.MimeUtility.mimeCharset;
+
+/**
+ * Measures the steps of composing a mail: folding the body, adding the headers and encoding the
+ * complete message as it is written to the relay.
+ *
+ * @since 10/18/26 3:35 AM
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ComposeBenchmark {
+  private final Log log = new QuietLog();
+  private Session session;
+
+  /**
+   * Body and composer for the parameterized body size and charset.
+   */
+  @State(Scope.Benchmark)
+  public static class Body {
+    @Param({"1024", "65536", "1048576"})
+    public int bodySize;
+
+    @Param({"UTF-8", "ISO-8859-1"})
+    public String charset;
+
+    private String text;
+    private MessageComposer composer;
+    private InternetAddress[] recipients;
+
+    @Setup
+    public void setUp() throws Exception {
+      text = Bodies.create(bodySize);
+      final Session session = Session.getInstance(new Properties());
+      final MimeMessage template = new MimeMessage(session);
+      template.setSubject("[maven-mail-plugin] Build report", mimeCharset(charset));
+      composer = new MessageComposer(session, template, new InternetAddress("sender@example.org"), MimeUtility.fold(0, text),
+              null, "\r\n\r\n-- \r\nSent via maven-mail-plugin", mimeCharset(charset), false, false, null, null);
+      recipients = new InternetAddress[]{new InternetAddress("recipient@example.org")};
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    session = Session.getInstance(new Properties());
+  }
+
+  @Benchmark
+  public String fold(final Body body) {
+    return MimeUtility.fold(0, body.text);
+  }
+
+  @Benchmark
+  public MimeMessage headers() {
+    final MimeMessage message = new MimeMessage(session);
+    MailPriority.parse("low", log).addHeader(message, log);
+    MailExpiration.parse("1", log).addHeader(message, log);
+    MailBulk.getInstance().addHeader(message, log);
+    return message;
+  }
+
+  @Benchmark
+  public long encode(final Body body) throws Exception {
+    final MimeMessage message = body.composer.compose(body.recipients);
+    message.saveChanges();
+    final CountingOutputStream out = new CountingOutputStream();
+    message.writeTo(out);
+    return out.count;
+  }
+
+  /**
+   * Discards all bytes but counts them.
+   */
+  private static final class CountingOutputStream extends OutputStream {
+    private long count;
+
+    @Override
+    public void write(final int b) throws IOException {
+      count++;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      count += len;
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+/**
+ * Log which only reports warnings and errors, so that benchmarks measure mail handling rather than
+ * console output.
+ *
+ * @since 10/18/26 3:24 AM
+ */
+public final class QuietLog extends SystemStreamLog {
+  @Override
+  public boolean isDebugEnabled() {
+    return false;
+  }
+
+  @Override
+  public boolean isInfoEnabled() {
+    return false;
+  }
+
+  @Override
+  public void debug(final CharSequence content) {
+    // quiet
+  }
+
+  @Override
+  public void debug(final CharSequence content, final Throwable error) {
+    // quiet
+  }
+
+  @Override
+  public void debug(final Throwable error) {
+    // quiet
+  }
+
+  @Override
+  public void info(final CharSequence content) {
+    // quiet
+  }
+
+  @Override
+  public void info(final CharSequence content, final Throwable error) {
+    // quiet
+  }
+
+  @Override
+  public void info(final Throwable error) {
+    // quiet
+  }
+}
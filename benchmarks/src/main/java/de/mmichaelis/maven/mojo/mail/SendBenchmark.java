@@ -0,0 +1,107 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.mail.internet.InternetAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link MailBase#execute()} end to end, sending to an in-process {@link EmbeddedSmtpServer} via the real
+ * SMTP transport.
+ *
+ * @since 10/18/26 3:42 AM
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SendBenchmark {
+  @Param({"1", "100", "1000"})
+  public int recipients;
+
+  @Param({"1024", "65536"})
+  public int bodySize;
+
+  /**
+   * <dl>
+   *   <dt>single</dt><dd>one message to all recipients</dd>
+   *   <dt>batched</dt><dd>messages to 50 recipients each, sent by 4 threads</dd>
+   *   <dt>personalized</dt><dd>one message per recipient, sent by 4 threads</dd>
+   * </dl>
+   */
+  @Param({"single", "batched", "personalized"})
+  public String mode;
+
+  private EmbeddedSmtpServer server;
+  private InternetAddress[] addresses;
+  private String text;
+
+  @Setup
+  public void setUp() throws Exception {
+    server = new EmbeddedSmtpServer();
+    server.setKeepMessages(false);
+    server.start();
+    addresses = new InternetAddress[recipients];
+    for (int i = 0; i < recipients; i++) {
+      addresses[i] = new InternetAddress("recipient" + i + "@example.org", "Recipient " + i);
+    }
+    text = Bodies.create(bodySize);
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    MailTransportPool.getInstance().closeAll();
+    server.stop();
+  }
+
+  @Benchmark
+  public void execute() throws Exception {
+    final MailBase base = new MailBase(new QuietLog());
+    base.setBatchThreads(4);
+    base.setCharset("UTF-8");
+    base.setExpires("1");
+    base.setFailOnError(true);
+    base.setFrom("sender@example.org");
+    base.setHostname("benchmark.example.org");
+    base.setMaxConnections(4);
+    base.setPersonalized("personalized".equals(mode));
+    base.setPlainText(text);
+    base.setPriority("low");
+    base.setRecipientBatchSize("batched".equals(mode) ? 50 : 0);
+    base.setRecipients(addresses);
+    base.setSmtphost(server.getHost());
+    base.setSmtpport(server.getPort());
+    base.setSubject("Build report");
+    base.setTopic("maven-mail-plugin");
+    base.execute();
+  }
+}
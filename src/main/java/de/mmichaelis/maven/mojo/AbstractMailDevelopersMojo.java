@@ -16,6 +16,7 @@
 
 package de.mmichaelis.maven.mojo;
 
+import de.mmichaelis.maven.mojo.mail.MailAddresses;
 import org.apache.maven.model.Developer;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
@@ -27,8 +28,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-import static org.codehaus.plexus.util.StringUtils.isEmpty;
-
 /**
  * Abstract Mojo which sends mails to the configured developers.
  *
@@ -47,7 +46,8 @@ public abstract class AbstractMailDevelopersMojo extends AbstractMailMojo {
   private MavenProject project;
 
   /**
-   * Evaluates the recipients from the list of developers.
+   * Evaluates the recipients from the list of developers. Parsed addresses are cached for the
+   * build session as all modules usually inherit the same developers.
    *
    * @return recipients of the email
    * @throws MojoExecutionException if a problem occurs evaluating the mail addresses
@@ -61,22 +61,19 @@ public abstract class AbstractMailDevelopersMojo extends AbstractMailMojo {
       final String name = developer.getName();
       if (email == null || email.trim().length() == 0) {
         getLog().warn("No email defined for developer " + developerId + ". Skipped.");
+        continue;
       }
-      final InternetAddress[] addresses;
+      InternetAddress[] addresses;
       try {
-        addresses = InternetAddress.parse(email);
+        try {
+          addresses = MailAddresses.getInstance().parse(email, name, getMimeCharSet());
+        } catch (UnsupportedEncodingException e) {
+          getLog().warn("Unable to set name for email of developer " + developerId + ".", e);
+          addresses = MailAddresses.getInstance().parse(email);
+        }
       } catch (AddressException e) {
         throw new MojoExecutionException("Unable to parse email for developer " + developerId + ".", e);
       }
-      if (!isEmpty(name)) {
-        for (final InternetAddress address : addresses) {
-          try {
-            address.setPersonal(name, getMimeCharSet());
-          } catch (UnsupportedEncodingException e) {
-            getLog().warn("Unable to set name for email of developer " + developerId + ".", e);
-          }
-        }
-      }
       result.addAll(Arrays.asList(addresses));
     }
     return result.toArray(new InternetAddress[result.size()]);
@@ -16,13 +16,31 @@
 
 package de.mmichaelis.maven.mojo;
 
+import de.mmichaelis.maven.mojo.mail.AsyncMailSender;
+import de.mmichaelis.maven.mojo.mail.BuildLogCapture;
+import de.mmichaelis.maven.mojo.mail.MailAttachments;
 import de.mmichaelis.maven.mojo.mail.MailBase;
+import de.mmichaelis.maven.mojo.mail.MailDigest;
+import de.mmichaelis.maven.mojo.mail.MailMetrics;
+import de.mmichaelis.maven.mojo.mail.MailOutbox;
+import de.mmichaelis.maven.mojo.mail.MailSessions;
+import de.mmichaelis.maven.mojo.mail.MailTransports;
+import de.mmichaelis.maven.mojo.mail.NotificationMode;
+import de.mmichaelis.maven.mojo.mail.PipeliningSmtpTransport;
+import de.mmichaelis.maven.mojo.mail.SpoolMailTransport;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.rtinfo.RuntimeInformation;
 
+import javax.mail.Session;
 import javax.mail.internet.InternetAddress;
+import java.io.File;
 import java.nio.charset.Charset;
+import java.util.Properties;
 
 import static javax.mail.internet.MimeUtility.mimeCharset;
 
@@ -32,6 +50,32 @@ import static javax.mail.internet.MimeUtility.mimeCharset;
  * @since 5/27/11 11:01 PM
  */
 public abstract class AbstractMailMojo extends AbstractMojo {
+  /**
+   * The current build session.
+   *
+   * @parameter expression="${session}"
+   * @readonly
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private MavenSession session;
+
+  /**
+   * The current execution, used to check the phase it is bound to.
+   *
+   * @parameter expression="${mojoExecution}"
+   * @readonly
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private MojoExecution mojoExecution;
+
+  /**
+   * Information about the running Maven, used to check if the build output can be captured.
+   *
+   * @component
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private RuntimeInformation runtimeInformation;
+
   /**
    * Can be used to disable sending mails.
    *
@@ -71,6 +115,26 @@ public abstract class AbstractMailMojo extends AbstractMojo {
   @SuppressWarnings({"UnusedDeclaration"})
   private Integer smtpport;
 
+  /**
+   * Additional JavaMail properties such as <code>mail.smtp.connectiontimeout</code> or
+   * <code>mail.smtp.starttls.enable</code>. Properties set by other parameters, such as the host,
+   * take precedence.
+   *
+   * @parameter
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private Properties sessionProperties;
+
+  /**
+   * If true the envelope of a mail is sent at once using ESMTP PIPELINING and the message is sent in
+   * BDAT chunks using ESMTP CHUNKING, if the relay supports them. Saves round trips to high latency
+   * relays; relays supporting neither are served as usual.
+   *
+   * @parameter default-value="false" expression="${mail.smtp.pipelining}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private boolean pipelining;
+
   /**
    * When automatic mails should expire in days.
    *
@@ -129,13 +193,310 @@ public abstract class AbstractMailMojo extends AbstractMojo {
   private String subject;
 
   /**
-   * If true the mail won't be send but just logged at INFO level.
+   * If true the mail won't be send but written to <code>dryRunDirectory</code> as it would be sent.
    *
    * @parameter default="false" expression="${mail.dryRun}"
    */
   @SuppressWarnings({"UnusedDeclaration"})
   private boolean dryRun;
 
+  /**
+   * Directory to write the mails of a dry run to.
+   *
+   * @parameter default-value="${project.build.directory}/mail-dry-run" expression="${mail.dryRunDirectory}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private File dryRunDirectory;
+
+  /**
+   * How to write the mails of a dry run: <code>eml</code> writes one RFC 822 file per mail,
+   * <code>maildir</code> delivers them to a Maildir and <code>mbox</code> appends them to the
+   * file <code>dry-run.mbox</code>.
+   *
+   * @parameter default-value="eml" expression="${mail.dryRunFormat}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private String dryRunFormat;
+
+  /**
+   * Maximum number of connections kept open per SMTP relay. Connections are shared by all mail executions
+   * within the same JVM, thus the value configured last wins.
+   *
+   * @parameter default-value="2" expression="${mail.smtp.maxConnections}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int maxConnections;
+
+  /**
+   * Time in seconds after which unused SMTP connections are closed. Set to 0 to close connections
+   * directly after sending.
+   *
+   * @parameter default-value="30" expression="${mail.smtp.connectionIdleTimeout}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int connectionIdleTimeout;
+
+  /**
+   * If true the mail is handed to a background sender and the build continues directly. Queued mails
+   * are sent at latest when the build session ends.
+   *
+   * @parameter default-value="false" expression="${mail.async}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private boolean async;
+
+  /**
+   * Number of mails which might wait for being sent in background. Only respected by the first
+   * execution which queues a mail.
+   *
+   * @parameter default-value="100" expression="${mail.async.queueSize}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int asyncQueueSize;
+
+  /**
+   * What to do if the queue for background sending is full. One of:
+   * <dl>
+   *   <dt>block</dt><dd>wait until there is space in the queue</dd>
+   *   <dt>drop-oldest</dt><dd>drop the oldest mail in the queue</dd>
+   *   <dt>spool</dt><dd>write the mail to the outbox directory</dd>
+   * </dl>
+   *
+   * @parameter default-value="block" expression="${mail.async.overflowPolicy}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private String asyncOverflowPolicy;
+
+  /**
+   * Directory where mails are spooled to if they cannot be sent right away. Spooled mails are sent
+   * by the <code>flush</code> goal.
+   *
+   * @parameter default-value="${project.build.directory}/mail-outbox" expression="${mail.outbox}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private File outboxDirectory;
+
+  /**
+   * If true mails which cannot be sent, for example because the relay is down, are stored in the
+   * outbox directory instead of failing. Another attempt is made when the build session ends.
+   *
+   * @parameter default-value="false" expression="${mail.spoolOnFailure}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private boolean spoolOnFailure;
+
+  /**
+   * Maximum number of messages per minute to send to the relay, shared by all executions of the
+   * build. 0 for no limit, unless another execution of the build already set one.
+   *
+   * @parameter default-value="0" expression="${mail.smtp.rateLimit}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int rateLimit;
+
+  /**
+   * Number of messages which might be sent to the relay at once before the rate limit applies.
+   *
+   * @parameter default-value="1" expression="${mail.smtp.rateLimitBurst}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int rateLimitBurst;
+
+  /**
+   * Maximum seconds to wait for the rate limit. Messages which would have to wait longer are stored
+   * in the outbox directory.
+   *
+   * @parameter default-value="60" expression="${mail.smtp.rateLimitMaxWait}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int rateLimitMaxWait;
+
+  /**
+   * If true the mail is not sent directly. Instead all mails of the build are collected and one mail
+   * per set of recipients is sent when the build session ends.
+   *
+   * @parameter default-value="false" expression="${mail.digest}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private boolean digest;
+
+  /**
+   * Name of the local host as used in the signature, the default sender address and the SMTP greeting.
+   * If unset the local host is looked up on first use; set it to prevent any DNS lookups.
+   *
+   * @parameter expression="${mail.hostname}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private String hostname;
+
+  /**
+   * Maximum number of recipients per message. If there are more recipients the mail is sent as several
+   * messages, each to a batch of recipients. Set to 0 to send one message to all recipients.
+   *
+   * @parameter default-value="0" expression="${mail.recipientBatchSize}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int recipientBatchSize;
+
+  /**
+   * If true recipients are added as BCC so that they cannot see each other.
+   *
+   * @parameter default-value="false" expression="${mail.recipientsAsBcc}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private boolean recipientsAsBcc;
+
+  /**
+   * Number of recipient batches to send in parallel. The number of connections used is additionally
+   * limited by <code>maxConnections</code>.
+   *
+   * @parameter default-value="1" expression="${mail.batchThreads}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int batchThreads;
+
+  /**
+   * If true each recipient gets a message addressed to that recipient alone, starting with a personal salutation
+   * and ending with a hint how to unsubscribe. Messages are sent using <code>batchThreads</code> threads.
+   *
+   * @parameter default-value="false" expression="${mail.personalized}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private boolean personalized;
+
+  /**
+   * The base directory of the project; attachments are resolved against it.
+   *
+   * @parameter expression="${basedir}"
+   * @readonly
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private File basedir;
+
+  /**
+   * Kilobytes of the tail of the build output to attach to the mail. The output is captured from the
+   * first execution which asks for a tail on; bind the <code>capture-log</code> goal to an early phase
+   * to capture the whole build. The tail is at most as large as chosen by that first execution. With
+   * parallel builds it contains the output of all modules built at the same time. Requires Maven 3.1 or
+   * later. 0 to attach nothing.
+   *
+   * @parameter default-value="0" expression="${mail.logTail}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int logTail;
+
+  /**
+   * If true durations of the phases of sending (resolving recipients, composing, throttling, connecting,
+   * transferring), the encoded size and the number of recipients and retries are recorded. A summary is
+   * logged and the details are appended as one JSON object per line to <code>metricsFile</code>.
+   * Measuring the size requires encoding each message once more. Mails sent in background are reported
+   * once all of them are done; mails collected for a digest are reported when the digest is sent.
+   *
+   * @parameter default-value="false" expression="${mail.metrics}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private boolean metrics;
+
+  /**
+   * File to append the metrics of each execution to.
+   *
+   * @parameter default-value="${project.build.directory}/mail-metrics.json" expression="${mail.metricsFile}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private File metricsFile;
+
+  /**
+   * When to send the mail. <code>always</code> sends the mail on each execution. <code>failure</code>
+   * sends one mail at the end of the build, listing the modules which failed or recovered from a failure
+   * of the previous build, followed by the configured text. If no module failed or recovered no mail is
+   * sent. Executions with the same recipients share one mail. A text read from a file is not appended.
+   * <p>
+   * <strong>Bind executions with <code>failure</code> to the <code>validate</code> phase.</strong> The
+   * execution only registers the mail; if it is bound to a later phase a module failing before that phase
+   * stops the build before anything got registered, and no mail is sent.
+   * </p>
+   *
+   * @parameter default-value="always" expression="${mail.notify}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private String notify;
+
+  /**
+   * File to remember the modules in which failed, so that the next build can report them as recovered.
+   * Located in the directory the build was started in, so that different projects and checkouts do not
+   * share their state. It survives <code>mvn clean</code> and should be excluded from version control.
+   *
+   * @parameter default-value="${session.executionRootDirectory}/.maven-mail-plugin/notify-state.properties" expression="${mail.notifyStateFile}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private File notifyStateFile;
+
+  /**
+   * Minutes within which identical mails (same recipients, subject and text) are suppressed, for example
+   * if a flaky module fails on each retry. The number of suppressed mails is added to the subject of the
+   * next mail sent after the window passed. 0 to send all mails.
+   *
+   * @parameter default-value="0" expression="${mail.suppressWindow}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int suppressWindow;
+
+  /**
+   * File to remember sent mails in for suppressing identical mails. Shared by all builds using the same file.
+   *
+   * @parameter default-value="${user.home}/.m2/maven-mail-plugin/suppressed-mails.txt" expression="${mail.suppressFile}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private File suppressFile;
+
+  /**
+   * How to deliver the mails: <code>smtp</code> sends them to the relay, <code>spool</code> stores them in
+   * <code>outboxDirectory</code> to be sent by the <code>flush</code> goal and <code>memory</code> keeps them
+   * in memory for tests. Further transports can be added as plugin dependency implementing
+   * <code>de.mmichaelis.maven.mojo.mail.MailTransport</code>.
+   *
+   * @parameter default-value="smtp" expression="${mail.transport}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private String transport;
+
+  /**
+   * Seconds to wait for the connection to the relay. 0 to wait until the operating system gives up.
+   * Ignored if <code>mail.smtp.connectiontimeout</code> is configured in the session properties.
+   *
+   * @parameter default-value="10" expression="${mail.smtp.connectTimeout}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int connectTimeout;
+
+  /**
+   * Seconds to wait for a reply of the relay. 0 to wait forever. Ignored if <code>mail.smtp.timeout</code>
+   * is configured in the session properties.
+   *
+   * @parameter default-value="60" expression="${mail.smtp.readTimeout}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int readTimeout;
+
+  /**
+   * Number of consecutive failures to reach the relay after which further mails of the build fail fast,
+   * or are stored in the outbox if <code>spoolOnFailure</code> is set, instead of waiting for the relay
+   * again. After <code>circuitBreakerOpenTime</code> one mail tries the relay again. 0 to always try the relay,
+   * unless another execution of the build already set a threshold.
+   *
+   * @parameter default-value="3" expression="${mail.smtp.circuitBreakerThreshold}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int circuitBreakerThreshold;
+
+  /**
+   * Seconds to fail fast after the relay failed <code>circuitBreakerThreshold</code> times in a row.
+   *
+   * @parameter default-value="60" expression="${mail.smtp.circuitBreakerOpenTime}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int circuitBreakerOpenTime;
+
   /**
    * Execute the Mojo.
    *
@@ -147,22 +508,178 @@ public abstract class AbstractMailMojo extends AbstractMojo {
   @Override
   public final void execute() throws MojoExecutionException, MojoFailureException {
     final MailBase base = new MailBase(getLog());
+    final MailMetrics executionMetrics = metrics && !skip ? new MailMetrics(getClass().getSimpleName(), metricsFile) : MailMetrics.NONE;
+    base.setAsync(async);
+    base.setAttachments(getAttachments());
+    base.setAsyncOverflowPolicy(asyncOverflowPolicy);
+    base.setAsyncQueueSize(asyncQueueSize);
+    base.setBatchThreads(batchThreads);
     base.setCharset(charset);
+    base.setCircuitBreakerOpenTime(circuitBreakerOpenTime);
+    base.setCircuitBreakerThreshold(circuitBreakerThreshold);
+    base.setConnectionIdleTimeout(connectionIdleTimeout);
+    base.setDigest(digest && !skip && registerDigest());
     base.setDryRun(dryRun);
+    base.setDryRunDirectory(dryRunDirectory);
+    base.setDryRunFormat(dryRunFormat);
     base.setExpires(expires);
     base.setFailOnError(failOnError);
     base.setFrom(from);
-    base.setPlainText(getPlainText());
+    base.setHostname(hostname);
+    base.setLogTail(getLogTail());
+    base.setMaxConnections(maxConnections);
+    base.setMetrics(executionMetrics);
+    base.setOutboxDirectory(outboxDirectory);
+    base.setPersonalized(personalized);
+    long start = System.nanoTime();
+    final File plainTextFile = getPlainTextFile();
+    final String plainText = plainTextFile == null ? getPlainText() : null;
+    if (plainTextFile == null) {
+      base.setPlainText(plainText);
+    } else {
+      base.setPlainTextFile(plainTextFile);
+    }
+    executionMetrics.record(MailMetrics.Phase.TEXT, start);
     base.setPriority(priority);
-    base.setRecipients(getRecipients());
+    base.setRateLimit(rateLimit);
+    base.setRateLimitBurst(rateLimitBurst);
+    base.setRateLimitMaxWait(rateLimitMaxWait);
+    base.setRecipientBatchSize(recipientBatchSize);
+    if (session != null) {
+      // Clears the parsed recipients shared by the executions of this session when it ends
+      MailExecutionListener.install(session);
+    }
+    start = System.nanoTime();
+    final InternetAddress[] recipients = getRecipients();
+    base.setRecipients(recipients);
+    executionMetrics.record(MailMetrics.Phase.RECIPIENTS, start);
+    base.setRecipientsAsBcc(recipientsAsBcc);
+    base.setSessionProperties(getSessionProperties());
     base.setSkip(skip);
     base.setSmtphost(smtphost);
     base.setSmtpport(smtpport);
+    base.setSpoolOnFailure(spoolOnFailure);
     base.setSubject(subject);
+    base.setSuppressFile(suppressFile);
+    base.setSuppressWindow(suppressWindow);
     base.setTopic(topic);
+    base.setTransport(transport);
+    // A dry run must not deliver mails left in the outbox by earlier builds
+    if (async && !skip && !dryRun) {
+      registerDrain();
+    }
+    if ((spoolOnFailure || rateLimit > 0) && !skip && !dryRun) {
+      registerFlush();
+    }
+    if (!skip && NotificationMode.parse(notify, getLog()) == NotificationMode.FAILURE && registerNotification(base, recipients, plainText)) {
+      return;
+    }
     base.execute();
   }
 
+  /**
+   * Defer the mail to the end of the session where it is only sent if modules failed or recovered.
+   *
+   * @param base       the configured mail
+   * @param recipients the recipients of the mail
+   * @param plainText  the configured text; <code>null</code> if the text is read from a file
+   * @return true if the mail got deferred; false if there is no session to evaluate the results of
+   */
+  private boolean registerNotification(final MailBase base, final InternetAddress[] recipients, final String plainText) {
+    if (session == null) {
+      getLog().warn("No build session available. Sending mail directly instead of waiting for failed modules.");
+      return false;
+    }
+    if (recipients == null || recipients.length == 0) {
+      return false;
+    }
+    final Log log = getLog();
+    if (mojoExecution != null && !isEarlyPhase(mojoExecution.getLifecyclePhase())) {
+      log.warn("Mail with notify=failure is registered in phase " + mojoExecution.getLifecyclePhase()
+              + ". Modules failing before this phase are not reported; bind the execution to the validate phase.");
+    }
+    final MavenSession mavenSession = session;
+    MailNotifier.getInstance().register(base, recipients, subject, plainText, logTail * 1024, notifyStateFile);
+    MailExecutionListener.install(session).addSessionEndTask(MailNotifier.class.getName(), new Runnable() {
+      @Override
+      public void run() {
+        MailNotifier.getInstance().flush(mavenSession, log);
+      }
+    });
+    return true;
+  }
+
+  private static boolean isEarlyPhase(final String phase) {
+    return phase == null || "validate".equals(phase) || "initialize".equals(phase);
+  }
+
+  /**
+   * Make sure that the digest is sent when the session ends.
+   *
+   * @return true if the digest will be sent; false if there is no session to collect mails for
+   */
+  private boolean registerDigest() {
+    if (session == null) {
+      getLog().warn("No build session available. Sending mail directly instead of collecting it for a digest.");
+      return false;
+    }
+    final Log log = getLog();
+    MailExecutionListener.install(session).addSessionEndTask(MailDigest.class.getName(), new Runnable() {
+      @Override
+      public void run() {
+        MailDigest.getInstance().flush(log);
+      }
+    });
+    return true;
+  }
+
+  /**
+   * Make sure that mails queued for background sending are sent when the session ends.
+   * Without a session the mails are sent on JVM shutdown.
+   */
+  private void registerDrain() {
+    if (session == null) {
+      return;
+    }
+    final Log log = getLog();
+    MailExecutionListener.install(session).addSessionEndTask(AsyncMailSender.class.getName(), new Runnable() {
+      @Override
+      public void run() {
+        AsyncMailSender.getInstance().drain(log);
+      }
+    });
+  }
+
+  /**
+   * Make sure that another attempt is made to send the mails in the outbox when the session ends.
+   * Mails which failed before are only retried once their backoff has passed.
+   */
+  private void registerFlush() {
+    if (session == null) {
+      return;
+    }
+    final Log log = getLog();
+    final MailOutbox outbox = new MailOutbox(outboxDirectory);
+    try {
+      outbox.setTransport(MailTransports.get(transport));
+    } catch (IllegalArgumentException e) {
+      // reported when sending
+      return;
+    }
+    if (SpoolMailTransport.NAME.equals(outbox.getTransport().getName())) {
+      // The mails are meant to stay in the outbox until the flush goal runs
+      return;
+    }
+    final Session mailSession = MailSessions.getSession(getSessionProperties(), smtphost, smtpport, hostname, log.isDebugEnabled());
+    final String key = MailOutbox.class.getName() + ":" + outboxDirectory.getAbsolutePath() + ":" + smtphost + ":" + smtpport;
+    MailExecutionListener.install(session).addSessionEndTask(key, new Runnable() {
+      @Override
+      public void run() {
+        outbox.flush(mailSession, maxConnections, log);
+      }
+    });
+  }
+
   /**
    * Return the charset in MIME-format.
    *
@@ -194,4 +711,73 @@ public abstract class AbstractMailMojo extends AbstractMojo {
    */
   protected abstract String getPlainText() throws MojoExecutionException, MojoFailureException;
 
+  /**
+   * Get a file to stream the text body for this email from. Derived Mojos may override the default
+   * which streams no file.
+   *
+   * @return the file to stream the text from; <code>null</code> to use {@link #getPlainText()}
+   */
+  protected File getPlainTextFile() {
+    return null;
+  }
+
+  /**
+   * Get the files to attach to this email. Derived Mojos may override the default which attaches
+   * no files.
+   *
+   * @return the attachments; <code>null</code> for none
+   */
+  protected MailAttachments getAttachments() {
+    return null;
+  }
+
+  /**
+   * Get the current build session.
+   *
+   * @return the session; <code>null</code> if not available
+   */
+  protected final MavenSession getSession() {
+    return session;
+  }
+
+  /**
+   * Get the base directory of the project.
+   *
+   * @return the base directory
+   */
+  protected final File getBasedir() {
+    return basedir;
+  }
+
+  /**
+   * Get the tail of the build output to attach. Starts capturing the output if not done yet.
+   *
+   * @return the tail; <code>null</code> if none is requested or nothing has been captured yet
+   */
+  private String getLogTail() {
+    if (logTail <= 0 || skip) {
+      return null;
+    }
+    if (session != null) {
+      // Restores the console streams when the session ends
+      MailExecutionListener.install(session);
+    }
+    BuildLogCapture.checkMavenVersion(runtimeInformation, getLog());
+    final BuildLogCapture capture = BuildLogCapture.install(Math.max(logTail, BuildLogCapture.DEFAULT_SIZE));
+    if (capture.getSize() < logTail * 1024) {
+      getLog().warn("Build output is captured with " + capture.getSize() / 1024 + " KB only. Attaching a shorter tail than "
+              + logTail + " KB; raise logCaptureSize of the capture-log goal or logTail of the first execution.");
+    }
+    return capture.getTail(logTail * 1024);
+  }
+
+  /**
+   * Get the JavaMail properties including the transport to use.
+   *
+   * @return the properties; <code>null</code> if none are configured
+   */
+  private Properties getSessionProperties() {
+    final Properties properties = MailSessions.withTimeouts(sessionProperties, connectTimeout, readTimeout);
+    return pipelining ? PipeliningSmtpTransport.enable(properties) : properties;
+  }
 }
@@ -0,0 +1,82 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo;
+
+import de.mmichaelis.maven.mojo.mail.BuildLogCapture;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.rtinfo.RuntimeInformation;
+
+/**
+ * Starts capturing the tail of the build output, so that mails sent later in the build can attach it
+ * using <code>logTail</code>. Memory is bounded by <code>logCaptureSize</code>. Capturing ends with the
+ * build session; executions after the first one do nothing. Requires Maven 3.1 or later.
+ *
+ * @since 10/18/26 7:44 AM
+ * @goal capture-log
+ * @phase validate
+ * @threadSafe
+ */
+public final class CaptureLogMojo extends AbstractMojo {
+  /**
+   * Can be used to disable capturing.
+   *
+   * @parameter default-value="false" expression="${mail.skip}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private boolean skip;
+
+  /**
+   * Kilobytes of the build output to keep.
+   *
+   * @parameter default-value="64" expression="${mail.logCaptureSize}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int logCaptureSize;
+
+  /**
+   * The current build session.
+   *
+   * @parameter expression="${session}"
+   * @readonly
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private MavenSession session;
+
+  /**
+   * Information about the running Maven.
+   *
+   * @component
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private RuntimeInformation runtimeInformation;
+
+  @Override
+  public void execute() throws MojoExecutionException, MojoFailureException {
+    if (skip) {
+      return;
+    }
+    if (session != null) {
+      // Restores the console streams when the session ends
+      MailExecutionListener.install(session);
+    }
+    BuildLogCapture.checkMavenVersion(runtimeInformation, getLog());
+    BuildLogCapture.install(logCaptureSize);
+  }
+}
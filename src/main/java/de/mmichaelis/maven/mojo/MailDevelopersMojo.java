@@ -16,6 +16,7 @@
 
 package de.mmichaelis.maven.mojo;
 
+import de.mmichaelis.maven.mojo.mail.MailAttachments;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
@@ -28,6 +29,7 @@ import java.io.IOException;
  * Goal which touches a timestamp file.
  *
  * @goal mail-developers
+ * @threadSafe
  */
 public final class MailDevelopersMojo extends AbstractMailDevelopersMojo {
   /**
@@ -50,6 +52,26 @@ public final class MailDevelopersMojo extends AbstractMailDevelopersMojo {
    */
   @Override
   protected String getPlainText() throws MojoExecutionException, MojoFailureException {
-    return message.getText(getLog());
+    return message.getText(getLog(), getSession());
+  }
+
+  /**
+   * Get the file to stream the text body for this email from.
+   *
+   * @return the file to stream the text from; <code>null</code> to use {@link #getPlainText()}
+   */
+  @Override
+  protected File getPlainTextFile() {
+    return message.getStreamedTextFile(getLog());
+  }
+
+  /**
+   * Get the files to attach to this email.
+   *
+   * @return the attachments; <code>null</code> for none
+   */
+  @Override
+  protected MailAttachments getAttachments() {
+    return message.getAttachments(getBasedir(), getLog());
   }
 }
@@ -0,0 +1,217 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo;
+
+import de.mmichaelis.maven.mojo.mail.BuildLogCapture;
+import de.mmichaelis.maven.mojo.mail.MailAddresses;
+import de.mmichaelis.maven.mojo.mail.MailTransportPool;
+import org.apache.maven.execution.AbstractExecutionListener;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Execution listener which is chained in front of the listener Maven uses for its own output. It allows
+ * mail executions to defer work to the end of the build session. Lifecycle participants of Maven 3.0 do
+ * not get notified when the session ends, thus the listener is installed by the first mail execution.
+ *
+ * @since 10/17/26 9:02 PM
+ */
+public final class MailExecutionListener extends AbstractExecutionListener {
+  private final ExecutionListener delegate;
+  private final Map<String, Runnable> sessionEndTasks = new LinkedHashMap<String, Runnable>();
+
+  /**
+   * Constructor.
+   *
+   * @param delegate the listener to forward all events to; might be <code>null</code>
+   */
+  private MailExecutionListener(final ExecutionListener delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * Install the listener for the given session if not already done.
+   *
+   * @param session the current build session
+   * @return the listener installed for the session
+   */
+  public static MailExecutionListener install(final MavenSession session) {
+    final MavenExecutionRequest request = session.getRequest();
+    synchronized (request) {
+      final ExecutionListener current = request.getExecutionListener();
+      if (current instanceof MailExecutionListener) {
+        return (MailExecutionListener) current;
+      }
+      final MailExecutionListener listener = new MailExecutionListener(current);
+      request.setExecutionListener(listener);
+      return listener;
+    }
+  }
+
+  /**
+   * Register a task to run when the session ends. Tasks are run in the order they got registered.
+   * If a task with the given key is already registered the task is ignored.
+   *
+   * @param key  identifies the task
+   * @param task the task to run
+   */
+  public synchronized void addSessionEndTask(final String key, final Runnable task) {
+    if (!sessionEndTasks.containsKey(key)) {
+      sessionEndTasks.put(key, task);
+    }
+  }
+
+  @Override
+  public void sessionEnded(final ExecutionEvent event) {
+    final List<Runnable> tasks;
+    synchronized (this) {
+      tasks = new ArrayList<Runnable>(sessionEndTasks.values());
+      sessionEndTasks.clear();
+    }
+    try {
+      for (final Runnable task : tasks) {
+        task.run();
+      }
+    } finally {
+      MailTransportPool.getInstance().closeAll();
+      MailAddresses.getInstance().clear();
+      BuildLogCapture.uninstall();
+      if (delegate != null) {
+        delegate.sessionEnded(event);
+      }
+    }
+  }
+
+  @Override
+  public void projectDiscoveryStarted(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.projectDiscoveryStarted(event);
+    }
+  }
+
+  @Override
+  public void sessionStarted(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.sessionStarted(event);
+    }
+  }
+
+  @Override
+  public void projectSkipped(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.projectSkipped(event);
+    }
+  }
+
+  @Override
+  public void projectStarted(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.projectStarted(event);
+    }
+  }
+
+  @Override
+  public void projectSucceeded(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.projectSucceeded(event);
+    }
+  }
+
+  @Override
+  public void projectFailed(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.projectFailed(event);
+    }
+  }
+
+  @Override
+  public void forkStarted(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.forkStarted(event);
+    }
+  }
+
+  @Override
+  public void forkSucceeded(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.forkSucceeded(event);
+    }
+  }
+
+  @Override
+  public void forkFailed(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.forkFailed(event);
+    }
+  }
+
+  @Override
+  public void mojoSkipped(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.mojoSkipped(event);
+    }
+  }
+
+  @Override
+  public void mojoStarted(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.mojoStarted(event);
+    }
+  }
+
+  @Override
+  public void mojoSucceeded(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.mojoSucceeded(event);
+    }
+  }
+
+  @Override
+  public void mojoFailed(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.mojoFailed(event);
+    }
+  }
+
+  @Override
+  public void forkedProjectStarted(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.forkedProjectStarted(event);
+    }
+  }
+
+  @Override
+  public void forkedProjectSucceeded(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.forkedProjectSucceeded(event);
+    }
+  }
+
+  @Override
+  public void forkedProjectFailed(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.forkedProjectFailed(event);
+    }
+  }
+}
@@ -0,0 +1,246 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo;
+
+import de.mmichaelis.maven.mojo.mail.MailCircuitBreaker;
+import de.mmichaelis.maven.mojo.mail.MailOutbox;
+import de.mmichaelis.maven.mojo.mail.MailRateLimiter;
+import de.mmichaelis.maven.mojo.mail.MailSessions;
+import de.mmichaelis.maven.mojo.mail.MailTransportPool;
+import de.mmichaelis.maven.mojo.mail.MailTransports;
+import de.mmichaelis.maven.mojo.mail.PipeliningSmtpTransport;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+import java.io.File;
+import java.util.Properties;
+
+/**
+ * Sends the mails stored in the outbox, for example after the relay was down during the build.
+ * Mails are sent in parallel. Mails which fail again are retried by later flushes with exponential
+ * backoff until they are given up.
+ *
+ * @since 10/18/26 2:21 AM
+ * @goal flush
+ * @threadSafe
+ */
+public final class MailFlushMojo extends AbstractMojo {
+  /**
+   * Can be used to disable sending mails.
+   *
+   * @parameter default-value="false" expression="${mail.skip}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private boolean skip;
+
+  /**
+   * The host to send the mail from.
+   *
+   * @parameter default-value="localhost" expression="${mail.smtp.host}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private String smtphost;
+
+  /**
+   * The host to send the mail from.
+   *
+   * @parameter default-value="25" expression="${mail.smtp.port}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private Integer smtpport;
+
+  /**
+   * Additional JavaMail properties such as <code>mail.smtp.connectiontimeout</code> or
+   * <code>mail.smtp.starttls.enable</code>. Properties set by other parameters, such as the host,
+   * take precedence.
+   *
+   * @parameter
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private Properties sessionProperties;
+
+  /**
+   * If true the envelope of a mail is sent at once using ESMTP PIPELINING and the message is sent in
+   * BDAT chunks using ESMTP CHUNKING, if the relay supports them. Saves round trips to high latency
+   * relays; relays supporting neither are served as usual.
+   *
+   * @parameter default-value="false" expression="${mail.smtp.pipelining}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private boolean pipelining;
+
+  /**
+   * Name of the local host to announce to the relay.
+   *
+   * @parameter expression="${mail.hostname}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private String hostname;
+
+  /**
+   * Directory containing the mails to send.
+   *
+   * @parameter default-value="${project.build.directory}/mail-outbox" expression="${mail.outbox}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private File outboxDirectory;
+
+  /**
+   * How to send the mails, see the <code>transport</code> parameter of the other goals. The
+   * <code>spool</code> transport does not send anything.
+   *
+   * @parameter default-value="smtp" expression="${mail.transport}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private String transport;
+
+  /**
+   * Number of mails to send in parallel; also the number of connections to the relay during the flush.
+   *
+   * @parameter default-value="4" expression="${mail.flush.threads}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int threads;
+
+  /**
+   * Number of attempts after which a mail is given up and moved to the subdirectory <code>failed</code>.
+   *
+   * @parameter default-value="5" expression="${mail.outbox.maxAttempts}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int maxAttempts;
+
+  /**
+   * Seconds to wait after the first failed attempt before a mail is tried again. The time doubles with
+   * each further attempt, up to one hour.
+   *
+   * @parameter default-value="60" expression="${mail.outbox.initialBackoff}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int initialBackoff;
+
+  /**
+   * Maximum number of messages per minute to send to the relay. 0 for no limit, unless another
+   * execution of the build already set one.
+   *
+   * @parameter default-value="0" expression="${mail.smtp.rateLimit}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int rateLimit;
+
+  /**
+   * Number of messages which might be sent to the relay at once before the rate limit applies.
+   *
+   * @parameter default-value="1" expression="${mail.smtp.rateLimitBurst}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int rateLimitBurst;
+
+  /**
+   * Maximum seconds to wait for the rate limit. Messages which would have to wait longer remain
+   * in the outbox.
+   *
+   * @parameter default-value="60" expression="${mail.smtp.rateLimitMaxWait}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int rateLimitMaxWait;
+
+  /**
+   * If true the build fails if mails remain in the outbox.
+   *
+   * @parameter default-value="false" expression="${mail.flush.failOnRemaining}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private boolean failOnRemaining;
+
+  /**
+   * Seconds to wait for the connection to the relay. 0 to wait until the operating system gives up.
+   * Ignored if <code>mail.smtp.connectiontimeout</code> is configured in the session properties.
+   *
+   * @parameter default-value="10" expression="${mail.smtp.connectTimeout}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int connectTimeout;
+
+  /**
+   * Seconds to wait for a reply of the relay. 0 to wait forever. Ignored if <code>mail.smtp.timeout</code>
+   * is configured in the session properties.
+   *
+   * @parameter default-value="60" expression="${mail.smtp.readTimeout}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int readTimeout;
+
+  /**
+   * Number of consecutive failures to reach the relay after which further mails remain in the outbox
+   * instead of waiting for the relay again. After <code>circuitBreakerOpenTime</code> one mail tries the
+   * relay again. 0 to always try the relay, unless another execution of the build already set a threshold.
+   *
+   * @parameter default-value="3" expression="${mail.smtp.circuitBreakerThreshold}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int circuitBreakerThreshold;
+
+  /**
+   * Seconds to fail fast after the relay failed <code>circuitBreakerThreshold</code> times in a row.
+   *
+   * @parameter default-value="60" expression="${mail.smtp.circuitBreakerOpenTime}"
+   */
+  @SuppressWarnings({"UnusedDeclaration"})
+  private int circuitBreakerOpenTime;
+
+  @Override
+  public void execute() throws MojoExecutionException, MojoFailureException {
+    if (skip) {
+      return;
+    }
+    final MailOutbox outbox = new MailOutbox(outboxDirectory);
+    outbox.setMaxAttempts(maxAttempts);
+    outbox.setInitialBackoff(initialBackoff);
+    try {
+      outbox.setTransport(MailTransports.get(transport));
+    } catch (IllegalArgumentException e) {
+      throw new MojoExecutionException(e.getMessage(), e);
+    }
+    MailRateLimiter.getInstance().configure(MailRateLimiter.getRelay(smtphost, smtpport), rateLimit, rateLimitBurst, rateLimitMaxWait);
+    MailCircuitBreaker.getInstance().configure(MailRateLimiter.getRelay(smtphost, smtpport), circuitBreakerThreshold, circuitBreakerOpenTime);
+    final MailTransportPool pool = MailTransportPool.getInstance();
+    // The pool is shared with all later mail executions of the JVM
+    final int maxConnections = pool.getMaxConnections();
+    pool.setMaxConnections(threads);
+    final int remaining;
+    try {
+      remaining = outbox.flush(MailSessions.getSession(getSessionProperties(), smtphost, smtpport, hostname, getLog().isDebugEnabled()), threads, getLog());
+    } finally {
+      pool.setMaxConnections(maxConnections);
+    }
+    if (remaining > 0 && failOnRemaining) {
+      throw new MojoFailureException(remaining + " mails remain in outbox " + outboxDirectory.getAbsolutePath() + ".");
+    }
+  }
+
+  /**
+   * Get the JavaMail properties including the transport to use.
+   *
+   * @return the properties; <code>null</code> if none are configured
+   */
+  private Properties getSessionProperties() {
+    final Properties properties = MailSessions.withTimeouts(sessionProperties, connectTimeout, readTimeout);
+    return pipelining ? PipeliningSmtpTransport.enable(properties) : properties;
+  }
+}
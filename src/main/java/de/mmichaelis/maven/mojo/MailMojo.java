@@ -16,11 +16,14 @@
 
 package de.mmichaelis.maven.mojo;
 
+import de.mmichaelis.maven.mojo.mail.MailAddresses;
+import de.mmichaelis.maven.mojo.mail.MailAttachments;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 
 import javax.mail.internet.AddressException;
 import javax.mail.internet.InternetAddress;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -29,6 +32,7 @@ import java.util.List;
 /**
  * @since 6/7/11 9:53 PM
  * @goal mail
+ * @threadSafe
  */
 public final class MailMojo extends AbstractMailMojo {
   /**
@@ -61,7 +65,7 @@ public final class MailMojo extends AbstractMailMojo {
     final List<InternetAddress> result = new ArrayList<InternetAddress>(to.size());
     for (final String s : to) {
       try {
-        result.addAll(Arrays.asList(InternetAddress.parse(s)));
+        result.addAll(Arrays.asList(MailAddresses.getInstance().parse(s)));
       } catch (AddressException e) {
         throw new MojoExecutionException("E-Mail address " + s + " is invalid.", e);
       }
@@ -82,6 +86,26 @@ public final class MailMojo extends AbstractMailMojo {
    */
   @Override
   protected String getPlainText() throws MojoExecutionException, MojoFailureException {
-    return message.getText(getLog());
+    return message.getText(getLog(), getSession());
+  }
+
+  /**
+   * Get the file to stream the text body for this email from.
+   *
+   * @return the file to stream the text from; <code>null</code> to use {@link #getPlainText()}
+   */
+  @Override
+  protected File getPlainTextFile() {
+    return message.getStreamedTextFile(getLog());
+  }
+
+  /**
+   * Get the files to attach to this email.
+   *
+   * @return the attachments; <code>null</code> for none
+   */
+  @Override
+  protected MailAttachments getAttachments() {
+    return message.getAttachments(getBasedir(), getLog());
   }
 }
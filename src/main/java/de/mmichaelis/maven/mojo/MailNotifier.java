@@ -0,0 +1,298 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo;
+
+import de.mmichaelis.maven.mojo.mail.BuildLogCapture;
+import de.mmichaelis.maven.mojo.mail.MailBase;
+import de.mmichaelis.maven.mojo.mail.MailConstants;
+import org.apache.maven.execution.BuildFailure;
+import org.apache.maven.execution.BuildSuccess;
+import org.apache.maven.execution.BuildSummary;
+import org.apache.maven.execution.MavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+
+import javax.mail.internet.InternetAddress;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Sends mails only if modules of the build failed or recovered. Mail executions in notification mode
+ * <code>failure</code> register here instead of sending; when the session ends the results of all
+ * modules are evaluated once and one mail per set of recipients lists the failed and recovered modules.
+ * Thus successful builds cost nothing but the evaluation at the end.
+ * <p>
+ * Modules which failed are remembered in a state file, so that a later build can report them as recovered.
+ * </p>
+ *
+ * @since 10/18/26 8:12 AM
+ */
+final class MailNotifier {
+  private static final MailNotifier instance = new MailNotifier();
+  private static final String FAILED = "failed";
+
+  private final Map<String, Registration> registrations = new LinkedHashMap<String, Registration>();
+
+  /**
+   * Constructor.
+   */
+  private MailNotifier() {
+    // use the instance
+  }
+
+  /**
+   * Return the instance.
+   *
+   * @return instance
+   */
+  static MailNotifier getInstance() {
+    return instance;
+  }
+
+  /**
+   * Register a mail to send if modules fail or recover. The first registration for a set of recipients
+   * determines how the mail is sent.
+   *
+   * @param base         the configuration to send the mail with
+   * @param recipients   the recipients of the mail
+   * @param subject      the configured subject
+   * @param text         the configured text to append to the list of modules; <code>null</code> for none
+   * @param logTailBytes bytes of the build log to attach; 0 for none
+   * @param stateFile    file to remember failed modules in
+   */
+  synchronized void register(final MailBase base, final InternetAddress[] recipients, final String subject,
+                             final String text, final int logTailBytes, final File stateFile) {
+    final String key = getKey(recipients);
+    if (!registrations.containsKey(key)) {
+      registrations.put(key, new Registration(base, recipients, subject, text, logTailBytes, stateFile));
+    }
+  }
+
+  /**
+   * Evaluate the results of the modules and send the mails.
+   *
+   * @param session the ending session
+   * @param log     where to report problems to
+   */
+  void flush(final MavenSession session, final Log log) {
+    final List<Registration> toSend;
+    synchronized (this) {
+      toSend = new ArrayList<Registration>(registrations.values());
+      registrations.clear();
+    }
+    // Each state file is evaluated once, otherwise only the first registration would see the recovered modules
+    final Map<File, Results> resultsByState = new HashMap<File, Results>();
+    for (final Registration registration : toSend) {
+      final File stateFile = registration.stateFile == null ? null : registration.stateFile.getAbsoluteFile();
+      Results results = resultsByState.get(stateFile);
+      if (results == null) {
+        final Properties state = loadState(stateFile, log);
+        results = evaluate(session, state);
+        saveState(stateFile, state, log);
+        resultsByState.put(stateFile, results);
+      }
+      if (results.failed.isEmpty() && results.recovered.isEmpty()) {
+        log.debug("No module failed or recovered. Not sending mail to " + InternetAddress.toString(registration.recipients) + ".");
+        continue;
+      }
+      final MailBase base = registration.base;
+      // the session is about to end, thus there is no point in sending in background
+      base.setAsync(false);
+      base.setDigest(false);
+      base.setRecipients(registration.recipients);
+      base.setSubject(registration.subject + " - " + results.getSummary());
+      base.setPlainTextFile(null);
+      base.setPlainText(results.getText() + (registration.text == null ? "" : MailConstants.LF + registration.text));
+      final BuildLogCapture capture = BuildLogCapture.get();
+      if (registration.logTailBytes > 0 && capture != null) {
+        base.setLogTail(capture.getTail(registration.logTailBytes));
+      }
+      try {
+        base.execute();
+      } catch (MojoExecutionException e) {
+        log.error("Failed to send failure notification to " + InternetAddress.toString(registration.recipients) + ".", e);
+      } catch (MojoFailureException e) {
+        log.error("Failed to send failure notification to " + InternetAddress.toString(registration.recipients) + ".", e);
+      }
+    }
+  }
+
+  /**
+   * Evaluate the results of all modules and update the state accordingly.
+   */
+  private static Results evaluate(final MavenSession session, final Properties state) {
+    final Results results = new Results();
+    final MavenExecutionResult result = session.getResult();
+    final List<MavenProject> projects = session.getProjects();
+    if (result == null || projects == null) {
+      return results;
+    }
+    for (final MavenProject project : projects) {
+      final String id = project.getGroupId() + ":" + project.getArtifactId();
+      final BuildSummary summary = result.getBuildSummary(project);
+      if (summary instanceof BuildFailure) {
+        final Throwable cause = ((BuildFailure) summary).getCause();
+        results.failed.put(id, cause == null ? "" : String.valueOf(cause.getMessage()));
+        state.setProperty(id, FAILED);
+      } else if (summary instanceof BuildSuccess) {
+        results.succeeded++;
+        if (state.remove(id) != null) {
+          results.recovered.add(id);
+        }
+      } else {
+        results.skipped++;
+      }
+    }
+    return results;
+  }
+
+  private static Properties loadState(final File file, final Log log) {
+    final Properties state = new Properties();
+    if (file == null || !file.isFile()) {
+      return state;
+    }
+    try {
+      final InputStream in = new FileInputStream(file);
+      try {
+        state.load(in);
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      log.warn("Failed to read notification state from " + file.getAbsolutePath() + ".", e);
+    }
+    return state;
+  }
+
+  private static void saveState(final File file, final Properties state, final Log log) {
+    if (file == null) {
+      return;
+    }
+    final File directory = file.getAbsoluteFile().getParentFile();
+    if (!(directory.isDirectory() || directory.mkdirs())) {
+      log.warn("Unable to write notification state. Directory " + directory + " not available.");
+      return;
+    }
+    // Write to a temporary file first, so that an interrupted build does not leave a truncated state
+    File temp = null;
+    try {
+      temp = File.createTempFile(file.getName() + "-", ".tmp", directory);
+      final OutputStream out = new FileOutputStream(temp);
+      try {
+        state.store(out, "Modules which failed in the last build");
+      } finally {
+        out.close();
+      }
+      if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+        throw new IOException("Failed to rename " + temp.getAbsolutePath() + " to " + file.getName() + ".");
+      }
+      temp = null;
+    } catch (IOException e) {
+      log.warn("Failed to write notification state to " + file.getAbsolutePath() + ".", e);
+    } finally {
+      if (temp != null && temp.exists() && !temp.delete()) {
+        temp.deleteOnExit();
+      }
+    }
+  }
+
+  /**
+   * Key for the set of recipients which ignores order and case.
+   *
+   * @param recipients recipients to get the key for
+   * @return key
+   */
+  private static String getKey(final InternetAddress[] recipients) {
+    final String[] addresses = new String[recipients.length];
+    for (int i = 0; i < recipients.length; i++) {
+      addresses[i] = recipients[i].getAddress().toLowerCase(Locale.ENGLISH);
+    }
+    Arrays.sort(addresses);
+    return Arrays.toString(addresses);
+  }
+
+  /**
+   * A mail to send if modules fail or recover.
+   */
+  private static final class Registration {
+    private final MailBase base;
+    private final InternetAddress[] recipients;
+    private final String subject;
+    private final String text;
+    private final int logTailBytes;
+    private final File stateFile;
+
+    private Registration(final MailBase base, final InternetAddress[] recipients, final String subject, final String text,
+                         final int logTailBytes, final File stateFile) {
+      this.base = base;
+      this.recipients = recipients;
+      this.subject = subject;
+      this.text = text;
+      this.logTailBytes = logTailBytes;
+      this.stateFile = stateFile;
+    }
+  }
+
+  /**
+   * Results of the modules of the build.
+   */
+  private static final class Results {
+    private final Map<String, String> failed = new LinkedHashMap<String, String>();
+    private final List<String> recovered = new ArrayList<String>();
+    private int succeeded;
+    private int skipped;
+
+    private String getSummary() {
+      final StringBuilder summary = new StringBuilder();
+      if (!failed.isEmpty()) {
+        summary.append(failed.size()).append(failed.size() == 1 ? " module failed" : " modules failed");
+      }
+      if (!recovered.isEmpty()) {
+        summary.append(failed.isEmpty() ? "" : ", ").append(recovered.size()).append(" recovered");
+      }
+      return summary.toString();
+    }
+
+    private String getText() {
+      final StringBuilder text = new StringBuilder();
+      for (final Map.Entry<String, String> entry : failed.entrySet()) {
+        text.append("[FAILED]    ").append(entry.getKey()).append(": ").append(entry.getValue()).append(MailConstants.LF);
+      }
+      for (final String id : recovered) {
+        text.append("[RECOVERED] ").append(id).append(MailConstants.LF);
+      }
+      text.append(MailConstants.LF).append(succeeded).append(" succeeded, ").append(failed.size()).append(" failed, ")
+              .append(skipped).append(" skipped.").append(MailConstants.LF);
+      return text.toString();
+    }
+  }
+}
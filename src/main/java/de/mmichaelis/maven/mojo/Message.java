@@ -16,6 +16,8 @@
 
 package de.mmichaelis.maven.mojo;
 
+import de.mmichaelis.maven.mojo.mail.MailAttachments;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
@@ -23,6 +25,7 @@ import org.codehaus.plexus.util.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Represents the message to be sent. If both, text and textFile is set textFile will be taken.
@@ -37,23 +40,109 @@ public final class Message {
    * The message to be sent will be read from the given file.
    */
   private File textFile;
+  /**
+   * If true the textFile is streamed into the mail instead of being read into memory. Recommended
+   * for large files. The file is expected to be encoded in the charset configured for the mail.
+   */
+  private boolean streaming;
+  /**
+   * If true text or textFile is a template containing placeholders such as <code>${project.name}</code>,
+   * <code>${session.executionRootDirectory}</code> or <code>${build.result}</code>. Templates are parsed
+   * once per build and rendered for each module. A template file is never streamed.
+   */
+  private boolean template;
+  /**
+   * Ant-style patterns of files to attach, relative to the project base directory, such as
+   * <code>target/surefire-reports/*.txt</code>. The files are streamed into the mail.
+   */
+  private List<String> attachments;
+  /**
+   * If true the attachments are sent as one zip archive which is compressed while sending.
+   */
+  private boolean zipAttachments;
+  /**
+   * Maximum total size of the attachments in bytes, measured uncompressed. Files which would exceed
+   * the size are left out with a warning.
+   */
+  private long maxAttachmentSize = MailAttachments.DEFAULT_MAX_SIZE;
 
   public Message() {
   }
 
+  /**
+   * Get the file to stream the message from.
+   *
+   * @param log where to report problems to
+   * @return the file to stream; <code>null</code> if the text should be read via {@link #getText(Log)}
+   */
+  public File getStreamedTextFile(final Log log) {
+    if (!streaming) {
+      return null;
+    }
+    if (template) {
+      log.warn("Specified <streaming> with <template>. The template will be rendered in memory.");
+      return null;
+    }
+    if (textFile == null) {
+      log.warn("Specified <streaming> without <textFile>. <text> will be taken.");
+    }
+    return textFile;
+  }
+
+  /**
+   * Get the files to attach.
+   *
+   * @param basedir the directory to resolve the patterns against
+   * @param log     where to report left out files to
+   * @return the attachments; <code>null</code> if none are configured
+   */
+  public MailAttachments getAttachments(final File basedir, final Log log) {
+    if (attachments == null || attachments.isEmpty()) {
+      return null;
+    }
+    return MailAttachments.scan(basedir, attachments, zipAttachments, maxAttachmentSize, log);
+  }
+
   public String getText(final Log log) throws MojoExecutionException, MojoFailureException {
+    return getText(log, null);
+  }
+
+  /**
+   * Get the text of the message. If the message is a template its placeholders are resolved.
+   *
+   * @param log     where to report problems to
+   * @param session the build session to resolve placeholders against; <code>null</code> to keep them
+   * @return the text
+   * @throws MojoExecutionException if neither text nor file is given or reading the file fails
+   * @throws MojoFailureException   never
+   */
+  public String getText(final Log log, final MavenSession session) throws MojoExecutionException, MojoFailureException {
     if (text == null && textFile == null) {
       throw new MojoExecutionException("You should either specify <text> or <textFile> as message.");
     }
     if (text != null && textFile != null) {
       log.warn("Specified both <text> and <textFile> as message. <textFile> will be taken.");
     }
+    if (template) {
+      return getTemplate().render(session);
+    }
     if (textFile != null) {
       return getPlainTextFromFile(textFile);
     }
     return text;
   }
 
+  private MessageTemplate getTemplate() throws MojoExecutionException {
+    if (textFile == null) {
+      return MessageTemplate.compile(text);
+    }
+    try {
+      return MessageTemplate.compile(textFile);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Failed to read file " + textFile.getAbsolutePath(), e);
+    }
+  }
+
   private String getPlainTextFromFile(final File textFile) throws MojoExecutionException, MojoFailureException {
     try {
       return FileUtils.fileRead(textFile);
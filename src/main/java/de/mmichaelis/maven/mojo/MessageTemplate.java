@@ -0,0 +1,222 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo;
+
+import org.apache.maven.execution.MavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.introspection.ReflectionValueExtractor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Message text with placeholders. A template is parsed once per JVM into literal and placeholder
+ * segments, so that rendering it for each module of a reactor only evaluates the placeholders.
+ * Supported placeholders:
+ * <dl>
+ * <dt><code>${project.*}</code></dt>
+ * <dd>properties of the current project, such as <code>${project.artifactId}</code> or
+ * <code>${project.build.directory}</code></dd>
+ * <dt><code>${session.*}</code></dt>
+ * <dd>properties of the build session, such as <code>${session.executionRootDirectory}</code></dd>
+ * <dt><code>${build.result}</code></dt>
+ * <dd><code>SUCCESS</code> or <code>FAILURE</code> if any module of the build failed so far</dd>
+ * <dt><code>${build.failures}</code></dt>
+ * <dd>number of failures of the build so far</dd>
+ * </dl>
+ * Placeholders which cannot be resolved are kept as they are.
+ *
+ * @since 10/18/26 5:47 AM
+ */
+final class MessageTemplate {
+  private static final String START = "${";
+  private static final String END = "}";
+
+  /**
+   * Compiled templates by their source.
+   */
+  private static final ConcurrentMap<String, MessageTemplate> TEMPLATES = new ConcurrentHashMap<String, MessageTemplate>();
+
+  /**
+   * Compiled templates by the absolute path of their file, so that unchanged files are not read again.
+   * An entry is replaced once its file changes.
+   */
+  private static final ConcurrentMap<String, FileTemplate> FILE_TEMPLATES = new ConcurrentHashMap<String, FileTemplate>();
+
+  /**
+   * Buffer to render into, reused by all renderings of a thread.
+   */
+  private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+    @Override
+    protected StringBuilder initialValue() {
+      return new StringBuilder();
+    }
+  };
+
+  /**
+   * Literal text at even, placeholder expressions at odd indexes.
+   */
+  private final String[] segments;
+  private final int literalLength;
+
+  private MessageTemplate(final String[] segments) {
+    this.segments = segments;
+    int length = 0;
+    for (int i = 0; i < segments.length; i += 2) {
+      length += segments[i].length();
+    }
+    literalLength = length;
+  }
+
+  /**
+   * Get the compiled template for the given source. Each source is parsed only once.
+   *
+   * @param source the template text
+   * @return the compiled template
+   */
+  static MessageTemplate compile(final String source) {
+    MessageTemplate template = TEMPLATES.get(source);
+    if (template == null) {
+      template = parse(source);
+      final MessageTemplate existing = TEMPLATES.putIfAbsent(source, template);
+      if (existing != null) {
+        template = existing;
+      }
+    }
+    return template;
+  }
+
+  /**
+   * Get the compiled template for the given file. The file is only read again if it changed.
+   *
+   * @param file the file containing the template text
+   * @return the compiled template
+   * @throws IOException if reading the file fails
+   */
+  static MessageTemplate compile(final File file) throws IOException {
+    final String key = file.getAbsolutePath();
+    final long lastModified = file.lastModified();
+    final long length = file.length();
+    final FileTemplate cached = FILE_TEMPLATES.get(key);
+    if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+      return cached.template;
+    }
+    // Not cached by source: each edit of the file would otherwise add an entry
+    final MessageTemplate template = parse(FileUtils.fileRead(file));
+    FILE_TEMPLATES.put(key, new FileTemplate(lastModified, length, template));
+    return template;
+  }
+
+  private static MessageTemplate parse(final String source) {
+    final List<String> segments = new ArrayList<String>();
+    final StringBuilder literal = new StringBuilder();
+    int position = 0;
+    while (true) {
+      final int start = source.indexOf(START, position);
+      final int end = start < 0 ? -1 : source.indexOf(END, start + START.length());
+      if (end < 0) {
+        literal.append(source, position, source.length());
+        break;
+      }
+      final String expression = source.substring(start + START.length(), end).trim();
+      literal.append(source, position, start);
+      if (isSupported(expression)) {
+        segments.add(literal.toString());
+        segments.add(expression);
+        literal.setLength(0);
+      } else {
+        literal.append(source, start, end + END.length());
+      }
+      position = end + END.length();
+    }
+    segments.add(literal.toString());
+    return new MessageTemplate(segments.toArray(new String[segments.size()]));
+  }
+
+  private static boolean isSupported(final String expression) {
+    return expression.startsWith("project.") || expression.startsWith("session.") || expression.startsWith("build.");
+  }
+
+  /**
+   * Render the template.
+   *
+   * @param session the build session to resolve the placeholders against; <code>null</code> to keep them
+   * @return the rendered text
+   */
+  String render(final MavenSession session) {
+    final StringBuilder buffer = BUFFER.get();
+    buffer.setLength(0);
+    buffer.ensureCapacity(literalLength + (segments.length / 2) * 16);
+    buffer.append(segments[0]);
+    for (int i = 1; i < segments.length; i += 2) {
+      final Object value = resolve(segments[i], session);
+      if (value == null) {
+        buffer.append(START).append(segments[i]).append(END);
+      } else {
+        buffer.append(value);
+      }
+      buffer.append(segments[i + 1]);
+    }
+    return buffer.toString();
+  }
+
+  private static Object resolve(final String expression, final MavenSession session) {
+    if (session == null) {
+      return null;
+    }
+    if ("build.result".equals(expression)) {
+      return getFailures(session) == 0 ? "SUCCESS" : "FAILURE";
+    }
+    if ("build.failures".equals(expression)) {
+      return getFailures(session);
+    }
+    final Object root = expression.startsWith("project.") ? session.getCurrentProject() : session;
+    if (root == null) {
+      return null;
+    }
+    try {
+      return ReflectionValueExtractor.evaluate(expression, root);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  private static int getFailures(final MavenSession session) {
+    final MavenExecutionResult result = session.getResult();
+    return result == null ? 0 : result.getExceptions().size();
+  }
+
+  /**
+   * Compiled template of a file together with the state of the file it was read in.
+   */
+  private static final class FileTemplate {
+    private final long lastModified;
+    private final long length;
+    private final MessageTemplate template;
+
+    private FileTemplate(final long lastModified, final long length, final MessageTemplate template) {
+      this.lastModified = lastModified;
+      this.length = length;
+      this.template = template;
+    }
+  }
+}
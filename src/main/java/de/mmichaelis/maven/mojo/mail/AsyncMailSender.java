@@ -0,0 +1,312 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends mails in background so that the build does not have to wait for the relay. Mails are queued in
+ * a bounded queue which is drained when the build session ends. If the queue is full the overflow
+ * policy of the submitted mail decides what happens. Mails which cannot be sent are spooled to the outbox
+ * if the relay is rate limited or unavailable, or if spooling on failure is requested.
+ *
+ * @since 10/17/26 9:21 PM
+ */
+public final class AsyncMailSender {
+  private static final AsyncMailSender instance = new AsyncMailSender();
+
+  /**
+   * Default number of mails which might wait in the queue.
+   */
+  public static final int DEFAULT_QUEUE_SIZE = 100;
+
+  private static final long DRAIN_PROGRESS_SECONDS = 10L;
+
+  private final AtomicInteger sent = new AtomicInteger();
+  private final AtomicInteger failed = new AtomicInteger();
+  private final AtomicInteger dropped = new AtomicInteger();
+  private final AtomicInteger spooled = new AtomicInteger();
+
+  private ThreadPoolExecutor executor;
+  private boolean shutdownHookRegistered;
+
+  /**
+   * Constructor.
+   */
+  private AsyncMailSender() {
+    // use the instance
+  }
+
+  /**
+   * Return the instance.
+   *
+   * @return instance
+   */
+  public static AsyncMailSender getInstance() {
+    return instance;
+  }
+
+  /**
+   * Queue the given message for sending.
+   *
+   * @param session         the session to send the message with
+   * @param message         the composed message
+   * @param transport       the transport to deliver the message with
+   * @param queueSize       capacity of the queue; only respected by the first submission of a session
+   * @param policy          what to do if the queue is full
+   * @param outboxDirectory where to spool the message to if required by the policy
+   * @param spoolOnFailure  whether to spool the message if it cannot be sent
+   * @param metrics         where to record durations, sizes and outcome of sending to
+   * @param log             where to report problems to
+   * @param onSent          run once the message is sent or spooled; <code>null</code> for none
+   * @param onDone          run once the message is sent, spooled, failed or dropped; <code>null</code> for none
+   * @throws MessagingException if the message cannot be prepared for sending
+   */
+  public void submit(final Session session, final MimeMessage message, final MailTransport transport, final int queueSize,
+                     final OverflowPolicy policy, final File outboxDirectory, final boolean spoolOnFailure,
+                     final MailMetrics metrics, final Log log, final Runnable onSent, final Runnable onDone)
+          throws MessagingException {
+    message.saveChanges();
+    getExecutor(queueSize).execute(new SendTask(session, message, transport, policy, outboxDirectory, spoolOnFailure, metrics,
+            log, onSent, onDone));
+  }
+
+  /**
+   * Wait for all queued mails to be sent and report a summary.
+   *
+   * @param log where to report the summary to
+   */
+  public void drain(final Log log) {
+    final ThreadPoolExecutor current;
+    synchronized (this) {
+      current = executor;
+      executor = null;
+    }
+    if (current == null) {
+      return;
+    }
+    current.shutdown();
+    try {
+      while (!current.awaitTermination(DRAIN_PROGRESS_SECONDS, TimeUnit.SECONDS)) {
+        log.info("Waiting for " + (current.getQueue().size() + current.getActiveCount()) + " mails to be sent.");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      final List<Runnable> discarded = current.shutdownNow();
+      for (final Runnable task : discarded) {
+        dropped.incrementAndGet();
+        ((SendTask) task).finished();
+      }
+      log.warn("Interrupted while waiting for mails to be sent. " + discarded.size() + " mails discarded.");
+    }
+    log.info("Background mail delivery: " + sent.getAndSet(0) + " sent, " + failed.getAndSet(0) + " failed, "
+            + dropped.getAndSet(0) + " dropped, " + spooled.getAndSet(0) + " spooled.");
+  }
+
+  private synchronized ThreadPoolExecutor getExecutor(final int queueSize) {
+    if (executor == null) {
+      executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+              new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)), new SenderThreadFactory(), new OverflowHandler());
+      if (!shutdownHookRegistered) {
+        shutdownHookRegistered = true;
+        Runtime.getRuntime().addShutdownHook(new Thread("maven-mail-plugin background mail shutdown") {
+          @Override
+          public void run() {
+            final ThreadPoolExecutor remaining;
+            synchronized (AsyncMailSender.this) {
+              remaining = executor;
+            }
+            if (remaining != null) {
+              remaining.shutdown();
+              try {
+                remaining.awaitTermination(DRAIN_PROGRESS_SECONDS, TimeUnit.SECONDS);
+              } catch (InterruptedException ignored) {
+                // JVM is going down anyway
+              }
+            }
+          }
+        });
+      }
+    }
+    return executor;
+  }
+
+  private void spool(final SendTask task) {
+    try {
+      if (task.outboxDirectory == null) {
+        task.log.error("Unable to spool mail. No outbox directory configured. Mail dropped.");
+        dropped.incrementAndGet();
+        task.metrics.recordFailure();
+        return;
+      }
+      try {
+        final File file = new MailOutbox(task.outboxDirectory).store(task.message);
+        spooled.incrementAndGet();
+        task.metrics.recordSpooled();
+        task.log.warn("Spooled mail to " + file.getAbsolutePath() + ".");
+        task.done();
+      } catch (MessagingException e) {
+        task.log.error("Failed to spool mail. Mail dropped.", e);
+        dropped.incrementAndGet();
+        task.metrics.recordFailure();
+      }
+    } finally {
+      task.finished();
+    }
+  }
+
+  /**
+   * Sends one message.
+   */
+  private final class SendTask implements Runnable {
+    private final Session session;
+    private final MimeMessage message;
+    private final MailTransport transport;
+    private final OverflowPolicy policy;
+    private final File outboxDirectory;
+    private final boolean spoolOnFailure;
+    private final MailMetrics metrics;
+    private final Log log;
+    private final Runnable onSent;
+    private final Runnable onDone;
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    private SendTask(final Session session, final MimeMessage message, final MailTransport transport, final OverflowPolicy policy,
+                     final File outboxDirectory, final boolean spoolOnFailure, final MailMetrics metrics, final Log log,
+                     final Runnable onSent, final Runnable onDone) {
+      this.session = session;
+      this.message = message;
+      this.transport = transport;
+      this.policy = policy;
+      this.outboxDirectory = outboxDirectory;
+      this.spoolOnFailure = spoolOnFailure;
+      this.metrics = metrics;
+      this.log = log;
+      this.onSent = onSent;
+      this.onDone = onDone;
+    }
+
+    private void done() {
+      if (onSent != null) {
+        onSent.run();
+      }
+    }
+
+    private void finished() {
+      if (onDone != null && finished.compareAndSet(false, true)) {
+        onDone.run();
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        log.debug("Sending queued mail to recipients: " + InternetAddress.toString(message.getAllRecipients()));
+        final MessagingException failure = transport.send(session, Collections.singletonList(message), log, metrics)[0];
+        if (failure == null) {
+          sent.incrementAndGet();
+          done();
+        } else if (failure instanceof RateLimitExceededException || failure instanceof RelayUnavailableException) {
+          spool(this);
+        } else {
+          failed(failure);
+        }
+      } catch (MessagingException e) {
+        failed(e);
+      } catch (RuntimeException e) {
+        failed(e);
+      } finally {
+        finished();
+      }
+    }
+
+    private void failed(final Exception cause) {
+      if (spoolOnFailure) {
+        log.warn("Failed to send queued mail, storing it in outbox: " + cause.getMessage());
+        spool(this);
+      } else {
+        failed.incrementAndGet();
+        metrics.recordFailure();
+        log.error("Failed to send queued mail.", cause);
+      }
+    }
+  }
+
+  /**
+   * Applies the overflow policy of a rejected task.
+   */
+  private final class OverflowHandler implements RejectedExecutionHandler {
+    @Override
+    public void rejectedExecution(final Runnable runnable, final ThreadPoolExecutor pool) {
+      final SendTask task = (SendTask) runnable;
+      if (pool.isShutdown()) {
+        spool(task);
+        return;
+      }
+      switch (task.policy) {
+        case DROP_OLDEST:
+          final Runnable oldest = pool.getQueue().poll();
+          if (oldest != null) {
+            dropped.incrementAndGet();
+            ((SendTask) oldest).metrics.recordFailure();
+            ((SendTask) oldest).finished();
+            task.log.warn("Mail queue full. Dropped oldest queued mail.");
+          }
+          pool.execute(task);
+          break;
+        case SPOOL:
+          spool(task);
+          break;
+        default:
+          try {
+            pool.getQueue().put(task);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.log.warn("Interrupted while waiting for space in the mail queue. Spooling mail.");
+            spool(task);
+          }
+      }
+    }
+  }
+
+  /**
+   * Creates the daemon thread for sending mails.
+   */
+  private static final class SenderThreadFactory implements ThreadFactory {
+    @Override
+    public Thread newThread(final Runnable runnable) {
+      final Thread thread = new Thread(runnable, "maven-mail-plugin background mail");
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,230 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends messages, each to its own batch of recipients, in parallel. Each thread takes sub-batches of at most
+ * as many messages as there are threads, composes them and hands them to the {@link MailTransport} at once.
+ * Sub-batches are smaller if there are few messages, so that all threads get work. Thus at most
+ * <code>threads * threads</code> messages are held in memory. All messages are tried;
+ * failures are reported per message followed by a summary including the throughput.
+ *
+ * @since 10/18/26 12:14 AM
+ */
+final class BatchSender {
+  private final int threads;
+  private final MailTransport transport;
+  private final MailOutbox outbox;
+  private final boolean spoolOnFailure;
+  private final MailMetrics metrics;
+  private final Log log;
+
+  /**
+   * Constructor.
+   *
+   * @param threads        number of threads sending in parallel; also the maximum number of messages handed
+   *                       to the transport at once. The number of connections is additionally limited by the
+   *                       {@link MailTransportPool}
+   * @param transport      delivers the messages
+   * @param outbox         where to store messages which exceed the rate limit of the relay
+   * @param spoolOnFailure whether to store messages which could not be sent in the outbox instead of failing
+   * @param metrics        where to record durations and sizes to
+   * @param log            where to report progress and failures to
+   */
+  BatchSender(final int threads, final MailTransport transport, final MailOutbox outbox, final boolean spoolOnFailure, final MailMetrics metrics, final Log log) {
+    this.threads = Math.max(1, threads);
+    this.transport = transport;
+    this.outbox = outbox;
+    this.spoolOnFailure = spoolOnFailure;
+    this.metrics = metrics;
+    this.log = log;
+  }
+
+  /**
+   * Compose and send one message per batch of recipients. Messages are composed by the worker threads
+   * right before they are sent.
+   *
+   * @param session  session to send the messages with
+   * @param composer composes the message for a batch
+   * @param batches  the batches of recipients
+   * @throws MojoExecutionException if at least one message could not be sent
+   */
+  void send(final Session session, final MessageComposer composer, final List<InternetAddress[]> batches) throws MojoExecutionException {
+    final long start = System.currentTimeMillis();
+    final int workers = Math.min(threads, batches.size());
+    final ExecutorService executor = Executors.newFixedThreadPool(workers, new BatchThreadFactory());
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>(workers);
+    final Outcome[] outcomes = new Outcome[batches.size()];
+    final AtomicInteger cursor = new AtomicInteger();
+    final int subBatchSize = Math.min(threads, (batches.size() + workers - 1) / workers);
+    try {
+      for (int i = 0; i < workers; i++) {
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() {
+            int from;
+            while ((from = cursor.getAndAdd(subBatchSize)) < batches.size()) {
+              sendSubBatch(session, composer, batches, from, Math.min(batches.size(), from + subBatchSize), outcomes);
+            }
+            return null;
+          }
+        }));
+      }
+      Throwable firstFailure = null;
+      for (final Future<Void> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          if (firstFailure == null) {
+            firstFailure = e.getCause();
+          }
+          log.error("Failed to send messages.", e.getCause());
+        }
+      }
+      int failures = 0;
+      int stored = 0;
+      for (int i = 0; i < outcomes.length; i++) {
+        final String label = "message " + (i + 1) + "/" + batches.size() + " to recipients: " + InternetAddress.toString(batches.get(i));
+        final Outcome outcome = outcomes[i];
+        if (outcome == null || outcome.failure != null) {
+          failures++;
+          if (outcome != null) {
+            if (firstFailure == null) {
+              firstFailure = outcome.failure;
+            }
+            log.error("Failed to send " + label, outcome.failure);
+          }
+        } else if (outcome.stored) {
+          stored++;
+          log.debug("Stored " + label);
+        } else {
+          log.debug("Sent " + label);
+        }
+      }
+      final long elapsed = Math.max(1L, System.currentTimeMillis() - start);
+      final int sent = batches.size() - failures - stored;
+      log.info("Sent " + sent + " of " + batches.size() + " messages in " + elapsed + " ms ("
+              + (sent * 1000L / elapsed) + " messages/s); " + stored + " stored in outbox, " + failures + " failed.");
+      if (failures > 0) {
+        throw new MojoExecutionException("Failed to send " + failures + " of " + batches.size() + " messages.", firstFailure);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException("Interrupted while sending messages.", e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Compose the messages for the given range of batches and hand them to the transport at once. Messages
+   * which could not be composed fail on their own; messages which could not be sent are stored in the outbox
+   * if configured so.
+   *
+   * @param session  session to send the messages with
+   * @param composer composes the message for a batch
+   * @param batches  all batches of recipients
+   * @param from     index of the first batch to send
+   * @param to       index after the last batch to send
+   * @param outcomes where to record the outcome per batch to
+   */
+  private void sendSubBatch(final Session session, final MessageComposer composer, final List<InternetAddress[]> batches,
+                            final int from, final int to, final Outcome[] outcomes) {
+    final List<MimeMessage> messages = new ArrayList<MimeMessage>(to - from);
+    final List<Integer> indexes = new ArrayList<Integer>(to - from);
+    for (int i = from; i < to; i++) {
+      final long start = System.nanoTime();
+      try {
+        messages.add(composer.compose(batches.get(i)));
+        indexes.add(i);
+      } catch (MessagingException e) {
+        metrics.recordFailure();
+        outcomes[i] = new Outcome(false, e);
+      } finally {
+        metrics.record(MailMetrics.Phase.COMPOSE, start);
+      }
+    }
+    if (messages.isEmpty()) {
+      return;
+    }
+    final MessagingException[] failures = transport.send(session, messages, log, metrics);
+    for (int i = 0; i < failures.length; i++) {
+      final MessagingException failure = failures[i];
+      final int index = indexes.get(i);
+      if (failure == null) {
+        outcomes[index] = new Outcome(false, null);
+      } else if (spoolOnFailure || failure instanceof RateLimitExceededException) {
+        log.warn("Failed to send message, storing it in outbox: " + failure.getMessage());
+        try {
+          outbox.store(messages.get(i));
+          metrics.recordSpooled();
+          outcomes[index] = new Outcome(true, null);
+        } catch (MessagingException e) {
+          metrics.recordFailure();
+          outcomes[index] = new Outcome(false, e);
+        }
+      } else {
+        metrics.recordFailure();
+        outcomes[index] = new Outcome(false, failure);
+      }
+    }
+  }
+
+  /**
+   * What happened to one message.
+   */
+  private static final class Outcome {
+    private final boolean stored;
+    private final MessagingException failure;
+
+    private Outcome(final boolean stored, final MessagingException failure) {
+      this.stored = stored;
+      this.failure = failure;
+    }
+  }
+
+  /**
+   * Creates named daemon threads for sending batches.
+   */
+  private static final class BatchThreadFactory implements ThreadFactory {
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+      final Thread thread = new Thread(runnable, "maven-mail-plugin batch " + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
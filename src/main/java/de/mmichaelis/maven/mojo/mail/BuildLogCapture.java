@@ -0,0 +1,224 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.rtinfo.RuntimeInformation;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Keeps the tail of the console output of the build in a ring buffer of fixed size, so that it can be
+ * attached to mails. {@link System#out} and {@link System#err} are replaced by streams which write to the
+ * original streams and to the buffer; writing to the buffer only copies bytes, thus memory stays bounded
+ * regardless of how much the build logs.
+ * <p>
+ * The console output of the whole JVM is captured from the first installation on. Thus with parallel
+ * builds the tail contains the output of all modules built at the same time.
+ * </p>
+ * <p>
+ * Requires Maven 3.1 or later. Loggers which hold on to the console stream from before the capture was
+ * installed, like the console logger of Maven 3.0, are not captured; see
+ * {@link #checkMavenVersion(RuntimeInformation, Log)}.
+ * </p>
+ *
+ * @since 10/18/26 7:21 AM
+ */
+public final class BuildLogCapture {
+  /**
+   * Default size of the captured tail in kilobytes.
+   */
+  public static final int DEFAULT_SIZE = 64;
+
+  /**
+   * Versions of Maven whose console output is captured.
+   */
+  private static final String SUPPORTED_MAVEN_VERSIONS = "[3.1,)";
+
+  private static BuildLogCapture instance;
+  private static boolean versionChecked;
+
+  private final byte[] buffer;
+  private final PrintStream originalOut;
+  private final PrintStream originalErr;
+  private final PrintStream capturingOut;
+  private final PrintStream capturingErr;
+  /**
+   * Total number of bytes written; the next byte is written at <code>written % buffer.length</code>.
+   */
+  private long written;
+
+  private BuildLogCapture(final int size) {
+    buffer = new byte[size];
+    originalOut = System.out;
+    originalErr = System.err;
+    capturingOut = new PrintStream(new TeeOutputStream(originalOut), true);
+    capturingErr = new PrintStream(new TeeOutputStream(originalErr), true);
+  }
+
+  /**
+   * Start capturing the console output if not already done.
+   *
+   * @param sizeKb size of the tail to keep in kilobytes; ignored if already capturing
+   * @return the capture
+   */
+  public static synchronized BuildLogCapture install(final int sizeKb) {
+    if (instance == null) {
+      instance = new BuildLogCapture(Math.max(1, sizeKb) * 1024);
+      System.setOut(instance.capturingOut);
+      System.setErr(instance.capturingErr);
+    }
+    return instance;
+  }
+
+  /**
+   * Warn once if the running Maven logs to a console stream which cannot be captured.
+   *
+   * @param runtimeInformation information about the running Maven; <code>null</code> if unknown
+   * @param log                where to report to
+   */
+  public static synchronized void checkMavenVersion(final RuntimeInformation runtimeInformation, final Log log) {
+    if (versionChecked || runtimeInformation == null) {
+      return;
+    }
+    versionChecked = true;
+    if (!runtimeInformation.isMavenVersion(SUPPORTED_MAVEN_VERSIONS)) {
+      log.warn("Maven " + runtimeInformation.getMavenVersion() + " does not log to a console stream which can be captured."
+              + " The log tail will miss the build output; capturing requires Maven 3.1 or later.");
+    }
+  }
+
+  /**
+   * Stop capturing and restore the original console streams, unless they have been replaced by someone else
+   * in the meantime.
+   */
+  public static synchronized void uninstall() {
+    if (instance == null) {
+      return;
+    }
+    if (System.out == instance.capturingOut) {
+      System.setOut(instance.originalOut);
+    }
+    if (System.err == instance.capturingErr) {
+      System.setErr(instance.originalErr);
+    }
+    instance = null;
+  }
+
+  /**
+   * Get the current capture.
+   *
+   * @return the capture; <code>null</code> if not capturing
+   */
+  public static synchronized BuildLogCapture get() {
+    return instance;
+  }
+
+  /**
+   * Get the number of bytes kept.
+   *
+   * @return size of the buffer
+   */
+  public int getSize() {
+    return buffer.length;
+  }
+
+  /**
+   * Get the tail of the captured output. If the tail had to be cut the partial first line is left out.
+   *
+   * @param maxBytes maximum number of bytes of the tail
+   * @return the tail; <code>null</code> if nothing has been captured
+   */
+  public String getTail(final int maxBytes) {
+    final byte[] tail;
+    final boolean cut;
+    synchronized (this) {
+      final int length = (int) Math.min(Math.min(written, buffer.length), Math.max(0, maxBytes));
+      if (length == 0) {
+        return null;
+      }
+      cut = length < written;
+      tail = new byte[length];
+      final int end = (int) (written % buffer.length);
+      final int start = (end - length + buffer.length) % buffer.length;
+      if (start < end) {
+        System.arraycopy(buffer, start, tail, 0, length);
+      } else {
+        final int first = buffer.length - start;
+        System.arraycopy(buffer, start, tail, 0, first);
+        System.arraycopy(buffer, 0, tail, first, end);
+      }
+    }
+    int offset = 0;
+    if (cut) {
+      while (offset < tail.length && tail[offset] != '\n') {
+        offset++;
+      }
+      offset = Math.min(offset + 1, tail.length);
+    }
+    return offset == tail.length ? null : new String(tail, offset, tail.length - offset);
+  }
+
+  private synchronized void append(final int b) {
+    buffer[(int) (written % buffer.length)] = (byte) b;
+    written++;
+  }
+
+  private synchronized void append(final byte[] b, final int off, final int len) {
+    int offset = off;
+    int length = len;
+    if (length > buffer.length) {
+      offset += length - buffer.length;
+      written += length - buffer.length;
+      length = buffer.length;
+    }
+    final int position = (int) (written % buffer.length);
+    final int first = Math.min(length, buffer.length - position);
+    System.arraycopy(b, offset, buffer, position, first);
+    System.arraycopy(b, offset + first, buffer, 0, length - first);
+    written += length;
+  }
+
+  /**
+   * Writes to the original console stream and to the buffer.
+   */
+  private final class TeeOutputStream extends OutputStream {
+    private final PrintStream original;
+
+    private TeeOutputStream(final PrintStream original) {
+      this.original = original;
+    }
+
+    @Override
+    public void write(final int b) {
+      original.write(b);
+      append(b);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) {
+      original.write(b, off, len);
+      append(b, off, len);
+    }
+
+    @Override
+    public void flush() {
+      original.flush();
+    }
+  }
+}
@@ -0,0 +1,76 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+
+import static org.codehaus.plexus.util.StringUtils.isEmpty;
+
+/**
+ * How mails are written in dry run mode.
+ *
+ * @since 10/18/26 10:31 AM
+ */
+public enum DryRunFormat {
+  /**
+   * One RFC 822 file per mail.
+   */
+  EML("eml"),
+  /**
+   * A Maildir, each mail delivered to its <code>new</code> subdirectory.
+   */
+  MAILDIR("maildir"),
+  /**
+   * One mbox file (mboxrd) all mails are appended to.
+   */
+  MBOX("mbox");
+
+  /**
+   * The value to configure the format with.
+   */
+  private final String id;
+
+  /**
+   * Constructor.
+   *
+   * @param id the value to configure the format with
+   */
+  DryRunFormat(final String id) {
+    this.id = id;
+  }
+
+  /**
+   * Parses the given format. Argument will be trimmed.
+   *
+   * @param arg the format to parse; null and empty string will cause the default value to use.
+   * @param log where to log problems to
+   * @return the parsed format; guaranteed to be non-null
+   */
+  public static DryRunFormat parse(final String arg, final Log log) {
+    if (isEmpty(arg)) {
+      return EML;
+    }
+    final String trimmed = arg.trim();
+    for (final DryRunFormat format : values()) {
+      if (format.id.equalsIgnoreCase(trimmed) || format.name().equalsIgnoreCase(trimmed)) {
+        return format;
+      }
+    }
+    log.warn("Could not parse dry run format '" + arg + "'. Using default format.");
+    return EML;
+  }
+}
@@ -0,0 +1,144 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import java.net.InetAddress;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.codehaus.plexus.util.StringUtils.isEmpty;
+
+/**
+ * Name and address of the local host. The host is resolved on first use only, at most once per JVM and
+ * the build waits for the lookup at most {@link #LOOKUP_TIMEOUT} milliseconds. If the host name is
+ * configured explicitly no lookup is done at all.
+ *
+ * @since 10/17/26 11:07 PM
+ */
+public final class LocalHost {
+  /**
+   * Milliseconds to wait for the local host to be resolved.
+   */
+  public static final long LOOKUP_TIMEOUT = 2000L;
+
+  private static final LocalHost FALLBACK = new LocalHost("localhost", "127.0.0.1");
+  private static final Callable<InetAddress> DEFAULT_RESOLVER = new Callable<InetAddress>() {
+    @Override
+    public InetAddress call() throws Exception {
+      return InetAddress.getLocalHost();
+    }
+  };
+
+  private static Callable<InetAddress> resolver = DEFAULT_RESOLVER;
+  private static FutureTask<LocalHost> lookup;
+  private static boolean waited;
+
+  private final String name;
+  private final String address;
+
+  /**
+   * Constructor.
+   *
+   * @param name    the host name
+   * @param address the IP address; <code>null</code> if unknown
+   */
+  private LocalHost(final String name, final String address) {
+    this.name = name;
+    this.address = address;
+  }
+
+  /**
+   * Get the local host.
+   *
+   * @param hostname the explicitly configured host name; <code>null</code> or empty to resolve the local host
+   * @return the local host; never <code>null</code>
+   */
+  public static LocalHost get(final String hostname) {
+    if (!isEmpty(hostname)) {
+      return new LocalHost(hostname, null);
+    }
+    return resolve();
+  }
+
+  /**
+   * Replace the lookup of the local host and forget the result of previous lookups. For tests only.
+   *
+   * @param replacement resolves the local host; <code>null</code> to restore the default lookup
+   */
+  static synchronized void setResolver(final Callable<InetAddress> replacement) {
+    resolver = replacement == null ? DEFAULT_RESOLVER : replacement;
+    lookup = null;
+    waited = false;
+  }
+
+  private static synchronized LocalHost resolve() {
+    if (lookup == null) {
+      final Callable<InetAddress> current = resolver;
+      lookup = new FutureTask<LocalHost>(new Callable<LocalHost>() {
+        @Override
+        public LocalHost call() throws Exception {
+          final InetAddress localHost = current.call();
+          return new LocalHost(localHost.getHostName(), localHost.getHostAddress());
+        }
+      });
+      final Thread thread = new Thread(lookup, "maven-mail-plugin local host lookup");
+      thread.setDaemon(true);
+      thread.start();
+    }
+    if (waited && !lookup.isDone()) {
+      // Already waited once; don't delay each mail by the timeout.
+      return FALLBACK;
+    }
+    try {
+      waited = true;
+      return lookup.get(LOOKUP_TIMEOUT, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return FALLBACK;
+    } catch (ExecutionException e) {
+      return FALLBACK;
+    } catch (TimeoutException e) {
+      return FALLBACK;
+    }
+  }
+
+  /**
+   * The host name.
+   *
+   * @return host name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * The IP address.
+   *
+   * @return IP address; <code>null</code> if the host name got configured explicitly
+   */
+  public String getAddress() {
+    return address;
+  }
+
+  @Override
+  public String toString() {
+    return address == null ? name : name + " (" + address + ")";
+  }
+}
@@ -0,0 +1,146 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+
+import javax.mail.internet.AddressException;
+import javax.mail.internet.InternetAddress;
+import java.io.UnsupportedEncodingException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of parsed recipient addresses, shared by all executions of a build session. In a multi-module
+ * build the inherited developer list would otherwise be parsed again for each module. The cache is
+ * cleared when the session ends.
+ * <p>
+ * Cached addresses are shared and thus must not be modified.
+ * </p>
+ *
+ * @since 10/18/26 5:24 AM
+ */
+public final class MailAddresses {
+  private static final MailAddresses instance = new MailAddresses();
+
+  /**
+   * Entries kept at most; the cache is cleared once exceeded, for example if no session end is signalled.
+   */
+  private static final int MAX_ENTRIES = 10000;
+
+  private final ConcurrentMap<String, InternetAddress[]> cache = new ConcurrentHashMap<String, InternetAddress[]>();
+
+  /**
+   * Constructor.
+   */
+  private MailAddresses() {
+    // use the instance
+  }
+
+  /**
+   * Return the instance.
+   *
+   * @return instance
+   */
+  public static MailAddresses getInstance() {
+    return instance;
+  }
+
+  /**
+   * Parse a comma separated list of addresses.
+   *
+   * @param raw the addresses to parse
+   * @return the parsed addresses; the array is a copy but the addresses are shared
+   * @throws AddressException if parsing fails
+   */
+  public InternetAddress[] parse(final String raw) throws AddressException {
+    try {
+      return parse(raw, null, null);
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException("No name to encode.", e);
+    }
+  }
+
+  /**
+   * Parse a comma separated list of addresses and set the given name for all of them.
+   *
+   * @param raw         the addresses to parse
+   * @param personal    name to set for all addresses; <code>null</code> or empty to keep the parsed names
+   * @param mimeCharset charset to encode the name with
+   * @return the parsed addresses; the array is a copy but the addresses are shared
+   * @throws AddressException             if parsing fails
+   * @throws UnsupportedEncodingException if the name cannot be encoded in the given charset
+   */
+  public InternetAddress[] parse(final String raw, final String personal, final String mimeCharset)
+          throws AddressException, UnsupportedEncodingException {
+    final boolean withPersonal = personal != null && personal.length() > 0;
+    final String key = withPersonal ? raw + '\n' + personal + '\n' + mimeCharset : raw;
+    InternetAddress[] addresses = cache.get(key);
+    if (addresses == null) {
+      addresses = InternetAddress.parse(raw);
+      if (withPersonal) {
+        for (final InternetAddress address : addresses) {
+          address.setPersonal(personal, mimeCharset);
+        }
+      }
+      if (cache.size() >= MAX_ENTRIES) {
+        cache.clear();
+      }
+      cache.put(key, addresses);
+    }
+    return addresses.clone();
+  }
+
+  /**
+   * Forget all parsed addresses.
+   */
+  public void clear() {
+    cache.clear();
+  }
+
+  /**
+   * Remove duplicate addresses. Addresses are compared ignoring case and surrounding whitespace; the
+   * first occurrence and thus its name is kept.
+   *
+   * @param addresses the addresses
+   * @param log       where to report removed duplicates to
+   * @return the addresses without duplicates in their original order; the given array if there are none
+   */
+  public static InternetAddress[] unique(final InternetAddress[] addresses, final Log log) {
+    final Map<String, InternetAddress> unique = new LinkedHashMap<String, InternetAddress>(addresses.length * 2);
+    for (final InternetAddress address : addresses) {
+      final String normalized = normalize(address);
+      if (unique.containsKey(normalized)) {
+        log.debug("Skipping duplicate recipient " + address.toUnicodeString() + ".");
+      } else {
+        unique.put(normalized, address);
+      }
+    }
+    if (unique.size() == addresses.length) {
+      return addresses;
+    }
+    return unique.values().toArray(new InternetAddress[unique.size()]);
+  }
+
+  private static String normalize(final InternetAddress address) {
+    final String value = address.getAddress();
+    return value == null ? "" : value.trim().toLowerCase(Locale.ENGLISH);
+  }
+}
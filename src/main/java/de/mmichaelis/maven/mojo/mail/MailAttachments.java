@@ -0,0 +1,139 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.DirectoryScanner;
+
+import javax.activation.DataHandler;
+import javax.activation.FileDataSource;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeBodyPart;
+import javax.mail.internet.MimeMultipart;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Files to attach to a mail. The files are streamed into the message when it is sent, either one
+ * part per file or as one zip archive which is compressed on the fly. No file is loaded into memory
+ * or copied to disk beforehand.
+ *
+ * @since 10/18/26 1:24 AM
+ */
+public final class MailAttachments {
+  /**
+   * Default for the maximum total size of the attachments of one message: 10 MB.
+   */
+  public static final long DEFAULT_MAX_SIZE = 10L * 1024L * 1024L;
+  /**
+   * Name of the zip archive if attachments are compressed.
+   */
+  static final String ZIP_NAME = "attachments.zip";
+
+  private final File basedir;
+  private final List<String> paths;
+  private final boolean zip;
+
+  /**
+   * Constructor.
+   *
+   * @param basedir the directory the paths are relative to
+   * @param paths   the paths of the files to attach
+   * @param zip     whether to compress the files into one zip archive
+   */
+  public MailAttachments(final File basedir, final List<String> paths, final boolean zip) {
+    this.basedir = basedir;
+    this.paths = Collections.unmodifiableList(new ArrayList<String>(paths));
+    this.zip = zip;
+  }
+
+  /**
+   * Find the files to attach. Files which would exceed the maximum total size are left out.
+   * The size is measured uncompressed, as the compressed size is only known when sending.
+   *
+   * @param basedir  the directory to resolve the patterns against
+   * @param includes Ant-style patterns of the files to attach, such as
+   *                 <code>target/surefire-reports/*.txt</code>
+   * @param zip      whether to compress the files into one zip archive
+   * @param maxSize  maximum total size of the files in bytes
+   * @param log      where to report left out files to
+   * @return the attachments; empty if no file matches
+   */
+  public static MailAttachments scan(final File basedir, final List<String> includes, final boolean zip, final long maxSize, final Log log) {
+    final DirectoryScanner scanner = new DirectoryScanner();
+    scanner.setBasedir(basedir);
+    scanner.setIncludes(includes.toArray(new String[includes.size()]));
+    scanner.scan();
+    final String[] included = scanner.getIncludedFiles();
+    Arrays.sort(included);
+    final List<String> paths = new ArrayList<String>(included.length);
+    long size = 0L;
+    for (final String path : included) {
+      final long length = new File(basedir, path).length();
+      if (size + length > maxSize) {
+        log.warn("Not attaching " + path + " (" + length + " bytes) as the attachments would exceed the maximum size of " + maxSize + " bytes.");
+      } else {
+        size += length;
+        paths.add(path);
+      }
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Attaching " + paths.size() + " files with " + size + " bytes" + (zip ? " as " + ZIP_NAME : "") + ": " + paths);
+    }
+    return new MailAttachments(basedir, paths, zip);
+  }
+
+  /**
+   * Whether there are no files to attach.
+   *
+   * @return true if there are no files
+   */
+  public boolean isEmpty() {
+    return paths.isEmpty();
+  }
+
+  /**
+   * Add the attachments as parts to the given multipart. The encoding is set explicitly as otherwise
+   * JavaMail reads each file once more just to choose the encoding.
+   *
+   * @param multipart where to add the attachments to
+   * @throws MessagingException if adding the parts fails
+   */
+  void addTo(final MimeMultipart multipart) throws MessagingException {
+    if (zip) {
+      final ZipDataSource dataSource = new ZipDataSource(basedir, paths, ZIP_NAME);
+      addPart(multipart, new ZipDataSource.Handler(dataSource), ZIP_NAME);
+    } else {
+      for (final String path : paths) {
+        final File file = new File(basedir, path);
+        addPart(multipart, new DataHandler(new FileDataSource(file)), file.getName());
+      }
+    }
+  }
+
+  private static void addPart(final MimeMultipart multipart, final DataHandler dataHandler, final String fileName) throws MessagingException {
+    final MimeBodyPart part = new MimeBodyPart();
+    part.setDataHandler(dataHandler);
+    part.setFileName(fileName);
+    part.setDisposition(MimeBodyPart.ATTACHMENT);
+    part.setHeader("Content-Transfer-Encoding", "base64");
+    multipart.addBodyPart(part);
+  }
+}
@@ -20,15 +20,20 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
 
-import javax.mail.Message.RecipientType;
+import org.codehaus.plexus.util.FileUtils;
+
 import javax.mail.MessagingException;
 import javax.mail.Session;
-import javax.mail.Transport;
 import javax.mail.internet.AddressException;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
-import java.util.Date;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static javax.mail.internet.MimeUtility.fold;
 import static javax.mail.internet.MimeUtility.mimeCharset;
@@ -45,6 +50,9 @@ public final class MailBase {
 
   private InternetAddress[] recipients;
   private String plainText;
+  private File plainTextFile;
+  private MailAttachments attachments;
+  private String logTail;
 
   /**
    * Can be used to disable sending mails.
@@ -123,28 +131,187 @@ public final class MailBase {
    */
   private boolean dryRun;
 
+  /**
+   * Directory to write the mails of a dry run to.
+   */
+  private File dryRunDirectory;
+
+  /**
+   * How to write the mails of a dry run.
+   */
+  private String dryRunFormat;
+
+  /**
+   * Maximum number of connections kept open per relay.
+   */
+  private int maxConnections = MailTransportPool.DEFAULT_MAX_CONNECTIONS;
+
+  /**
+   * Time in seconds after which unused connections are closed.
+   */
+  private int connectionIdleTimeout = MailTransportPool.DEFAULT_IDLE_TIMEOUT;
+
+  /**
+   * If true the mail is queued and sent in background.
+   */
+  private boolean async;
+
+  /**
+   * Number of mails which might wait for being sent in background.
+   */
+  private int asyncQueueSize = AsyncMailSender.DEFAULT_QUEUE_SIZE;
+
+  /**
+   * What to do if the background queue is full.
+   */
+  private String asyncOverflowPolicy;
+
+  /**
+   * Directory where mails are spooled to if they cannot be sent right away.
+   */
+  private File outboxDirectory;
+
+  /**
+   * If true mails which cannot be sent are stored in the outbox instead of failing.
+   */
+  private boolean spoolOnFailure;
+
+  /**
+   * Additional JavaMail properties.
+   */
+  private Properties sessionProperties;
+
+  /**
+   * Maximum number of messages per minute to the relay. 0 for no limit.
+   */
+  private int rateLimit;
+
+  /**
+   * Number of messages which might be sent to the relay at once.
+   */
+  private int rateLimitBurst = 1;
+
+  /**
+   * Maximum seconds to wait for the rate limit before a message is stored in the outbox.
+   */
+  private int rateLimitMaxWait = MailRateLimiter.DEFAULT_MAX_WAIT;
+
+  /**
+   * Number of consecutive failures after which the relay is not contacted anymore for a while. 0 to
+   * contact it always.
+   */
+  private int circuitBreakerThreshold = MailCircuitBreaker.DEFAULT_THRESHOLD;
+
+  /**
+   * Seconds the relay is not contacted anymore after too many consecutive failures.
+   */
+  private int circuitBreakerOpenTime = MailCircuitBreaker.DEFAULT_OPEN_TIME;
+
+  /**
+   * If true the mail is collected and sent as part of a digest at the end of the session.
+   */
+  private boolean digest;
+
+  /**
+   * Minutes within which identical mails are suppressed. 0 to send all mails.
+   */
+  private int suppressWindow;
+
+  /**
+   * File to remember sent mails in for suppressing identical mails.
+   */
+  private File suppressFile;
+
+  /**
+   * Name of the local host. If unset the local host is looked up.
+   */
+  private String hostname;
+
+  /**
+   * The resolved local host.
+   */
+  private LocalHost localHost;
+
+  /**
+   * Maximum number of recipients per message. 0 to send one message to all recipients.
+   */
+  private int recipientBatchSize;
+
+  /**
+   * If true recipients are added as BCC so that they cannot see each other.
+   */
+  private boolean recipientsAsBcc;
+
+  /**
+   * Number of batches to send in parallel.
+   */
+  private int batchThreads = 1;
+
+  /**
+   * If true each recipient gets a message addressed to that recipient alone with a personal salutation.
+   */
+  private boolean personalized;
+
+  /**
+   * Name of the {@link MailTransport} to deliver the mails with.
+   */
+  private String transport;
+
+  /**
+   * Where to record durations and sizes of this execution to.
+   */
+  private MailMetrics metrics = MailMetrics.NONE;
+
   public MailBase(final Log log) {
     this.log = log;
   }
 
   /**
-   * Create the mail session.
+   * Get the mail session for the current configuration. Sessions are shared by all executions
+   * with the same configuration.
    *
    * @return session to send mails with
    */
   private Session getSession() {
     final Properties properties = new Properties();
+    if (sessionProperties != null) {
+      properties.putAll(sessionProperties);
+    }
     properties.setProperty("mail.smtp.host", smtphost);
     properties.setProperty("mail.smtp.port", smtpport.toString());
+    if (outboxDirectory != null) {
+      properties.setProperty(SpoolMailTransport.DIRECTORY_PROPERTY, outboxDirectory.getAbsolutePath());
+    }
+    // Name used for EHLO; prevents the transport from looking up the local host on its own
+    properties.setProperty("mail.smtp.localhost", getLocalHost().getName());
     // Influences the Message-ID
-    properties.setProperty("mail.from", from == null ? MailConstants.DEFAULT_FROM : from);
-    final Session session = Session.getDefaultInstance(properties);
-    session.setDebug(log.isDebugEnabled());
-    return session;
+    properties.setProperty("mail.from", isEmpty(from) ? getDefaultFrom() : from);
+    return MailSessions.getSession(properties, log.isDebugEnabled());
   }
 
   private String getSignature() {
-    return MailConstants.LF + MailConstants.LF + MailConstants.SIGNATURE_SEPARATOR + MailConstants.LF + fold(0, "Sent via maven-mail-plugin from " + MailConstants.USERNAME + " on " + MailConstants.HOSTNAME + " (" + MailConstants.HOSTIP + ")");
+    return MailConstants.LF + MailConstants.LF + MailConstants.SIGNATURE_SEPARATOR + MailConstants.LF + fold(0, "Sent via maven-mail-plugin from " + MailConstants.USERNAME + " on " + getLocalHost());
+  }
+
+  /**
+   * Get the local host. Resolved on first use only.
+   *
+   * @return local host
+   */
+  private LocalHost getLocalHost() {
+    if (localHost == null) {
+      localHost = LocalHost.get(hostname);
+    }
+    return localHost;
+  }
+
+  /**
+   * Sender address to use if no sender is configured.
+   *
+   * @return default sender address
+   */
+  private String getDefaultFrom() {
+    return MailConstants.USERNAME + "@" + getLocalHost().getName();
   }
 
   private void addHeaderInformation(final MimeMessage message) {
@@ -153,6 +320,74 @@ public final class MailBase {
     MailPriority.parse(priority, log).addHeader(message, log);
   }
 
+  /**
+   * Create the composer for the messages of this execution. Headers, subject and text are prepared
+   * once for all messages. A text file is not folded as it is streamed into the message when it is
+   * sent; long lines are broken by the quoted-printable encoding instead.
+   *
+   * @param session         the session to send the messages with
+   * @param sender          the sender of the messages
+   * @param completeSubject the subject including the topic
+   * @return the composer
+   * @throws MojoExecutionException if preparing the shared parts fails
+   * @throws MojoFailureException   if preparing the shared parts fails
+   */
+  private MessageComposer getComposer(final Session session, final InternetAddress sender, final String completeSubject)
+          throws MojoExecutionException, MojoFailureException {
+    final long start = System.nanoTime();
+    final MimeMessage template = new MimeMessage(session);
+    addHeaderInformation(template);
+    final String text = plainTextFile == null ? fold(0, getPlainText()) : null;
+    try {
+      template.setSubject(completeSubject, getMimeCharSet());
+      return new MessageComposer(session, template, sender, text, plainTextFile, getSignature(), getMimeCharSet(),
+              recipientsAsBcc, personalized, attachments, logTail);
+    } catch (MessagingException e) {
+      throw new MojoExecutionException("Failed to compose email message.", e);
+    } finally {
+      metrics.record(MailMetrics.Phase.COMPOSE, start);
+    }
+  }
+
+  /**
+   * Compose the message for the given recipients.
+   *
+   * @param composer   the composer to use
+   * @param recipients the recipients of the message
+   * @return the message
+   * @throws MojoExecutionException if composing the message fails
+   */
+  private MimeMessage compose(final MessageComposer composer, final InternetAddress[] recipients) throws MojoExecutionException {
+    final long start = System.nanoTime();
+    try {
+      return composer.compose(recipients);
+    } catch (MessagingException e) {
+      throw new MojoExecutionException("Failed to compose email message.", e);
+    } finally {
+      metrics.record(MailMetrics.Phase.COMPOSE, start);
+    }
+  }
+
+  /**
+   * Store a mail which could not be sent in the outbox.
+   *
+   * @param message the mail
+   * @param cause   why sending failed
+   * @throws MojoExecutionException if storing the mail fails as well
+   */
+  private void spool(final MimeMessage message, final MessagingException cause) throws MojoExecutionException {
+    try {
+      final File file = new MailOutbox(outboxDirectory).store(message);
+      metrics.recordSpooled();
+      log.warn("Failed to send mail: " + cause.getMessage() + " Stored it in " + file.getAbsolutePath()
+              + " to be sent by the next flush.");
+    } catch (MessagingException e) {
+      log.error("Failed to store mail in outbox.", e);
+      metrics.recordFailure();
+      throw new MojoExecutionException("Failed to send mail.", cause);
+    }
+  }
+
   /**
    * Execute the Mojo.
    *
@@ -168,7 +403,7 @@ public final class MailBase {
       return;
     }
     try {
-      final InternetAddress[] addresses = getRecipients();
+      final InternetAddress[] addresses = MailAddresses.unique(getRecipients(), log);
 
       if (addresses.length == 0) {
         log.debug("No recipients. Skipping to send mail.");
@@ -176,32 +411,80 @@ public final class MailBase {
       }
 
       final InternetAddress sender = getSender();
-      final String text = fold(0, getPlainText());
-      final String signedText = text + getSignature();
       final String subject = getSubject();
       final String topic = getTopic();
-      final String completeSubject = topic == null ? subject : "[" + topic + "] " + subject;
+      String completeSubject = topic == null ? subject : "[" + topic + "] " + subject;
 
-      final Session session = getSession();
-      final MimeMessage message = new MimeMessage(session);
-      addHeaderInformation(message);
-      try {
-        message.setSentDate(new Date());
-        message.addRecipients(RecipientType.TO, getRecipients());
-        message.setSender(sender);
-        message.setSubject(completeSubject, getMimeCharSet());
-        message.setText(signedText, getMimeCharSet(), "plain");
-      } catch (MessagingException e) {
-        throw new MojoExecutionException("Failed to compose email message.", e);
+      if (digest) {
+        log.info("Collecting mail for digest to recipients: " + InternetAddress.toString(addresses));
+        MailDigest.getInstance().add(this, addresses, subject, fold(0, getPlainText()));
+        return;
       }
+
+      final String suppressionHash = suppressWindow > 0 && !dryRun ? getSuppressionHash(addresses, completeSubject) : null;
+      if (suppressionHash != null) {
+        final MailSuppression suppression = MailSuppression.get(suppressFile);
+        if (suppression.suppress(suppressionHash, getSuppressWindowMillis(), log)) {
+          log.info("Suppressing mail identical to one sent within the last " + suppressWindow + " minutes to recipients: "
+                  + InternetAddress.toString(addresses));
+          return;
+        }
+        final int repeated = suppression.getRepeated(suppressionHash, log);
+        if (repeated > 0) {
+          completeSubject = completeSubject + " (repeated " + repeated + (repeated == 1 ? " time)" : " times)");
+        }
+      }
+
+      final Session session = getSession();
+      final MessageComposer composer = getComposer(session, sender, completeSubject);
+      final List<InternetAddress[]> batches = MessageComposer.getBatches(addresses, personalized ? 1 : recipientBatchSize);
       if (dryRun) {
-        log.info("maven-mail-plugin dryRun for " + this.getClass().getName() + ". Mail:\n" + message);
-      } else {
+        final MailDryRun dryRunWriter = new MailDryRun(dryRunDirectory, DryRunFormat.parse(dryRunFormat, log), getLocalHost().getName());
         try {
-          log.info("Sending mail to recipients: " + InternetAddress.toString(addresses));
-          Transport.send(message);
-        } catch (MessagingException e) {
-          throw new MojoExecutionException("Failed to send mail.", e);
+          for (final InternetAddress[] batch : batches) {
+            try {
+              final File file = dryRunWriter.write(compose(composer, batch));
+              log.info("maven-mail-plugin dryRun: wrote mail to recipients " + InternetAddress.toString(batch) + " to " + file.getAbsolutePath());
+            } catch (MessagingException e) {
+              throw new MojoExecutionException("Failed to write mail of dry run.", e);
+            }
+          }
+        } finally {
+          metrics.report(log);
+        }
+      } else {
+        final MailTransportPool pool = MailTransportPool.getInstance();
+        pool.setMaxConnections(maxConnections);
+        pool.setIdleTimeout(connectionIdleTimeout);
+        MailRateLimiter.getInstance().configure(MailRateLimiter.getRelay(smtphost, smtpport), rateLimit, rateLimitBurst, rateLimitMaxWait);
+        MailCircuitBreaker.getInstance().configure(MailRateLimiter.getRelay(smtphost, smtpport), circuitBreakerThreshold, circuitBreakerOpenTime);
+        if (async) {
+          final MailTransport mailTransport = getTransport();
+          final Runnable onSent = getMarkSentTask(suppressionHash);
+          final Runnable onDone = getReportTask(batches.size());
+          int submitted = 0;
+          try {
+            log.info("Queueing mail to recipients: " + InternetAddress.toString(addresses));
+            for (final InternetAddress[] batch : batches) {
+              AsyncMailSender.getInstance().submit(session, compose(composer, batch), mailTransport, asyncQueueSize,
+                      OverflowPolicy.parse(asyncOverflowPolicy, log), outboxDirectory, spoolOnFailure, metrics, log, onSent, onDone);
+              submitted++;
+            }
+          } catch (MessagingException e) {
+            metrics.recordFailure();
+            // count the messages which will not be sent as done
+            for (int i = submitted; i < batches.size(); i++) {
+              onDone.run();
+            }
+            throw new MojoExecutionException("Failed to queue mail.", e);
+          }
+        } else {
+          try {
+            send(session, composer, addresses, batches);
+            markSent(suppressionHash);
+          } finally {
+            metrics.report(log);
+          }
         }
       }
     } catch (MojoExecutionException e) {
@@ -217,6 +500,123 @@ public final class MailBase {
     }
   }
 
+  /**
+   * Hash identifying the mail for suppressing identical mails.
+   *
+   * @param addresses       all recipients
+   * @param completeSubject the subject including the topic
+   * @return the hash
+   * @throws MojoExecutionException if reading the text file fails
+   * @throws MojoFailureException   if getting the text fails
+   */
+  private String getSuppressionHash(final InternetAddress[] addresses, final String completeSubject)
+          throws MojoExecutionException, MojoFailureException {
+    try {
+      return MailSuppression.hash(addresses, completeSubject, plainTextFile == null ? getPlainText() : null, plainTextFile);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Failed to read text file " + plainTextFile + ".", e);
+    }
+  }
+
+  private long getSuppressWindowMillis() {
+    return suppressWindow * 60L * 1000L;
+  }
+
+  /**
+   * Remember that the mail was sent to suppress identical mails within the window.
+   *
+   * @param suppressionHash the hash of the mail; <code>null</code> if suppression is disabled
+   */
+  private void markSent(final String suppressionHash) {
+    if (suppressionHash != null) {
+      MailSuppression.get(suppressFile).sent(suppressionHash, getSuppressWindowMillis(), log);
+    }
+  }
+
+  /**
+   * Remember the mail as sent once the first of its queued messages is sent or spooled. A mail which
+   * is dropped or fails is not suppressed.
+   *
+   * @param suppressionHash the hash of the mail; <code>null</code> if suppression is disabled
+   * @return the task to run by the background sender; <code>null</code> if suppression is disabled
+   */
+  /**
+   * Task reporting the metrics once all messages sent in background are done.
+   *
+   * @param messages number of messages sent in background
+   * @return the task to run once per message
+   */
+  private Runnable getReportTask(final int messages) {
+    final AtomicInteger pending = new AtomicInteger(messages);
+    return new Runnable() {
+      @Override
+      public void run() {
+        if (pending.decrementAndGet() == 0) {
+          metrics.report(log);
+        }
+      }
+    };
+  }
+
+  private Runnable getMarkSentTask(final String suppressionHash) {
+    if (suppressionHash == null) {
+      return null;
+    }
+    final AtomicBoolean marked = new AtomicBoolean();
+    return new Runnable() {
+      @Override
+      public void run() {
+        if (marked.compareAndSet(false, true)) {
+          markSent(suppressionHash);
+        }
+      }
+    };
+  }
+
+  /**
+   * Send the messages right away, either in parallel batches or as a single message.
+   *
+   * @param session   the session to send the messages with
+   * @param composer  composes the message for a batch
+   * @param addresses all recipients
+   * @param batches   the batches of recipients
+   * @throws MojoExecutionException if sending fails and the messages cannot be stored in the outbox
+   */
+  private void send(final Session session, final MessageComposer composer, final InternetAddress[] addresses,
+                    final List<InternetAddress[]> batches) throws MojoExecutionException {
+    final MailTransport mailTransport = getTransport();
+    if (batches.size() > 1) {
+      log.info("Sending " + batches.size() + " messages to recipients: " + InternetAddress.toString(addresses));
+      new BatchSender(batchThreads, mailTransport, new MailOutbox(outboxDirectory), spoolOnFailure, metrics, log)
+              .send(session, composer, batches);
+      return;
+    }
+    final MimeMessage message = compose(composer, batches.get(0));
+    log.info("Sending mail to recipients: " + InternetAddress.toString(addresses));
+    final MessagingException failure = mailTransport.send(session, Collections.singletonList(message), log, metrics)[0];
+    if (failure != null) {
+      if (!(spoolOnFailure || failure instanceof RateLimitExceededException)) {
+        metrics.recordFailure();
+        throw new MojoExecutionException("Failed to send mail.", failure);
+      }
+      spool(message, failure);
+    }
+  }
+
+  /**
+   * Get the configured transport.
+   *
+   * @return transport
+   * @throws MojoExecutionException if the transport is not available
+   */
+  private MailTransport getTransport() throws MojoExecutionException {
+    try {
+      return MailTransports.get(transport);
+    } catch (IllegalArgumentException e) {
+      throw new MojoExecutionException(e.getMessage(), e);
+    }
+  }
+
   /**
    * Get the sender for the given email. Multiple configured senders are ignored.
    * If no sender is configured or parsing the sender-string fails a default sender
@@ -249,12 +649,13 @@ public final class MailBase {
    * @return the list of default senders (should be actually only one)
    * @throws MojoExecutionException if parsing the default mail address fails
    */
-  private static InternetAddress[] getDefaultSenders() throws MojoExecutionException {
+  private InternetAddress[] getDefaultSenders() throws MojoExecutionException {
     final InternetAddress[] senders;
+    final String defaultFrom = getDefaultFrom();
     try {
-      senders = InternetAddress.parse(MailConstants.DEFAULT_FROM);
+      senders = InternetAddress.parse(defaultFrom);
     } catch (AddressException e) {
-      throw new MojoExecutionException("Could not parse default sender mail address " + MailConstants.DEFAULT_FROM + ".", e);
+      throw new MojoExecutionException("Could not parse default sender mail address " + defaultFrom + ".", e);
     }
     return senders;
   }
@@ -321,6 +722,13 @@ public final class MailBase {
    *                                Throwing this exception causes a "BUILD FAILURE" message to be displayed.
    */
   private String getPlainText() throws MojoExecutionException, MojoFailureException {
+    if (plainText == null && plainTextFile != null) {
+      try {
+        return FileUtils.fileRead(plainTextFile);
+      } catch (IOException e) {
+        throw new MojoExecutionException("Failed to read file " + plainTextFile.getAbsolutePath(), e);
+      }
+    }
     return plainText;
   }
 
@@ -332,6 +740,33 @@ public final class MailBase {
     this.plainText = plainText;
   }
 
+  /**
+   * Set a file to stream the plain text from. Takes precedence over the plain text.
+   *
+   * @param plainTextFile file containing the text encoded in the configured charset
+   */
+  public void setPlainTextFile(final File plainTextFile) {
+    this.plainTextFile = plainTextFile;
+  }
+
+  /**
+   * Set the files to attach to the mail.
+   *
+   * @param attachments the attachments; <code>null</code> for none
+   */
+  public void setAttachments(final MailAttachments attachments) {
+    this.attachments = attachments;
+  }
+
+  /**
+   * Set the tail of the build log to attach to the mail.
+   *
+   * @param logTail the tail; <code>null</code> to attach none
+   */
+  public void setLogTail(final String logTail) {
+    this.logTail = logTail;
+  }
+
   public void setSkip(final boolean skip) {
     this.skip = skip;
   }
@@ -375,4 +810,116 @@ public final class MailBase {
   public void setDryRun(final boolean dryRun) {
     this.dryRun = dryRun;
   }
+
+  public void setDryRunDirectory(final File dryRunDirectory) {
+    this.dryRunDirectory = dryRunDirectory;
+  }
+
+  public void setDryRunFormat(final String dryRunFormat) {
+    this.dryRunFormat = dryRunFormat;
+  }
+
+  public void setMaxConnections(final int maxConnections) {
+    this.maxConnections = maxConnections;
+  }
+
+  public void setConnectionIdleTimeout(final int connectionIdleTimeout) {
+    this.connectionIdleTimeout = connectionIdleTimeout;
+  }
+
+  public void setAsync(final boolean async) {
+    this.async = async;
+  }
+
+  public void setAsyncQueueSize(final int asyncQueueSize) {
+    this.asyncQueueSize = asyncQueueSize;
+  }
+
+  public void setAsyncOverflowPolicy(final String asyncOverflowPolicy) {
+    this.asyncOverflowPolicy = asyncOverflowPolicy;
+  }
+
+  public void setOutboxDirectory(final File outboxDirectory) {
+    this.outboxDirectory = outboxDirectory;
+  }
+
+  public void setSpoolOnFailure(final boolean spoolOnFailure) {
+    this.spoolOnFailure = spoolOnFailure;
+  }
+
+  public void setSessionProperties(final Properties sessionProperties) {
+    this.sessionProperties = sessionProperties;
+  }
+
+  public void setRateLimit(final int rateLimit) {
+    this.rateLimit = rateLimit;
+  }
+
+  public void setRateLimitBurst(final int rateLimitBurst) {
+    this.rateLimitBurst = rateLimitBurst;
+  }
+
+  public void setRateLimitMaxWait(final int rateLimitMaxWait) {
+    this.rateLimitMaxWait = rateLimitMaxWait;
+  }
+
+  public void setCircuitBreakerThreshold(final int circuitBreakerThreshold) {
+    this.circuitBreakerThreshold = circuitBreakerThreshold;
+  }
+
+  public void setCircuitBreakerOpenTime(final int circuitBreakerOpenTime) {
+    this.circuitBreakerOpenTime = circuitBreakerOpenTime;
+  }
+
+  public void setDigest(final boolean digest) {
+    this.digest = digest;
+  }
+
+  public void setSuppressWindow(final int suppressWindow) {
+    this.suppressWindow = suppressWindow;
+  }
+
+  public void setSuppressFile(final File suppressFile) {
+    this.suppressFile = suppressFile;
+  }
+
+  public void setHostname(final String hostname) {
+    this.hostname = hostname;
+  }
+
+  public void setRecipientBatchSize(final int recipientBatchSize) {
+    this.recipientBatchSize = recipientBatchSize;
+  }
+
+  public void setRecipientsAsBcc(final boolean recipientsAsBcc) {
+    this.recipientsAsBcc = recipientsAsBcc;
+  }
+
+  public void setBatchThreads(final int batchThreads) {
+    this.batchThreads = batchThreads;
+  }
+
+  public void setPersonalized(final boolean personalized) {
+    this.personalized = personalized;
+  }
+
+  public void setTransport(final String transport) {
+    this.transport = transport;
+  }
+
+  /**
+   * Set where to record durations and sizes of this execution to.
+   *
+   * @param metrics the metrics; {@link MailMetrics#NONE} to record nothing
+   */
+  public void setMetrics(final MailMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Start recording anew, for sending a mail which was collected earlier.
+   */
+  void restartMetrics() {
+    metrics = metrics.restart();
+  }
 }
@@ -0,0 +1,220 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JVM wide circuit breakers per SMTP relay. After the configured number of consecutive failures to
+ * reach a relay the breaker opens and further messages fail fast with a {@link RelayUnavailableException}
+ * instead of waiting for the connection to time out again, so that the message can be stored in the outbox.
+ * Once the open time passed a single message is let through as probe: if it succeeds the breaker closes,
+ * otherwise it opens again.
+ * <p>
+ * Rejected recipients do not count as failure as the relay was reachable. The breakers are shared by all
+ * executions of the reactor; the last execution which sets a threshold for a relay wins, executions
+ * without a threshold keep it.
+ * </p>
+ *
+ * @since 10/18/26 12:02 PM
+ */
+public final class MailCircuitBreaker {
+  private static final MailCircuitBreaker instance = new MailCircuitBreaker();
+
+  /**
+   * Default number of consecutive failures which open the breaker.
+   */
+  public static final int DEFAULT_THRESHOLD = 3;
+  /**
+   * Default time in seconds the breaker stays open before a probe is let through.
+   */
+  public static final int DEFAULT_OPEN_TIME = 60;
+
+  private final Map<String, Breaker> breakers = new HashMap<String, Breaker>();
+
+  /**
+   * Constructor.
+   */
+  private MailCircuitBreaker() {
+    // use the instance
+  }
+
+  /**
+   * Return the instance.
+   *
+   * @return instance
+   */
+  public static MailCircuitBreaker getInstance() {
+    return instance;
+  }
+
+  /**
+   * Configure the breaker of a relay.
+   *
+   * @param relay     the relay as returned by {@link MailRateLimiter#getRelay(String, Object)}
+   * @param threshold number of consecutive failures which open the breaker; 0 or less to keep the current breaker, if any
+   * @param openTime  seconds the breaker stays open before a probe is let through
+   */
+  public synchronized void configure(final String relay, final int threshold, final int openTime) {
+    if (threshold <= 0) {
+      return;
+    }
+    final Breaker breaker = breakers.get(relay);
+    if (breaker == null) {
+      breakers.put(relay, new Breaker(relay, threshold, openTime));
+    } else {
+      breaker.configure(threshold, openTime);
+    }
+  }
+
+  /**
+   * Remove the breaker of a relay.
+   *
+   * @param relay the relay as returned by {@link MailRateLimiter#getRelay(String, Object)}
+   */
+  synchronized void remove(final String relay) {
+    breakers.remove(relay);
+  }
+
+  /**
+   * Check if a message might be sent to the relay of the given session.
+   *
+   * @param session the session to send the message with
+   * @param log     where to report the state of the breaker to
+   * @throws RelayUnavailableException if the breaker is open
+   */
+  public void acquire(final Session session, final Log log) throws RelayUnavailableException {
+    final Breaker breaker = getBreaker(session);
+    if (breaker != null) {
+      breaker.acquire(System.currentTimeMillis(), log);
+    }
+  }
+
+  /**
+   * Record that a message which was allowed by {@link #acquire(Session, Log)} was not sent after all, without
+   * contacting the relay. If it was the probe of an open breaker, the next message is let through as probe.
+   *
+   * @param session the session the message was not sent with
+   */
+  public void release(final Session session) {
+    final Breaker breaker = getBreaker(session);
+    if (breaker != null) {
+      breaker.release();
+    }
+  }
+
+  /**
+   * Record that a message was sent to the relay of the given session.
+   *
+   * @param session the session the message was sent with
+   * @param log     where to report the state of the breaker to
+   */
+  public void success(final Session session, final Log log) {
+    final Breaker breaker = getBreaker(session);
+    if (breaker != null) {
+      breaker.success(log);
+    }
+  }
+
+  /**
+   * Record that sending a message to the relay of the given session failed.
+   *
+   * @param session the session the message was sent with
+   * @param cause   why sending failed
+   * @param log     where to report the state of the breaker to
+   */
+  public void failure(final Session session, final Exception cause, final Log log) {
+    if (cause instanceof SendFailedException) {
+      // the relay is reachable but rejected recipients
+      success(session, log);
+      return;
+    }
+    final Breaker breaker = getBreaker(session);
+    if (breaker != null) {
+      breaker.failure(System.currentTimeMillis(), cause, log);
+    }
+  }
+
+  private synchronized Breaker getBreaker(final Session session) {
+    return breakers.get(MailRateLimiter.getRelay(session.getProperty("mail.smtp.host"), session.getProperty("mail.smtp.port")));
+  }
+
+  /**
+   * Breaker of one relay.
+   */
+  private static final class Breaker {
+    private final String relay;
+    private int threshold;
+    private long openMillis;
+    private int failures;
+    private long openedAt;
+    private boolean open;
+    private boolean probing;
+
+    private Breaker(final String relay, final int threshold, final int openTime) {
+      this.relay = relay;
+      configure(threshold, openTime);
+    }
+
+    private synchronized void configure(final int threshold, final int openTime) {
+      this.threshold = threshold;
+      this.openMillis = Math.max(0, openTime) * 1000L;
+    }
+
+    private synchronized void acquire(final long now, final Log log) throws RelayUnavailableException {
+      if (!open) {
+        return;
+      }
+      if (!probing && now - openedAt >= openMillis) {
+        probing = true;
+        log.info("Relay " + relay + " was unavailable. Trying again.");
+        return;
+      }
+      throw new RelayUnavailableException("Relay " + relay + " unavailable after " + failures
+              + " consecutive failures. Not trying again before " + Math.max(0L, openedAt + openMillis - now) / 1000L + " s.");
+    }
+
+    private synchronized void release() {
+      probing = false;
+    }
+
+    private synchronized void success(final Log log) {
+      if (open) {
+        log.info("Relay " + relay + " is available again.");
+      }
+      failures = 0;
+      open = false;
+      probing = false;
+    }
+
+    private synchronized void failure(final long now, final Exception cause, final Log log) {
+      failures++;
+      if (probing || (!open && failures >= threshold)) {
+        log.warn("Relay " + relay + " failed " + failures + " times in a row (" + cause.getMessage()
+                + "). Failing fast for " + openMillis / 1000L + " s.");
+        open = true;
+        probing = false;
+        openedAt = now;
+      }
+    }
+  }
+}
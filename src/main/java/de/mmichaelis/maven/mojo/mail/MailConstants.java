@@ -16,35 +16,12 @@
 
 package de.mmichaelis.maven.mojo.mail;
 
-import java.net.InetAddress;
-import java.net.UnknownHostException;
-
 /**
  * @since 6/7/11 10:21 PM
+ * @see LocalHost
  */
 public class MailConstants {
   public static final String LF = "\r\n";
-  public static final String HOSTNAME;
-  public static final String HOSTIP;
-  public static final String DEFAULT_FROM;
   public static final String USERNAME = System.getProperty("user.name");
   public static final String SIGNATURE_SEPARATOR = "-- ";
-
-  static {
-    String hostname;
-    String hostip;
-    try {
-      final InetAddress addr = InetAddress.getLocalHost();
-      hostip = addr.getHostAddress();
-      hostname = addr.getHostName();
-    } catch (UnknownHostException e) {
-      hostname = "localhost";
-      hostip = "127.0.0.1";
-    }
-    HOSTNAME = hostname;
-    HOSTIP = hostip;
-
-    DEFAULT_FROM = USERNAME + "@" + HOSTNAME;
-  }
-
 }
@@ -0,0 +1,161 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+
+import javax.mail.internet.InternetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Collects mails of a build session and sends one aggregated mail per set of recipients when
+ * the session ends. The first collected mail of a group determines how the digest is sent
+ * (relay, sender, charset, etc.).
+ *
+ * @since 10/17/26 10:03 PM
+ */
+public final class MailDigest {
+  private static final MailDigest instance = new MailDigest();
+
+  private final Map<String, Group> groups = new LinkedHashMap<String, Group>();
+
+  /**
+   * Constructor.
+   */
+  private MailDigest() {
+    // use the instance
+  }
+
+  /**
+   * Return the instance.
+   *
+   * @return instance
+   */
+  public static MailDigest getInstance() {
+    return instance;
+  }
+
+  /**
+   * Collect a mail for the digest.
+   *
+   * @param base       the configuration the mail was composed with
+   * @param recipients the recipients of the mail
+   * @param subject    the subject without topic
+   * @param text       the text of the mail
+   */
+  synchronized void add(final MailBase base, final InternetAddress[] recipients, final String subject, final String text) {
+    final String key = getKey(recipients);
+    Group group = groups.get(key);
+    if (group == null) {
+      group = new Group(base, recipients);
+      groups.put(key, group);
+    }
+    group.subjects.add(subject);
+    group.texts.add(text);
+  }
+
+  /**
+   * Send one mail for each group of recipients collected so far.
+   *
+   * @param log where to report problems to
+   */
+  public void flush(final Log log) {
+    final List<Group> toSend;
+    synchronized (this) {
+      toSend = new ArrayList<Group>(groups.values());
+      groups.clear();
+    }
+    for (final Group group : toSend) {
+      final MailBase base = group.base;
+      // the session is about to end, thus there is no point in sending in background
+      base.setAsync(false);
+      base.setDigest(false);
+      base.setRecipients(group.recipients);
+      base.setSubject(group.getSubject());
+      base.setPlainText(group.getText());
+      // already part of the collected text or specific to one of the collected mails
+      base.setPlainTextFile(null);
+      base.setAttachments(null);
+      base.setLogTail(null);
+      // measure sending the digest only, not the time since the first mail was collected
+      base.restartMetrics();
+      try {
+        base.execute();
+      } catch (MojoExecutionException e) {
+        log.error("Failed to send digest mail to " + InternetAddress.toString(group.recipients) + ".", e);
+      } catch (MojoFailureException e) {
+        log.error("Failed to send digest mail to " + InternetAddress.toString(group.recipients) + ".", e);
+      }
+    }
+  }
+
+  /**
+   * Key for the set of recipients which ignores order and case.
+   *
+   * @param recipients recipients to get the key for
+   * @return key
+   */
+  private static String getKey(final InternetAddress[] recipients) {
+    final String[] addresses = new String[recipients.length];
+    for (int i = 0; i < recipients.length; i++) {
+      addresses[i] = recipients[i].getAddress().toLowerCase(Locale.ENGLISH);
+    }
+    Arrays.sort(addresses);
+    return Arrays.toString(addresses);
+  }
+
+  /**
+   * Mails collected for one set of recipients.
+   */
+  private static final class Group {
+    private final MailBase base;
+    private final InternetAddress[] recipients;
+    private final List<String> subjects = new ArrayList<String>();
+    private final List<String> texts = new ArrayList<String>();
+
+    private Group(final MailBase base, final InternetAddress[] recipients) {
+      this.base = base;
+      this.recipients = recipients;
+    }
+
+    private String getSubject() {
+      if (subjects.size() == 1) {
+        return subjects.get(0);
+      }
+      return "Digest of " + subjects.size() + " notifications";
+    }
+
+    private String getText() {
+      if (texts.size() == 1) {
+        return texts.get(0);
+      }
+      final StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < texts.size(); i++) {
+        builder.append("=== ").append(subjects.get(i)).append(" ===").append(MailConstants.LF);
+        builder.append(texts.get(i)).append(MailConstants.LF).append(MailConstants.LF);
+      }
+      return builder.toString();
+    }
+  }
+}
@@ -0,0 +1,274 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes the encoded mails of a dry run to disk instead of sending them, so that the real output
+ * can be inspected. Mails are streamed through a buffer without building them in memory.
+ *
+ * @since 10/18/26 10:36 AM
+ * @see DryRunFormat
+ */
+final class MailDryRun {
+  /**
+   * Name of the mbox file within the directory.
+   */
+  static final String MBOX_NAME = "dry-run.mbox";
+
+  private static final AtomicInteger COUNTER = new AtomicInteger();
+  private static final Object MBOX_LOCK = new Object();
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final File directory;
+  private final DryRunFormat format;
+  private final String hostname;
+
+  /**
+   * Constructor.
+   *
+   * @param directory the directory to write the mails to
+   * @param format    how to write the mails
+   * @param hostname  name of the local host; part of the file names in a Maildir
+   */
+  MailDryRun(final File directory, final DryRunFormat format, final String hostname) {
+    this.directory = directory;
+    this.format = format;
+    this.hostname = hostname;
+  }
+
+  /**
+   * Write the given message.
+   *
+   * @param message the message to write
+   * @return the file the message got written to
+   * @throws MessagingException if writing the message fails
+   */
+  File write(final MimeMessage message) throws MessagingException {
+    if (directory == null) {
+      throw new MessagingException("No dry run directory configured.");
+    }
+    message.saveChanges();
+    try {
+      switch (format) {
+        case MAILDIR:
+          return writeMaildir(message);
+        case MBOX:
+          return writeMbox(message);
+        default:
+          final File file = new File(mkdirs(directory), getUniqueName() + ".eml");
+          writeTo(message, new FileOutputStream(file));
+          return file;
+      }
+    } catch (IOException e) {
+      throw new MessagingException("Failed to write mail to " + directory.getAbsolutePath() + ".", e);
+    }
+  }
+
+  /**
+   * Deliver the message like a mail delivery agent: written to <code>tmp</code> and then moved
+   * to <code>new</code>.
+   */
+  private File writeMaildir(final MimeMessage message) throws IOException, MessagingException {
+    final File tmp = mkdirs(new File(directory, "tmp"));
+    final File delivered = mkdirs(new File(directory, "new"));
+    mkdirs(new File(directory, "cur"));
+    final String name = getUniqueName() + "." + hostname;
+    final File temp = new File(tmp, name);
+    writeTo(message, new FileOutputStream(temp));
+    final File file = new File(delivered, name);
+    if (!temp.renameTo(file)) {
+      throw new IOException("Failed to move " + temp.getAbsolutePath() + " to " + delivered.getAbsolutePath() + ".");
+    }
+    return file;
+  }
+
+  /**
+   * Append the message to the mbox file in mboxrd format: lines are separated by LF and lines
+   * starting with any number of <code>&gt;</code> followed by <code>From </code> are quoted by another
+   * <code>&gt;</code>.
+   */
+  private File writeMbox(final MimeMessage message) throws IOException, MessagingException {
+    final File file = new File(mkdirs(directory), MBOX_NAME);
+    synchronized (MBOX_LOCK) {
+      final OutputStream out = new BufferedOutputStream(new FileOutputStream(file, true), BUFFER_SIZE);
+      try {
+        out.write(getFromLine(message).getBytes("US-ASCII"));
+        final MboxOutputStream mbox = new MboxOutputStream(out);
+        message.writeTo(mbox);
+        mbox.finish();
+      } finally {
+        out.close();
+      }
+    }
+    return file;
+  }
+
+  private static void writeTo(final MimeMessage message, final OutputStream target) throws IOException, MessagingException {
+    final OutputStream out = new BufferedOutputStream(target, BUFFER_SIZE);
+    try {
+      message.writeTo(out);
+    } finally {
+      out.close();
+    }
+  }
+
+  private static String getFromLine(final MimeMessage message) throws MessagingException {
+    final Address[] from = message.getFrom();
+    final String sender = from != null && from.length > 0 && from[0] instanceof InternetAddress
+            ? ((InternetAddress) from[0]).getAddress() : "MAILER-DAEMON";
+    final Date date = message.getSentDate() == null ? new Date() : message.getSentDate();
+    return "From " + sender + " " + new SimpleDateFormat("EEE MMM dd HH:mm:ss yyyy", Locale.ENGLISH).format(date) + "\n";
+  }
+
+  private static String getUniqueName() {
+    return System.currentTimeMillis() + "." + COUNTER.incrementAndGet();
+  }
+
+  private static File mkdirs(final File dir) throws IOException {
+    if (!(dir.isDirectory() || dir.mkdirs())) {
+      throw new IOException("Directory " + dir.getAbsolutePath() + " not available.");
+    }
+    return dir;
+  }
+
+  /**
+   * Converts CRLF to LF and quotes <code>From </code> lines as required by mboxrd.
+   */
+  private static final class MboxOutputStream extends FilterOutputStream {
+    private static final byte[] FROM = {'F', 'r', 'o', 'm', ' '};
+
+    /**
+     * Start of the current line up to the first byte which is neither <code>&gt;</code> nor part of
+     * <code>From </code>; held back until it is known whether the line needs to be quoted.
+     */
+    private final byte[] pending = new byte[256];
+    private int pendingLength;
+    private boolean lineStart = true;
+    private boolean carriageReturn;
+    private boolean lastWasLf = true;
+
+    private MboxOutputStream(final OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      if (carriageReturn) {
+        carriageReturn = false;
+        if (b == '\n') {
+          newLine();
+          return;
+        }
+        writeByte('\r');
+      }
+      if (b == '\r') {
+        carriageReturn = true;
+      } else if (b == '\n') {
+        newLine();
+      } else {
+        writeByte(b);
+      }
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      for (int i = off; i < off + len; i++) {
+        write(b[i]);
+      }
+    }
+
+    private void writeByte(final int b) throws IOException {
+      if (!lineStart) {
+        out.write(b);
+        lastWasLf = false;
+        return;
+      }
+      pending[pendingLength++] = (byte) b;
+      final int quotes = countQuotes();
+      final int fromLength = pendingLength - quotes;
+      if (fromLength > 0 && (fromLength > FROM.length || pending[pendingLength - 1] != FROM[fromLength - 1])) {
+        flushPending(false);
+      } else if (fromLength == FROM.length) {
+        flushPending(true);
+      } else if (pendingLength == pending.length) {
+        flushPending(false);
+      }
+    }
+
+    private int countQuotes() {
+      int quotes = 0;
+      while (quotes < pendingLength && pending[quotes] == '>') {
+        quotes++;
+      }
+      return quotes;
+    }
+
+    private void flushPending(final boolean quote) throws IOException {
+      if (quote) {
+        out.write('>');
+      }
+      out.write(pending, 0, pendingLength);
+      lastWasLf = false;
+      pendingLength = 0;
+      lineStart = false;
+    }
+
+    private void newLine() throws IOException {
+      if (pendingLength > 0) {
+        flushPending(false);
+      }
+      out.write('\n');
+      lastWasLf = true;
+      lineStart = true;
+    }
+
+    /**
+     * Terminate the message with an empty line as separator to the next message.
+     *
+     * @throws IOException if writing fails
+     */
+    private void finish() throws IOException {
+      if (carriageReturn) {
+        carriageReturn = false;
+        writeByte('\r');
+      }
+      if (pendingLength > 0) {
+        flushPending(false);
+      }
+      if (!lastWasLf) {
+        out.write('\n');
+      }
+      out.write('\n');
+      out.flush();
+    }
+  }
+}
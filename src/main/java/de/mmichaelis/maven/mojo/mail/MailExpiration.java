@@ -41,7 +41,15 @@ public final class MailExpiration implements MailHeader {
    */
   private static final String RFC1036_HEADER = "Expires";
 
-  private static final SimpleDateFormat MAIL_TIMESTAMP_FORMAT = new SimpleDateFormat("EEE, d MMM yyyy hh:mm:ss Z", Locale.US);
+  /**
+   * Date format as specified by RFC 5322. SimpleDateFormat is not thread-safe, thus each thread gets its own.
+   */
+  private static final ThreadLocal<SimpleDateFormat> MAIL_TIMESTAMP_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+    @Override
+    protected SimpleDateFormat initialValue() {
+      return new SimpleDateFormat("EEE, d MMM yyyy HH:mm:ss Z", Locale.US);
+    }
+  };
   private static final int DEFAULT_EXPIRATION_DAYS = 1;
 
   private final Date date;
@@ -64,7 +72,7 @@ public final class MailExpiration implements MailHeader {
   @Override
   public void addHeader(final MimeMessage message, final Log log) {
     if (date != null) {
-      final String headerValue = MAIL_TIMESTAMP_FORMAT.format(date);
+      final String headerValue = MAIL_TIMESTAMP_FORMAT.get().format(date);
       try {
         message.addHeader(RFC1036_HEADER, headerValue);
         message.addHeader(RFC1327_HEADER, headerValue);
@@ -0,0 +1,266 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Timing and size metrics of one mail execution. Durations of a phase are summed over all messages,
+ * thus for messages sent in parallel they might exceed the total time. When the execution ends the
+ * metrics are summarized in one log line and appended as one JSON object per line to the metrics
+ * file.
+ * <p>
+ * Measuring the message size requires encoding each message once more. Thus metrics are only
+ * collected if enabled; otherwise {@link #NONE} is used which ignores all measurements.
+ * </p>
+ *
+ * @since 10/18/26 4:52 AM
+ */
+public final class MailMetrics {
+  /**
+   * Metrics which ignore all measurements.
+   */
+  public static final MailMetrics NONE = new MailMetrics(null, null, false);
+
+  private static final Object WRITE_LOCK = new Object();
+
+  /**
+   * Measured phases of a mail execution.
+   */
+  public enum Phase {
+    /** Evaluating the recipients. */
+    RECIPIENTS("recipients"),
+    /** Reading the text. */
+    TEXT("text"),
+    /** Composing the messages. */
+    COMPOSE("compose"),
+    /** Waiting for the rate limit. */
+    THROTTLE("throttle"),
+    /** Getting a connection from the pool, including connecting to the relay. */
+    CONNECT("connect"),
+    /** Transferring the messages to the relay. */
+    TRANSFER("transfer");
+
+    private final String key;
+
+    Phase(final String key) {
+      this.key = key;
+    }
+  }
+
+  private final String execution;
+  private final File file;
+  private final boolean enabled;
+  private final long started = System.nanoTime();
+  private final AtomicLongArray phaseNanos = new AtomicLongArray(Phase.values().length);
+  private final AtomicInteger messages = new AtomicInteger();
+  private final AtomicInteger recipients = new AtomicInteger();
+  private final AtomicLong bytes = new AtomicLong();
+  private final AtomicInteger reconnects = new AtomicInteger();
+  private final AtomicInteger spooled = new AtomicInteger();
+  private final AtomicInteger failures = new AtomicInteger();
+
+  /**
+   * Constructor.
+   *
+   * @param execution name of the execution to report
+   * @param file      file to append the metrics to; <code>null</code> to only log them
+   */
+  public MailMetrics(final String execution, final File file) {
+    this(execution, file, true);
+  }
+
+  private MailMetrics(final String execution, final File file, final boolean enabled) {
+    this.execution = execution;
+    this.file = file;
+    this.enabled = enabled;
+  }
+
+  /**
+   * Get new metrics for the same execution and file, for example to measure sending a mail which was
+   * collected earlier.
+   *
+   * @return the new metrics; {@link #NONE} if these metrics are disabled
+   */
+  MailMetrics restart() {
+    return enabled ? new MailMetrics(execution, file) : NONE;
+  }
+
+  /**
+   * Record the duration of a phase.
+   *
+   * @param phase the phase
+   * @param start start of the phase as returned by {@link System#nanoTime()}
+   */
+  public void record(final Phase phase, final long start) {
+    if (enabled) {
+      phaseNanos.addAndGet(phase.ordinal(), System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Record a message which has been transferred.
+   *
+   * @param message        the message
+   * @param recipientCount number of envelope recipients
+   */
+  void recordMessage(final Message message, final int recipientCount) {
+    if (!enabled) {
+      return;
+    }
+    messages.incrementAndGet();
+    recipients.addAndGet(recipientCount);
+    final CountingOutputStream out = new CountingOutputStream();
+    try {
+      message.writeTo(out);
+      bytes.addAndGet(out.count);
+    } catch (IOException ignored) {
+      // size unknown
+    } catch (MessagingException ignored) {
+      // size unknown
+    }
+  }
+
+  void recordReconnect() {
+    reconnects.incrementAndGet();
+  }
+
+  void recordSpooled() {
+    spooled.incrementAndGet();
+  }
+
+  void recordFailure() {
+    failures.incrementAndGet();
+  }
+
+  /**
+   * Report the metrics to the log and append them to the metrics file.
+   *
+   * @param log where to report to
+   */
+  void report(final Log log) {
+    if (!enabled) {
+      return;
+    }
+    final long total = System.nanoTime() - started;
+    final StringBuilder summary = new StringBuilder("Mail metrics: ").append(messages).append(" messages to ")
+            .append(recipients).append(" recipients, ").append(bytes).append(" bytes in ").append(millis(total)).append(" ms (");
+    for (final Phase phase : Phase.values()) {
+      summary.append(phase == Phase.RECIPIENTS ? "" : ", ").append(phase.key).append(' ').append(millis(phaseNanos.get(phase.ordinal()))).append(" ms");
+    }
+    log.info(summary.append("); ").append(reconnects).append(" reconnects, ").append(spooled).append(" spooled, ")
+            .append(failures).append(" failed.").toString());
+    if (file != null) {
+      write(toJson(total), log);
+    }
+  }
+
+  private String toJson(final long total) {
+    final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+    final StringBuilder json = new StringBuilder("{\"timestamp\":\"").append(format.format(new Date())).append('"');
+    json.append(",\"execution\":\"").append(escape(execution)).append('"');
+    json.append(",\"messages\":").append(messages);
+    json.append(",\"recipients\":").append(recipients);
+    json.append(",\"bytes\":").append(bytes);
+    json.append(",\"reconnects\":").append(reconnects);
+    json.append(",\"spooled\":").append(spooled);
+    json.append(",\"failures\":").append(failures);
+    json.append(",\"totalMillis\":").append(millis(total));
+    json.append(",\"phaseMillis\":{");
+    for (final Phase phase : Phase.values()) {
+      json.append(phase == Phase.RECIPIENTS ? "" : ",").append('"').append(phase.key).append("\":").append(millis(phaseNanos.get(phase.ordinal())));
+    }
+    return json.append("}}").toString();
+  }
+
+  private void write(final String json, final Log log) {
+    final File directory = file.getAbsoluteFile().getParentFile();
+    if (!(directory.isDirectory() || directory.mkdirs())) {
+      log.warn("Unable to write mail metrics. Directory " + directory + " not available.");
+      return;
+    }
+    synchronized (WRITE_LOCK) {
+      try {
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8");
+        try {
+          writer.write(json);
+          writer.write('\n');
+        } finally {
+          writer.close();
+        }
+      } catch (IOException e) {
+        log.warn("Failed to write mail metrics to " + file.getAbsolutePath() + ".", e);
+      }
+    }
+  }
+
+  private static String millis(final long nanos) {
+    return String.format(Locale.US, "%.1f", nanos / 1000000.0);
+  }
+
+  private static String escape(final String value) {
+    if (value == null) {
+      return "";
+    }
+    final StringBuilder escaped = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        escaped.append('\\').append(c);
+      } else if (c < ' ') {
+        escaped.append(String.format("\\u%04x", (int) c));
+      } else {
+        escaped.append(c);
+      }
+    }
+    return escaped.toString();
+  }
+
+  /**
+   * Discards all bytes but counts them.
+   */
+  private static final class CountingOutputStream extends OutputStream {
+    private long count;
+
+    @Override
+    public void write(final int b) {
+      count++;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) {
+      count += len;
+    }
+  }
+}
@@ -0,0 +1,384 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import javax.mail.util.SharedFileInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Directory of mails waiting to be sent. Each mail is stored as RFC 822 file (<code>*.eml</code>).
+ * The number of failed attempts is part of the file name; after a failed attempt the next one is due
+ * after an exponentially growing backoff. Mails which fail too often are moved to the subdirectory
+ * <code>failed</code>.
+ * <p>
+ * Several flushes, even from different JVMs, might work on the same outbox: a mail is claimed by
+ * renaming its file before it is sent. Claims older than an hour are considered abandoned, for example
+ * by a killed JVM, and are released again by the next flush.
+ * </p>
+ *
+ * @since 10/18/26 1:58 AM
+ */
+public final class MailOutbox {
+  /**
+   * Default number of attempts before a mail is given up.
+   */
+  public static final int DEFAULT_MAX_ATTEMPTS = 5;
+  /**
+   * Default backoff in seconds after the first failed attempt. Doubled for each further attempt.
+   */
+  public static final int DEFAULT_INITIAL_BACKOFF = 60;
+
+  private static final long MAX_BACKOFF_MILLIS = 60L * 60L * 1000L;
+  private static final long STALE_CLAIM_MILLIS = 60L * 60L * 1000L;
+  private static final String SUFFIX = ".eml";
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final String CLAIMED_SUFFIX = ".sending";
+  private static final String FAILED_DIRECTORY = "failed";
+
+  private final File directory;
+  private MailTransport transport = MailTransports.get(MailTransports.DEFAULT);
+  private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+  private long initialBackoffMillis = DEFAULT_INITIAL_BACKOFF * 1000L;
+
+  /**
+   * Outcome of an attempt to send a stored mail.
+   */
+  private enum Outcome {
+    SENT, DEFERRED, POSTPONED, FAILED, CLAIMED
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param directory the directory to store the mails in; created on demand
+   */
+  public MailOutbox(final File directory) {
+    this.directory = directory;
+  }
+
+  public File getDirectory() {
+    return directory;
+  }
+
+  public MailTransport getTransport() {
+    return transport;
+  }
+
+  /**
+   * Set the transport to send the stored mails with. Defaults to <code>smtp</code>.
+   *
+   * @param transport the transport
+   */
+  public void setTransport(final MailTransport transport) {
+    this.transport = transport;
+  }
+
+  /**
+   * Set the number of attempts after which a mail is moved to the failed mails.
+   *
+   * @param maxAttempts number of attempts
+   */
+  public void setMaxAttempts(final int maxAttempts) {
+    this.maxAttempts = Math.max(1, maxAttempts);
+  }
+
+  /**
+   * Set the backoff after the first failed attempt.
+   *
+   * @param initialBackoff backoff in seconds
+   */
+  public void setInitialBackoff(final int initialBackoff) {
+    this.initialBackoffMillis = Math.max(0, initialBackoff) * 1000L;
+  }
+
+  /**
+   * Store the given message. The message becomes visible to flushes only once it is written
+   * completely.
+   *
+   * @param message the message to store; should be saved already
+   * @return the file the message is stored in
+   * @throws MessagingException if storing the message fails
+   */
+  public File store(final MimeMessage message) throws MessagingException {
+    if (directory == null) {
+      throw new MessagingException("No outbox directory configured.");
+    }
+    if (!(directory.isDirectory() || directory.mkdirs())) {
+      throw new MessagingException("Outbox directory " + directory.getAbsolutePath() + " not available.");
+    }
+    File temp = null;
+    try {
+      temp = File.createTempFile("mail-" + System.currentTimeMillis() + "-", TEMP_SUFFIX, directory);
+      final OutputStream out = new BufferedOutputStream(new FileOutputStream(temp));
+      try {
+        message.writeTo(out);
+      } finally {
+        out.close();
+      }
+      final String name = temp.getName();
+      final File file = new File(directory, name.substring(0, name.length() - TEMP_SUFFIX.length()) + SUFFIX);
+      if (!temp.renameTo(file)) {
+        throw new IOException("Failed to rename " + temp.getAbsolutePath() + " to " + file.getName() + ".");
+      }
+      temp = null;
+      return file;
+    } catch (IOException e) {
+      throw new MessagingException("Failed to store mail in outbox " + directory.getAbsolutePath() + ".", e);
+    } finally {
+      if (temp != null && temp.exists() && !temp.delete()) {
+        temp.deleteOnExit();
+      }
+    }
+  }
+
+  /**
+   * Send all mails which are due. Mails are sent in parallel, the number of connections is additionally
+   * limited by the {@link MailTransportPool}. Nothing is sent if the transport is the
+   * {@link SpoolMailTransport}.
+   *
+   * @param session the session to send the mails with
+   * @param threads number of mails to send in parallel
+   * @param log     where to report progress to
+   * @return number of mails remaining in the outbox, excluding failed mails
+   */
+  public int flush(final Session session, final int threads, final Log log) {
+    if (directory == null) {
+      return 0;
+    }
+    releaseStaleClaims(log);
+    final File[] files = directory.listFiles(new FileFilter() {
+      @Override
+      public boolean accept(final File file) {
+        return file.isFile() && file.getName().endsWith(SUFFIX);
+      }
+    });
+    if (files == null || files.length == 0) {
+      log.debug("Outbox " + directory.getAbsolutePath() + " is empty.");
+      return 0;
+    }
+    if (SpoolMailTransport.NAME.equals(transport.getName())) {
+      log.warn("Not flushing outbox " + directory.getAbsolutePath() + ": transport " + transport.getName() + " would store the mails again.");
+      return files.length;
+    }
+    Arrays.sort(files);
+    final long now = System.currentTimeMillis();
+    final List<File> due = new ArrayList<File>(files.length);
+    for (final File file : files) {
+      if (getDueTime(file) <= now) {
+        due.add(file);
+      }
+    }
+    final int notDue = files.length - due.size();
+    final int[] outcomes = new int[Outcome.values().length];
+    if (!due.isEmpty()) {
+      final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, due.size())), new FlushThreadFactory());
+      try {
+        final List<Future<Outcome>> futures = new ArrayList<Future<Outcome>>(due.size());
+        for (final File file : due) {
+          futures.add(executor.submit(new Callable<Outcome>() {
+            @Override
+            public Outcome call() {
+              return deliver(session, file, log);
+            }
+          }));
+        }
+        for (final Future<Outcome> future : futures) {
+          try {
+            outcomes[future.get().ordinal()]++;
+          } catch (ExecutionException e) {
+            log.error("Failed to flush mail of outbox " + directory.getAbsolutePath() + ".", e.getCause());
+            outcomes[Outcome.DEFERRED.ordinal()]++;
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        log.warn("Interrupted while flushing outbox " + directory.getAbsolutePath() + ".");
+      } finally {
+        // Running sends complete; their claims are released by themselves
+        executor.shutdown();
+      }
+    }
+    final int waiting = notDue + outcomes[Outcome.POSTPONED.ordinal()];
+    log.info("Outbox " + directory.getAbsolutePath() + ": " + outcomes[Outcome.SENT.ordinal()] + " sent, "
+            + outcomes[Outcome.DEFERRED.ordinal()] + " deferred, " + outcomes[Outcome.FAILED.ordinal()]
+            + " failed permanently, " + waiting + " waiting for retry.");
+    return outcomes[Outcome.DEFERRED.ordinal()] + waiting;
+  }
+
+  private void releaseStaleClaims(final Log log) {
+    final long stale = System.currentTimeMillis() - STALE_CLAIM_MILLIS;
+    final File[] claims = directory.listFiles(new FileFilter() {
+      @Override
+      public boolean accept(final File file) {
+        return file.isFile() && file.getName().endsWith(SUFFIX + CLAIMED_SUFFIX) && file.lastModified() < stale;
+      }
+    });
+    if (claims == null) {
+      return;
+    }
+    for (final File claimed : claims) {
+      final String name = claimed.getName();
+      final File file = new File(directory, name.substring(0, name.length() - CLAIMED_SUFFIX.length()));
+      if (claimed.renameTo(file)) {
+        log.warn("Released abandoned mail " + file.getName() + " for retry.");
+      }
+    }
+  }
+
+  private Outcome deliver(final Session session, final File file, final Log log) {
+    final File claimed = new File(file.getPath() + CLAIMED_SUFFIX);
+    final long lastModified = file.lastModified();
+    if (!file.renameTo(claimed)) {
+      log.debug("Mail " + file.getName() + " is sent by another flush.");
+      return Outcome.CLAIMED;
+    }
+    // Time of the claim, to detect abandoned claims
+    if (!claimed.setLastModified(System.currentTimeMillis())) {
+      log.debug("Failed to set claim time of " + claimed.getAbsolutePath() + ".");
+    }
+    final int attempts = getAttempts(file) + 1;
+    try {
+      send(session, claimed, log);
+      if (!claimed.delete()) {
+        log.warn("Failed to delete sent mail " + claimed.getAbsolutePath() + ".");
+      }
+      return Outcome.SENT;
+    } catch (RateLimitExceededException e) {
+      // Not an attempt: the relay was not contacted
+      return postpone(file, claimed, lastModified, log);
+    } catch (RelayUnavailableException e) {
+      // Not an attempt: the relay was not contacted
+      return postpone(file, claimed, lastModified, log);
+    } catch (MessagingException e) {
+      return retryLater(file, claimed, attempts, e, log);
+    } catch (IOException e) {
+      return retryLater(file, claimed, attempts, e, log);
+    } catch (RuntimeException e) {
+      return retryLater(file, claimed, attempts, e, log);
+    }
+  }
+
+  private static Outcome postpone(final File file, final File claimed, final long lastModified, final Log log) {
+    // Keep the time of the last attempt for the backoff
+    if (!claimed.setLastModified(lastModified)) {
+      log.debug("Failed to restore time of last attempt of " + claimed.getAbsolutePath() + ".");
+    }
+    if (!claimed.renameTo(file)) {
+      log.warn("Failed to release " + claimed.getAbsolutePath() + " for retry.");
+    }
+    return Outcome.POSTPONED;
+  }
+
+  private Outcome retryLater(final File file, final File claimed, final int attempts, final Exception cause, final Log log) {
+    if (attempts >= maxAttempts) {
+      final File failedDirectory = new File(directory, FAILED_DIRECTORY);
+      if (!((failedDirectory.isDirectory() || failedDirectory.mkdirs()) && claimed.renameTo(new File(failedDirectory, file.getName())))) {
+        log.warn("Failed to move " + claimed.getAbsolutePath() + " to " + failedDirectory.getAbsolutePath() + ".");
+      }
+      log.error("Giving up mail " + file.getName() + " after " + attempts + " attempts.", cause);
+      return Outcome.FAILED;
+    }
+    final File retry = new File(directory, getBaseName(file) + "." + attempts + SUFFIX);
+    if (!(claimed.setLastModified(System.currentTimeMillis()) && claimed.renameTo(retry))) {
+      log.warn("Failed to release " + claimed.getAbsolutePath() + " for retry.");
+    }
+    log.warn("Failed to send mail " + file.getName() + " (attempt " + attempts + " of " + maxAttempts + "), next attempt in "
+            + getBackoff(attempts) / 1000L + " s: " + cause.getMessage());
+    return Outcome.DEFERRED;
+  }
+
+  private void send(final Session session, final File file, final Log log) throws IOException, MessagingException {
+    // Shared stream: the content is not read into memory but streamed when sending
+    final SharedFileInputStream in = new SharedFileInputStream(file);
+    try {
+      final MimeMessage message = new MimeMessage(session, in);
+      final MessagingException failure = transport.send(session, Collections.singletonList(message), log, MailMetrics.NONE)[0];
+      if (failure != null) {
+        throw failure;
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  private long getDueTime(final File file) {
+    final int attempts = getAttempts(file);
+    return attempts == 0 ? 0L : file.lastModified() + getBackoff(attempts);
+  }
+
+  private long getBackoff(final int attempts) {
+    long backoff = initialBackoffMillis;
+    for (int i = 1; i < attempts && backoff < MAX_BACKOFF_MILLIS; i++) {
+      backoff *= 2L;
+    }
+    return Math.min(backoff, MAX_BACKOFF_MILLIS);
+  }
+
+  private static String getBaseName(final File file) {
+    final String name = file.getName().substring(0, file.getName().length() - SUFFIX.length());
+    final int dot = name.lastIndexOf('.');
+    return dot < 0 ? name : name.substring(0, dot);
+  }
+
+  private static int getAttempts(final File file) {
+    final String name = file.getName().substring(0, file.getName().length() - SUFFIX.length());
+    final int dot = name.lastIndexOf('.');
+    if (dot < 0) {
+      return 0;
+    }
+    try {
+      return Integer.parseInt(name.substring(dot + 1));
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Creates named daemon threads for flushing the outbox.
+   */
+  private static final class FlushThreadFactory implements ThreadFactory {
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+      final Thread thread = new Thread(runnable, "maven-mail-plugin flush " + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
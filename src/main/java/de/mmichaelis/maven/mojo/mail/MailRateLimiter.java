@@ -0,0 +1,195 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JVM wide rate limits per SMTP relay. Each relay gets a token bucket which is refilled at the
+ * configured rate and holds at most <code>burst</code> tokens. Every message takes one token. If no
+ * token is available the sender reserves the next one and sleeps until it is due, without holding
+ * any lock. If the wait would exceed the maximum wait a {@link RateLimitExceededException} is thrown
+ * instead, so that the message can be stored in the outbox.
+ * <p>
+ * The limits are shared by all executions of the reactor, even if built in parallel. The last
+ * execution which sets a limit for a relay wins; executions without a limit keep it.
+ * </p>
+ *
+ * @since 10/18/26 2:52 AM
+ */
+public final class MailRateLimiter {
+  private static final MailRateLimiter instance = new MailRateLimiter();
+
+  /**
+   * Default for the maximum time in seconds to wait for sending a message.
+   */
+  public static final int DEFAULT_MAX_WAIT = 60;
+
+  private final Map<String, Bucket> buckets = new HashMap<String, Bucket>();
+
+  /**
+   * Constructor.
+   */
+  private MailRateLimiter() {
+    // use the instance
+  }
+
+  /**
+   * Return the instance.
+   *
+   * @return instance
+   */
+  public static MailRateLimiter getInstance() {
+    return instance;
+  }
+
+  /**
+   * Get the name of the relay to limit.
+   *
+   * @param smtphost the relay host
+   * @param smtpport the relay port
+   * @return the name of the relay
+   */
+  public static String getRelay(final String smtphost, final Object smtpport) {
+    return smtphost + ":" + smtpport;
+  }
+
+  /**
+   * Configure the limit of a relay.
+   *
+   * @param relay         the relay as returned by {@link #getRelay(String, Object)}
+   * @param ratePerMinute number of messages per minute; 0 or less to keep the current limit, if any
+   * @param burst         number of messages which might be sent at once after the relay was idle
+   * @param maxWait       maximum seconds to wait for sending a message
+   */
+  public synchronized void configure(final String relay, final int ratePerMinute, final int burst, final int maxWait) {
+    if (ratePerMinute <= 0) {
+      return;
+    }
+    final Bucket bucket = buckets.get(relay);
+    if (bucket == null) {
+      buckets.put(relay, new Bucket(relay, ratePerMinute, burst, maxWait));
+    } else {
+      bucket.configure(ratePerMinute, burst, maxWait);
+    }
+  }
+
+  /**
+   * Remove the limit of a relay.
+   *
+   * @param relay the relay as returned by {@link #getRelay(String, Object)}
+   */
+  synchronized void remove(final String relay) {
+    buckets.remove(relay);
+  }
+
+  /**
+   * Wait until the relay of the given session accepts another message.
+   *
+   * @param session the session to send the message with
+   * @param log     where to report waiting to
+   * @throws RateLimitExceededException if the message would have to wait too long
+   * @throws MessagingException         if interrupted while waiting
+   */
+  public void acquire(final Session session, final Log log) throws MessagingException {
+    final Bucket bucket;
+    synchronized (this) {
+      bucket = buckets.get(getRelay(session.getProperty("mail.smtp.host"), session.getProperty("mail.smtp.port")));
+    }
+    if (bucket == null) {
+      return;
+    }
+    final long wait = bucket.reserve(System.currentTimeMillis());
+    if (wait < 0L) {
+      log.warn("Rate limit exceeded: " + bucket + ".");
+      throw new RateLimitExceededException("Rate limit of relay " + bucket.relay + " exceeded.");
+    }
+    if (wait == 0L) {
+      if (log.isDebugEnabled()) {
+        log.debug("Rate limit: " + bucket + ".");
+      }
+      return;
+    }
+    log.info("Rate limit: waiting " + wait + " ms for " + bucket + ".");
+    try {
+      Thread.sleep(wait);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MessagingException("Interrupted while waiting for rate limit of relay " + bucket.relay + ".", e);
+    }
+  }
+
+  /**
+   * Token bucket of one relay. The token count might get negative as tokens are reserved in advance.
+   */
+  private static final class Bucket {
+    private final String relay;
+    private double tokensPerMilli;
+    private int burst;
+    private long maxWaitMillis;
+    private double tokens;
+    private long updated;
+
+    private Bucket(final String relay, final int ratePerMinute, final int burst, final int maxWait) {
+      this.relay = relay;
+      configure(ratePerMinute, burst, maxWait);
+      this.tokens = this.burst;
+      this.updated = System.currentTimeMillis();
+    }
+
+    private synchronized void configure(final int ratePerMinute, final int burst, final int maxWait) {
+      this.tokensPerMilli = ratePerMinute / 60000.0;
+      this.burst = Math.max(1, burst);
+      this.maxWaitMillis = Math.max(0, maxWait) * 1000L;
+      this.tokens = Math.min(tokens, this.burst);
+    }
+
+    /**
+     * Take a token.
+     *
+     * @param now the current time
+     * @return milliseconds to wait until the token is due; -1 if the wait would exceed the maximum
+     */
+    private synchronized long reserve(final long now) {
+      if (now > updated) {
+        tokens = Math.min(burst, tokens + (now - updated) * tokensPerMilli);
+        updated = now;
+      }
+      if (tokens >= 1.0) {
+        tokens -= 1.0;
+        return 0L;
+      }
+      final long wait = (long) Math.ceil((1.0 - tokens) / tokensPerMilli);
+      if (wait > maxWaitMillis) {
+        return -1L;
+      }
+      tokens -= 1.0;
+      return wait;
+    }
+
+    @Override
+    public synchronized String toString() {
+      return "relay " + relay + " at " + Math.round(tokensPerMilli * 60000.0) + " messages/minute, burst " + burst
+              + ", " + String.format("%.1f", tokens) + " tokens available";
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import javax.mail.NoSuchProviderException;
+import javax.mail.Provider;
+import javax.mail.Session;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * JVM wide registry of mail sessions. Each distinct configuration gets its own session which is
+ * created once and reused afterwards. Unlike {@link Session#getDefaultInstance(Properties)} later
+ * configurations are not silently ignored.
+ *
+ * @since 10/17/26 11:38 PM
+ */
+public final class MailSessions {
+  private static final ConcurrentMap<String, Session> SESSIONS = new ConcurrentHashMap<String, Session>();
+
+  /**
+   * Utility class.
+   */
+  private MailSessions() {
+    // utility class
+  }
+
+  /**
+   * Get the session for the given configuration.
+   *
+   * @param properties the effective configuration; must not be modified afterwards
+   * @param debug      whether to enable debug output of the session
+   * @return the session
+   */
+  public static Session getSession(final Properties properties, final boolean debug) {
+    final String key = getKey(properties, debug);
+    Session session = SESSIONS.get(key);
+    if (session == null) {
+      final Session created = Session.getInstance(properties);
+      created.setDebug(debug);
+      registerTransport(created, properties.getProperty("mail.smtp.class"));
+      session = SESSIONS.putIfAbsent(key, created);
+      if (session == null) {
+        session = created;
+      }
+    }
+    return session;
+  }
+
+  /**
+   * Get the session to send stored mails with. Unlike sessions for new mails no default sender is
+   * configured as the stored mails contain their sender already.
+   *
+   * @param defaults additional JavaMail properties; <code>null</code> for none
+   * @param smtphost the relay host
+   * @param smtpport the relay port
+   * @param hostname name of the local host to use for EHLO; <code>null</code> to look it up
+   * @param debug    whether to enable debug output of the session
+   * @return the session
+   */
+  public static Session getSession(final Properties defaults, final String smtphost, final int smtpport, final String hostname,
+                                   final boolean debug) {
+    final Properties properties = new Properties();
+    if (defaults != null) {
+      properties.putAll(defaults);
+    }
+    properties.setProperty("mail.smtp.host", smtphost);
+    properties.setProperty("mail.smtp.port", Integer.toString(smtpport));
+    properties.setProperty("mail.smtp.localhost", LocalHost.get(hostname).getName());
+    return getSession(properties, debug);
+  }
+
+  /**
+   * Add connect and read timeouts to the given properties unless they are configured already.
+   * Without timeouts an unreachable relay blocks until the operating system gives up on the connection.
+   *
+   * @param properties     the configured properties; <code>null</code> for none
+   * @param connectTimeout seconds to wait for the connection to the relay; 0 or less to wait forever
+   * @param readTimeout    seconds to wait for a reply of the relay; 0 or less to wait forever
+   * @return the properties including the timeouts
+   */
+  public static Properties withTimeouts(final Properties properties, final int connectTimeout, final int readTimeout) {
+    final Properties withTimeouts = new Properties();
+    if (properties != null) {
+      withTimeouts.putAll(properties);
+    }
+    if (connectTimeout > 0 && !withTimeouts.containsKey("mail.smtp.connectiontimeout")) {
+      withTimeouts.setProperty("mail.smtp.connectiontimeout", Long.toString(connectTimeout * 1000L));
+    }
+    if (readTimeout > 0 && !withTimeouts.containsKey("mail.smtp.timeout")) {
+      withTimeouts.setProperty("mail.smtp.timeout", Long.toString(readTimeout * 1000L));
+    }
+    return withTimeouts;
+  }
+
+  /**
+   * Register the configured SMTP transport class as provider. JavaMail ignores <code>mail.smtp.class</code>
+   * if the class is not listed in any <code>javamail.providers</code> file, like {@link PipeliningSmtpTransport}.
+   *
+   * @param session   the session to register the provider for
+   * @param className the configured transport class; <code>null</code> for the default transport
+   */
+  private static void registerTransport(final Session session, final String className) {
+    if (className == null) {
+      return;
+    }
+    for (final Provider provider : session.getProviders()) {
+      if (className.equals(provider.getClassName())) {
+        return;
+      }
+    }
+    try {
+      session.setProvider(new Provider(Provider.Type.TRANSPORT, "smtp", className, "maven-mail-plugin", null));
+    } catch (NoSuchProviderException e) {
+      throw new IllegalArgumentException("Unable to register transport " + className + ".", e);
+    }
+  }
+
+  private static String getKey(final Properties properties, final boolean debug) {
+    final Map<Object, Object> sorted = new TreeMap<Object, Object>(properties);
+    return sorted.toString() + (debug ? "+debug" : "");
+  }
+}
@@ -0,0 +1,440 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+
+import javax.mail.internet.InternetAddress;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers recently sent mails to suppress identical mails within a time window, for example if a flaky
+ * module fails on each retry of the CI server. Mails are identified by a hash of recipients, subject and
+ * text. Mails which were suppressed are counted and the count is added to the subject of the next mail
+ * which is sent once the window passed.
+ * <p>
+ * The store is an append-only file with one line per sent or suppressed mail: hash, time of sending
+ * and number of suppressed repetitions. The latest line of a hash wins. The file is read once and then
+ * kept in memory; only lines appended by other builds are read later on. If the file contains mostly
+ * outdated lines it is compacted. Builds sharing the file serialize their access by locking a sibling
+ * <code>.lock</code> file.
+ * </p>
+ *
+ * @since 10/18/26 9:41 AM
+ */
+public final class MailSuppression {
+  private static final ConcurrentMap<String, MailSuppression> STORES = new ConcurrentHashMap<String, MailSuppression>();
+  private static final String ENCODING = "UTF-8";
+  private static final int MIN_RECORDS_TO_COMPACT = 256;
+  private static final String LOCK_SUFFIX = ".lock";
+  private static final String GENERATION_PREFIX = "# ";
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final File file;
+  private final Map<String, Entry> entries = new HashMap<String, Entry>();
+  private String generation = "";
+  private long readOffset;
+  private int records;
+
+  /**
+   * Constructor.
+   *
+   * @param file the file to store the sent mails in
+   */
+  private MailSuppression(final File file) {
+    this.file = file;
+  }
+
+  /**
+   * Get the store for the given file. All executions of the JVM share one store per file.
+   *
+   * @param file the file to store the sent mails in
+   * @return the store
+   */
+  public static MailSuppression get(final File file) {
+    final String key = file.getAbsolutePath();
+    MailSuppression store = STORES.get(key);
+    if (store == null) {
+      final MailSuppression created = new MailSuppression(file.getAbsoluteFile());
+      store = STORES.putIfAbsent(key, created);
+      if (store == null) {
+        store = created;
+      }
+    }
+    return store;
+  }
+
+  /**
+   * Calculate the hash identifying a mail.
+   *
+   * @param recipients the recipients; order and case are ignored
+   * @param subject    the subject
+   * @param text       the text; ignored if a text file is given
+   * @param textFile   the file containing the text; <code>null</code> to use the text
+   * @return the hash
+   * @throws IOException if reading the text file fails
+   */
+  public static String hash(final InternetAddress[] recipients, final String subject, final String text, final File textFile)
+          throws IOException {
+    final MessageDigest digest = getDigest();
+    final String[] addresses = new String[recipients.length];
+    for (int i = 0; i < recipients.length; i++) {
+      addresses[i] = recipients[i].getAddress().toLowerCase(Locale.ENGLISH);
+    }
+    Arrays.sort(addresses);
+    update(digest, Arrays.toString(addresses));
+    update(digest, subject);
+    if (textFile == null) {
+      update(digest, text);
+    } else {
+      final InputStream in = new FileInputStream(textFile);
+      try {
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+          digest.update(buffer, 0, read);
+        }
+      } finally {
+        in.close();
+      }
+    }
+    final byte[] bytes = digest.digest();
+    final char[] hex = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      hex[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+      hex[i * 2 + 1] = HEX[bytes[i] & 0xF];
+    }
+    return new String(hex);
+  }
+
+  /**
+   * Check if an identical mail was sent within the window. If so the suppressed repetition is counted.
+   *
+   * @param hash   the hash of the mail
+   * @param window the window in milliseconds
+   * @param log    where to report problems to
+   * @return true if the mail should not be sent
+   */
+  public synchronized boolean suppress(final String hash, final long window, final Log log) {
+    final FileLock lock = lock(log);
+    try {
+      readAppended(log);
+      final Entry entry = entries.get(hash);
+      if (entry == null || System.currentTimeMillis() - entry.sent >= window) {
+        return false;
+      }
+      append(hash, new Entry(entry.sent, entry.repeated + 1), log);
+      return true;
+    } finally {
+      release(lock, log);
+    }
+  }
+
+  /**
+   * Get the number of identical mails which were suppressed since an identical mail was sent the last time.
+   *
+   * @param hash the hash of the mail
+   * @param log  where to report problems to
+   * @return number of suppressed mails
+   */
+  public synchronized int getRepeated(final String hash, final Log log) {
+    final FileLock lock = lock(log);
+    try {
+      readAppended(log);
+    } finally {
+      release(lock, log);
+    }
+    final Entry entry = entries.get(hash);
+    return entry == null ? 0 : entry.repeated;
+  }
+
+  /**
+   * Remember that the mail was sent right now.
+   *
+   * @param hash   the hash of the mail
+   * @param window the window in milliseconds; used to drop outdated lines when compacting the file
+   * @param log    where to report problems to
+   */
+  public synchronized void sent(final String hash, final long window, final Log log) {
+    final FileLock lock = lock(log);
+    try {
+      readAppended(log);
+      append(hash, new Entry(System.currentTimeMillis(), 0), log);
+      if (lock != null && records > MIN_RECORDS_TO_COMPACT && records > 4 * entries.size()) {
+        compact(window, log);
+      }
+    } finally {
+      release(lock, log);
+    }
+  }
+
+  /**
+   * Lock the store against other builds. The lock is held on a separate file as the store itself is
+   * replaced when compacting.
+   *
+   * @return the lock; <code>null</code> if locking failed
+   */
+  private FileLock lock(final Log log) {
+    final File directory = file.getParentFile();
+    if (!(directory.isDirectory() || directory.mkdirs())) {
+      return null;
+    }
+    try {
+      final FileChannel channel = new RandomAccessFile(new File(directory, file.getName() + LOCK_SUFFIX), "rw").getChannel();
+      try {
+        return channel.lock();
+      } catch (IOException e) {
+        channel.close();
+        throw e;
+      }
+    } catch (IOException e) {
+      log.warn("Failed to lock suppressed mails in " + file + ".", e);
+      return null;
+    }
+  }
+
+  private static void release(final FileLock lock, final Log log) {
+    if (lock == null) {
+      return;
+    }
+    try {
+      // closing the channel releases the lock
+      lock.channel().close();
+    } catch (IOException e) {
+      log.warn("Failed to unlock suppressed mails.", e);
+    }
+  }
+
+  /**
+   * Read the lines appended since the last read, possibly by other builds.
+   */
+  private void readAppended(final Log log) {
+    final long length = file.length();
+    if (readOffset > 0 && (length < readOffset || !generation.equals(readGeneration(log)))) {
+      // compacted by another build
+      entries.clear();
+      generation = "";
+      records = 0;
+      readOffset = 0;
+    }
+    if (length == readOffset) {
+      return;
+    }
+    try {
+      final byte[] bytes = read(readOffset);
+      // A line without line feed is still being written; it is read once it is complete.
+      int end = bytes.length;
+      while (end > 0 && bytes[end - 1] != '\n') {
+        end--;
+      }
+      for (final String line : new String(bytes, 0, end, ENCODING).split("\n")) {
+        if (line.startsWith(GENERATION_PREFIX)) {
+          generation = line;
+        } else {
+          parse(line);
+        }
+      }
+      readOffset += end;
+    } catch (IOException e) {
+      log.warn("Failed to read suppressed mails from " + file + ".", e);
+    }
+  }
+
+  private String readGeneration(final Log log) {
+    try {
+      final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), ENCODING));
+      try {
+        final String line = reader.readLine();
+        return line == null ? "" : line;
+      } finally {
+        reader.close();
+      }
+    } catch (IOException e) {
+      log.warn("Failed to read suppressed mails from " + file + ".", e);
+      return "";
+    }
+  }
+
+  private byte[] read(final long offset) throws IOException {
+    final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    final InputStream in = new FileInputStream(file);
+    try {
+      if (in.skip(offset) != offset) {
+        return new byte[0];
+      }
+      final byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) >= 0) {
+        content.write(buffer, 0, read);
+      }
+    } finally {
+      in.close();
+    }
+    return content.toByteArray();
+  }
+
+  private void parse(final String line) {
+    final String[] fields = line.split(" ");
+    if (fields.length != 3) {
+      return;
+    }
+    try {
+      entries.put(fields[0], new Entry(Long.parseLong(fields[1]), Integer.parseInt(fields[2])));
+      records++;
+    } catch (NumberFormatException ignored) {
+      // skip line corrupted by an aborted build
+    }
+  }
+
+  private void append(final String hash, final Entry entry, final Log log) {
+    entries.put(hash, entry);
+    final File directory = file.getParentFile();
+    if (!(directory.isDirectory() || directory.mkdirs())) {
+      log.warn("Unable to remember sent mail. Directory " + directory + " not available.");
+      return;
+    }
+    try {
+      final StringBuilder lines = new StringBuilder();
+      final long length = file.length();
+      String created = null;
+      if (length == 0L) {
+        created = newGeneration();
+        lines.append(created).append('\n');
+      } else if (length > readOffset) {
+        // terminate the line left incomplete by an aborted build
+        lines.append('\n');
+      }
+      final byte[] bytes = lines.append(toLine(hash, entry)).toString().getBytes(ENCODING);
+      final OutputStream out = new FileOutputStream(file, true);
+      try {
+        out.write(bytes);
+      } finally {
+        out.close();
+      }
+      // other builds might have appended in the meantime if locking failed; these lines are read on next access
+      if (file.length() == length + bytes.length) {
+        readOffset = length + bytes.length;
+        if (created != null) {
+          generation = created;
+        }
+      }
+      records++;
+    } catch (IOException e) {
+      log.warn("Failed to remember sent mail in " + file + ".", e);
+    }
+  }
+
+  /**
+   * Rewrite the file with the current entries. Entries which are outside the window and have no
+   * suppressed repetitions carry no information and are dropped. Requires the lock, otherwise lines
+   * appended by other builds meanwhile would be lost.
+   */
+  private void compact(final long window, final Log log) {
+    final long now = System.currentTimeMillis();
+    final String created = newGeneration();
+    final StringBuilder content = new StringBuilder(created).append('\n');
+    for (final Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+      final Map.Entry<String, Entry> entry = it.next();
+      if (entry.getValue().repeated == 0 && now - entry.getValue().sent >= window) {
+        it.remove();
+      } else {
+        content.append(toLine(entry.getKey(), entry.getValue()));
+      }
+    }
+    final File compacted = new File(file.getParentFile(), file.getName() + ".compact");
+    try {
+      final byte[] bytes = content.toString().getBytes(ENCODING);
+      final OutputStream out = new FileOutputStream(compacted);
+      try {
+        out.write(bytes);
+      } finally {
+        out.close();
+      }
+      if (!(compacted.renameTo(file) || (file.delete() && compacted.renameTo(file)))) {
+        log.warn("Failed to compact suppressed mails in " + file + ".");
+        return;
+      }
+      generation = created;
+      readOffset = bytes.length;
+      records = entries.size();
+    } catch (IOException e) {
+      log.warn("Failed to compact suppressed mails in " + file + ".", e);
+    }
+  }
+
+  /**
+   * Create the first line of a new or compacted file. Builds which read the file before notice by a
+   * changed first line that it was replaced.
+   */
+  private static String newGeneration() {
+    return GENERATION_PREFIX + UUID.randomUUID();
+  }
+
+  private static String toLine(final String hash, final Entry entry) {
+    return hash + ' ' + entry.sent + ' ' + entry.repeated + '\n';
+  }
+
+  private static void update(final MessageDigest digest, final String value) throws UnsupportedEncodingException {
+    if (value != null) {
+      digest.update(value.getBytes(ENCODING));
+    }
+    digest.update((byte) 0);
+  }
+
+  private static MessageDigest getDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-1 not available.", e);
+    }
+  }
+
+  /**
+   * The last sent mail with a given hash.
+   */
+  private static final class Entry {
+    private final long sent;
+    private final int repeated;
+
+    private Entry(final long sent, final int repeated) {
+      this.sent = sent;
+      this.repeated = repeated;
+    }
+  }
+}
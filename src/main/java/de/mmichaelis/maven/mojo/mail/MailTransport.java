@@ -0,0 +1,57 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import java.util.List;
+
+/**
+ * Service interface for delivering mails. Implementations are discovered with {@link java.util.ServiceLoader}
+ * and selected by their name, see {@link MailTransports}. To add an implementation list its class in
+ * <code>META-INF/services/de.mmichaelis.maven.mojo.mail.MailTransport</code> and add it as dependency of
+ * the plugin.
+ * <p>
+ * Messages are handed over in batches so that implementations might share connections or file handles
+ * among them. Implementations must be thread-safe as several batches might be delivered in parallel.
+ * </p>
+ *
+ * @since 10/18/26 11:20 AM
+ */
+public interface MailTransport {
+  /**
+   * Name to select the transport with.
+   *
+   * @return name
+   */
+  String getName();
+
+  /**
+   * Deliver the given messages to all their recipients. Delivery of all messages is tried, even if
+   * some fail.
+   *
+   * @param session  the session the messages were composed with; contains the configuration
+   * @param messages the messages to deliver
+   * @param log      where to report progress to
+   * @param metrics  where to record durations and sizes to
+   * @return the failure per message, in the order of the messages; <code>null</code> for delivered messages
+   */
+  MessagingException[] send(Session session, List<MimeMessage> messages, Log log, MailMetrics metrics);
+}
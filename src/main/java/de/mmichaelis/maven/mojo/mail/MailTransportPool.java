@@ -0,0 +1,379 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * JVM wide pool of connected SMTP transports. Transports are kept open across mojo executions so that
+ * subsequent mails to the same relay skip the connection handshake (EHLO, STARTTLS, AUTH). Idle transports
+ * are closed after the idle timeout and pooled transports are checked with a NOOP before they are reused.
+ * <p>
+ * Connections are pooled per session. As {@link MailSessions} creates one session per configuration,
+ * a connection is only reused with exactly the configuration it was opened with, including credentials,
+ * TLS settings, timeouts and transport class.
+ * </p>
+ *
+ * @since 10/17/26 8:12 PM
+ */
+public final class MailTransportPool {
+  private static final MailTransportPool instance = new MailTransportPool();
+
+  /**
+   * Default number of connections kept per relay and configuration.
+   */
+  public static final int DEFAULT_MAX_CONNECTIONS = 2;
+  /**
+   * Default time in seconds after which unused connections are closed.
+   */
+  public static final int DEFAULT_IDLE_TIMEOUT = 30;
+
+  private static final String PROTOCOL = "smtp";
+
+  private final Map<Session, Entry> entries = new HashMap<Session, Entry>();
+  private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+  private long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT * 1000L;
+  private Timer evictionTimer;
+
+  /**
+   * Constructor.
+   */
+  private MailTransportPool() {
+    Runtime.getRuntime().addShutdownHook(new Thread("maven-mail-plugin transport pool shutdown") {
+      @Override
+      public void run() {
+        closeAll();
+      }
+    });
+  }
+
+  /**
+   * Return the instance.
+   *
+   * @return instance
+   */
+  public static MailTransportPool getInstance() {
+    return instance;
+  }
+
+  public synchronized int getMaxConnections() {
+    return maxConnections;
+  }
+
+  /**
+   * Set the maximum number of connections per relay and configuration. The value is shared by all executions in the JVM.
+   *
+   * @param maxConnections maximum number of connections; values below 1 are treated as 1
+   */
+  public synchronized void setMaxConnections(final int maxConnections) {
+    this.maxConnections = Math.max(1, maxConnections);
+    notifyAll();
+  }
+
+  /**
+   * Set the time after which unused connections are closed. The value is shared by all executions in the JVM.
+   *
+   * @param idleTimeout timeout in seconds; values below 1 disable pooling of idle connections
+   */
+  public synchronized void setIdleTimeout(final int idleTimeout) {
+    idleTimeoutMillis = Math.max(0, idleTimeout) * 1000L;
+  }
+
+  /**
+   * Send the given message to all its recipients using a pooled transport.
+   *
+   * @param session the session the transport is bound to
+   * @param message the message to send
+   * @param log     where to report pool activity to
+   * @throws MessagingException if connecting or sending fails
+   */
+  public void send(final Session session, final Message message, final Log log) throws MessagingException {
+    send(session, message, log, MailMetrics.NONE);
+  }
+
+  /**
+   * Send the given message to all its recipients using a pooled transport.
+   *
+   * @param session the session the transport is bound to
+   * @param message the message to send
+   * @param log     where to report pool activity to
+   * @param metrics where to record durations and sizes to
+   * @throws MessagingException if connecting or sending fails
+   */
+  public void send(final Session session, final Message message, final Log log, final MailMetrics metrics) throws MessagingException {
+    message.saveChanges();
+    send(session, message, message.getAllRecipients(), log, metrics);
+  }
+
+  /**
+   * Send the given message to the given envelope recipients using a pooled transport. The message
+   * is expected to be saved already.
+   *
+   * @param session    the session the transport is bound to
+   * @param message    the message to send
+   * @param recipients the envelope recipients
+   * @param log        where to report pool activity to
+   * @throws MessagingException if connecting or sending fails or the rate limit of the relay is exceeded
+   * @see MailRateLimiter
+   */
+  public void send(final Session session, final Message message, final Address[] recipients, final Log log) throws MessagingException {
+    send(session, message, recipients, log, MailMetrics.NONE);
+  }
+
+  /**
+   * Send the given message to the given envelope recipients using a pooled transport. The message
+   * is expected to be saved already.
+   *
+   * @param session    the session the transport is bound to
+   * @param message    the message to send
+   * @param recipients the envelope recipients
+   * @param log        where to report pool activity to
+   * @param metrics    where to record durations and sizes to
+   * @throws MessagingException if connecting or sending fails, the rate limit of the relay is exceeded or
+   *                            the relay failed repeatedly before
+   * @see MailCircuitBreaker
+   */
+  public void send(final Session session, final Message message, final Address[] recipients, final Log log,
+                   final MailMetrics metrics) throws MessagingException {
+    // Check the breaker first so that failing fast neither takes a token nor waits for one
+    final MailCircuitBreaker breaker = MailCircuitBreaker.getInstance();
+    breaker.acquire(session, log);
+    long start = System.nanoTime();
+    try {
+      MailRateLimiter.getInstance().acquire(session, log);
+    } catch (MessagingException e) {
+      breaker.release(session);
+      throw e;
+    }
+    metrics.record(MailMetrics.Phase.THROTTLE, start);
+    try {
+      start = System.nanoTime();
+      final PooledTransport pooled = borrow(session, log, metrics);
+      metrics.record(MailMetrics.Phase.CONNECT, start);
+      boolean reusable = false;
+      try {
+        start = System.nanoTime();
+        pooled.transport.sendMessage(message, recipients);
+        metrics.record(MailMetrics.Phase.TRANSFER, start);
+        reusable = true;
+      } finally {
+        release(pooled, reusable);
+      }
+    } catch (MessagingException e) {
+      breaker.failure(session, e, log);
+      throw e;
+    } catch (RuntimeException e) {
+      breaker.failure(session, e, log);
+      throw e;
+    }
+    breaker.success(session, log);
+    metrics.recordMessage(message, recipients == null ? 0 : recipients.length);
+  }
+
+  /**
+   * Close all pooled connections.
+   */
+  public void closeAll() {
+    final List<Transport> toClose = new ArrayList<Transport>();
+    synchronized (this) {
+      for (final Entry entry : entries.values()) {
+        for (final PooledTransport pooled : entry.idle) {
+          toClose.add(pooled.transport);
+        }
+        entry.open -= entry.idle.size();
+        entry.idle.clear();
+      }
+    }
+    closeQuietly(toClose);
+  }
+
+  private PooledTransport borrow(final Session session, final Log log, final MailMetrics metrics) throws MessagingException {
+    final String relay = getRelay(session);
+    PooledTransport pooled;
+    synchronized (this) {
+      final Entry entry = getEntry(session);
+      while (true) {
+        if (!entry.idle.isEmpty()) {
+          pooled = entry.idle.removeFirst();
+          break;
+        }
+        if (entry.open < maxConnections) {
+          entry.open++;
+          pooled = null;
+          break;
+        }
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new MessagingException("Interrupted while waiting for a connection to " + relay + ".", e);
+        }
+      }
+    }
+    if (pooled != null) {
+      // For SMTP isConnected() issues a NOOP to validate the connection.
+      if (pooled.transport.isConnected()) {
+        log.debug("Reusing pooled connection to " + relay + ".");
+        return pooled;
+      }
+      log.debug("Discarding stale pooled connection to " + relay + ".");
+      metrics.recordReconnect();
+      closeQuietly(pooled.transport);
+    }
+    try {
+      final Transport transport = session.getTransport(PROTOCOL);
+      transport.connect();
+      log.debug("Opened new connection to " + relay + ".");
+      return new PooledTransport(session, transport);
+    } catch (MessagingException e) {
+      releaseSlot(session);
+      throw e;
+    } catch (RuntimeException e) {
+      releaseSlot(session);
+      throw e;
+    }
+  }
+
+  private void release(final PooledTransport pooled, final boolean reusable) {
+    synchronized (this) {
+      if (reusable && idleTimeoutMillis > 0) {
+        pooled.lastUsed = System.currentTimeMillis();
+        getEntry(pooled.session).idle.addFirst(pooled);
+        scheduleEviction();
+        notifyAll();
+        return;
+      }
+    }
+    closeQuietly(pooled.transport);
+    releaseSlot(pooled.session);
+  }
+
+  private synchronized void releaseSlot(final Session session) {
+    getEntry(session).open--;
+    notifyAll();
+  }
+
+  private Entry getEntry(final Session session) {
+    Entry entry = entries.get(session);
+    if (entry == null) {
+      entry = new Entry();
+      entries.put(session, entry);
+    }
+    return entry;
+  }
+
+  private void scheduleEviction() {
+    if (evictionTimer == null) {
+      evictionTimer = new Timer("maven-mail-plugin transport eviction", true);
+      final long period = Math.max(1000L, idleTimeoutMillis / 2);
+      evictionTimer.schedule(new TimerTask() {
+        @Override
+        public void run() {
+          evictIdle();
+        }
+      }, period, period);
+    }
+  }
+
+  /**
+   * Close the connections which are idle for longer than the idle timeout. Runs periodically once
+   * connections are pooled.
+   */
+  void evictIdle() {
+    final List<Transport> toClose = new ArrayList<Transport>();
+    synchronized (this) {
+      final long now = System.currentTimeMillis();
+      for (final Entry entry : entries.values()) {
+        final Iterator<PooledTransport> iterator = entry.idle.iterator();
+        while (iterator.hasNext()) {
+          final PooledTransport pooled = iterator.next();
+          if (now - pooled.lastUsed >= idleTimeoutMillis) {
+            iterator.remove();
+            entry.open--;
+            toClose.add(pooled.transport);
+          }
+        }
+      }
+      if (!toClose.isEmpty()) {
+        notifyAll();
+      }
+    }
+    closeQuietly(toClose);
+  }
+
+  /**
+   * Describe the relay of the given session for logging.
+   *
+   * @param session session to describe the relay of
+   * @return user, host and port
+   */
+  private static String getRelay(final Session session) {
+    final String user = session.getProperty("mail.smtp.user");
+    final String hostAndPort = session.getProperty("mail.smtp.host") + ":" + session.getProperty("mail.smtp.port");
+    return user == null ? hostAndPort : user + "@" + hostAndPort;
+  }
+
+  private static void closeQuietly(final List<Transport> transports) {
+    for (final Transport transport : transports) {
+      closeQuietly(transport);
+    }
+  }
+
+  private static void closeQuietly(final Transport transport) {
+    try {
+      transport.close();
+    } catch (MessagingException ignored) {
+      // connection is abandoned anyway
+    }
+  }
+
+  /**
+   * Connections of one session.
+   */
+  private static final class Entry {
+    private final LinkedList<PooledTransport> idle = new LinkedList<PooledTransport>();
+    private int open;
+  }
+
+  /**
+   * A transport together with its pool bookkeeping.
+   */
+  private static final class PooledTransport {
+    private final Session session;
+    private final Transport transport;
+    private long lastUsed;
+
+    private PooledTransport(final Session session, final Transport transport) {
+      this.session = session;
+      this.transport = transport;
+    }
+  }
+}
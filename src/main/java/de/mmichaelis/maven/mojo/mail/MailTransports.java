@@ -0,0 +1,78 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.TreeMap;
+
+/**
+ * Registry of the {@link MailTransport} implementations available to the plugin.
+ *
+ * @since 10/18/26 11:26 AM
+ */
+public final class MailTransports {
+  /**
+   * Name of the default transport.
+   */
+  public static final String DEFAULT = SmtpMailTransport.NAME;
+
+  private static Map<String, MailTransport> transports;
+
+  /**
+   * Utility class.
+   */
+  private MailTransports() {
+    // utility class
+  }
+
+  /**
+   * Get the transport with the given name.
+   *
+   * @param name the name of the transport; <code>null</code> for the default
+   * @return the transport
+   * @throws IllegalArgumentException if no transport with the given name is available
+   */
+  public static MailTransport get(final String name) {
+    final String trimmed = name == null || name.trim().length() == 0 ? DEFAULT : name.trim();
+    final Map<String, MailTransport> available = getAll();
+    final MailTransport transport = available.get(trimmed);
+    if (transport == null) {
+      throw new IllegalArgumentException("Unknown mail transport '" + name + "'. Available transports: " + available.keySet());
+    }
+    return transport;
+  }
+
+  /**
+   * Get all available transports. They are looked up once.
+   *
+   * @return transports by name
+   */
+  static synchronized Map<String, MailTransport> getAll() {
+    if (transports == null) {
+      final Map<String, MailTransport> found = new TreeMap<String, MailTransport>();
+      for (final MailTransport transport : ServiceLoader.load(MailTransport.class, MailTransport.class.getClassLoader())) {
+        if (!found.containsKey(transport.getName())) {
+          found.put(transport.getName(), transport);
+        }
+      }
+      transports = Collections.unmodifiableMap(found);
+    }
+    return transports;
+  }
+}
@@ -0,0 +1,94 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Keeps mails in memory instead of sending them. Meant for tests of builds using the plugin. Only the
+ * latest {@link #MAX_MESSAGES} mails are kept, so that memory stays bounded in long-lived JVMs.
+ *
+ * @since 10/18/26 11:39 AM
+ */
+public final class MemoryMailTransport implements MailTransport {
+  /**
+   * Name of the transport.
+   */
+  public static final String NAME = "memory";
+
+  /**
+   * Maximum number of mails kept.
+   */
+  public static final int MAX_MESSAGES = 1000;
+
+  private static final LinkedList<MimeMessage> MESSAGES = new LinkedList<MimeMessage>();
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public MessagingException[] send(final Session session, final List<MimeMessage> messages, final Log log, final MailMetrics metrics) {
+    final MessagingException[] failures = new MessagingException[messages.size()];
+    for (int i = 0; i < failures.length; i++) {
+      try {
+        messages.get(i).saveChanges();
+      } catch (MessagingException e) {
+        failures[i] = e;
+      }
+    }
+    synchronized (MESSAGES) {
+      for (int i = 0; i < failures.length; i++) {
+        if (failures[i] == null) {
+          MESSAGES.add(messages.get(i));
+          if (MESSAGES.size() > MAX_MESSAGES) {
+            MESSAGES.removeFirst();
+          }
+        }
+      }
+    }
+    return failures;
+  }
+
+  /**
+   * Get the latest mails delivered so far.
+   *
+   * @return copy of the delivered mails
+   */
+  public static List<MimeMessage> getMessages() {
+    synchronized (MESSAGES) {
+      return new ArrayList<MimeMessage>(MESSAGES);
+    }
+  }
+
+  /**
+   * Forget all delivered mails.
+   */
+  public static void clear() {
+    synchronized (MESSAGES) {
+      MESSAGES.clear();
+    }
+  }
+}
@@ -0,0 +1,229 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import javax.activation.DataHandler;
+import javax.mail.Header;
+import javax.mail.Message.RecipientType;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeBodyPart;
+import javax.mail.internet.MimeMessage;
+import javax.mail.internet.MimeMultipart;
+import javax.mail.internet.MimePart;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.codehaus.plexus.util.StringUtils.isEmpty;
+
+/**
+ * Composes the messages of one mail execution. Parts which are the same for all messages (headers,
+ * encoded subject, folded body, attachments) are prepared once, so that composing many messages for batches or
+ * personalized mails is cheap. Unless the body differs per recipient or is streamed from a file or
+ * attachments, the complete message is encoded once and each message is a {@link PrototypeMessage} sharing
+ * these bytes. Attachments are never encoded in advance, so that they are streamed for each message.
+ * Instances are immutable and might be used by several threads.
+ *
+ * @since 10/18/26 12:52 AM
+ */
+final class MessageComposer {
+  private static final String UNSUBSCRIBE_HINT = "You receive this mail because your address %s is configured as"
+          + " recipient of build notifications. Please ask the maintainers of the build to remove your address"
+          + " if you do not want to receive these mails anymore.";
+
+  /**
+   * File name of the attached tail of the build log.
+   */
+  static final String LOG_TAIL_NAME = "build-log-tail.txt";
+
+  /**
+   * Headers which differ per message and thus are not part of the prototype.
+   */
+  private static final String[] PROTOTYPE_IGNORED_HEADERS = {"Message-ID"};
+
+  private final Session session;
+  private final List<Header> headers;
+  private final InternetAddress sender;
+  private final String text;
+  private final File textFile;
+  private final String signature;
+  private final String mimeCharset;
+  private final boolean bcc;
+  private final boolean personalized;
+  private final MailAttachments attachments;
+  private final String logTail;
+  private final byte[] prototype;
+
+  /**
+   * Constructor.
+   *
+   * @param session      the session the messages are sent with
+   * @param template     message containing the headers shared by all messages
+   * @param sender       the sender of the messages
+   * @param text         the folded text; ignored if a text file is given
+   * @param textFile     file to stream the text from; <code>null</code> to use the text
+   * @param signature    signature to append to the text
+   * @param mimeCharset  charset of text and signature in MIME format
+   * @param bcc          whether to add recipients as BCC
+   * @param personalized whether messages to a single recipient get a personal salutation and unsubscribe hint
+   * @param attachments  files to attach; <code>null</code> for none
+   * @param logTail      tail of the build log to attach; <code>null</code> for none
+   * @throws MessagingException if reading the shared headers fails
+   */
+  @SuppressWarnings({"unchecked"})
+  MessageComposer(final Session session, final MimeMessage template, final InternetAddress sender, final String text,
+                  final File textFile, final String signature, final String mimeCharset, final boolean bcc,
+                  final boolean personalized, final MailAttachments attachments, final String logTail)
+          throws MessagingException {
+    this.session = session;
+    this.headers = Collections.unmodifiableList(Collections.list(template.getAllHeaders()));
+    this.sender = sender;
+    this.text = text;
+    this.textFile = textFile;
+    this.signature = signature;
+    this.mimeCharset = mimeCharset;
+    this.bcc = bcc;
+    this.personalized = personalized;
+    this.attachments = attachments == null || attachments.isEmpty() ? null : attachments;
+    this.logTail = logTail;
+    this.prototype = textFile == null && !personalized && this.attachments == null ? encodePrototype() : null;
+  }
+
+  /**
+   * Encode headers and body shared by all messages.
+   *
+   * @return the encoded message without envelope and Message-ID
+   * @throws MessagingException if encoding fails
+   */
+  private byte[] encodePrototype() throws MessagingException {
+    final MimeMessage message = new MimeMessage(session);
+    for (final Header header : headers) {
+      message.addHeader(header.getName(), header.getValue());
+    }
+    setBody(message, "", signature);
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      message.writeTo(out, PROTOTYPE_IGNORED_HEADERS);
+    } catch (IOException e) {
+      throw new MessagingException("Failed to encode message.", e);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Compose the message for the given recipients.
+   *
+   * @param recipients the recipients of the message
+   * @return the message
+   * @throws MessagingException if composing fails
+   */
+  MimeMessage compose(final InternetAddress[] recipients) throws MessagingException {
+    if (prototype != null) {
+      final MimeMessage message = new PrototypeMessage(session, prototype);
+      message.setSentDate(new Date());
+      message.addRecipients(bcc ? RecipientType.BCC : RecipientType.TO, recipients);
+      message.setSender(sender);
+      return message;
+    }
+    final MimeMessage message = new MimeMessage(session);
+    for (final Header header : headers) {
+      message.addHeader(header.getName(), header.getValue());
+    }
+    message.setSentDate(new Date());
+    message.addRecipients(bcc ? RecipientType.BCC : RecipientType.TO, recipients);
+    message.setSender(sender);
+    if (personalized && recipients.length == 1) {
+      setBody(message, getSalutation(recipients[0]), getUnsubscribeHint(recipients[0]) + signature);
+    } else {
+      setBody(message, "", signature);
+    }
+    return message;
+  }
+
+  private void setBody(final MimeMessage message, final String prefix, final String suffix) throws MessagingException {
+    if (attachments == null && logTail == null) {
+      setText(message, prefix, suffix);
+      return;
+    }
+    final MimeBodyPart textPart = new MimeBodyPart();
+    setText(textPart, prefix, suffix);
+    final MimeMultipart multipart = new MimeMultipart();
+    multipart.addBodyPart(textPart);
+    if (logTail != null) {
+      final MimeBodyPart logPart = new MimeBodyPart();
+      logPart.setText(logTail, mimeCharset, "plain");
+      logPart.setDisposition(MimeBodyPart.ATTACHMENT);
+      logPart.setFileName(LOG_TAIL_NAME);
+      multipart.addBodyPart(logPart);
+    }
+    if (attachments != null) {
+      attachments.addTo(multipart);
+    }
+    message.setContent(multipart);
+  }
+
+  private void setText(final MimePart part, final String prefix, final String suffix) throws MessagingException {
+    if (textFile == null) {
+      part.setText(prefix + text + suffix, mimeCharset, "plain");
+      return;
+    }
+    try {
+      part.setDataHandler(new DataHandler(new SignedFileDataSource(textFile, prefix, suffix, mimeCharset)));
+    } catch (UnsupportedEncodingException e) {
+      throw new MessagingException("Unsupported charset " + mimeCharset + ".", e);
+    }
+    // Avoid reading the whole file just to detect the transfer encoding.
+    part.setHeader("Content-Transfer-Encoding", "quoted-printable");
+  }
+
+  private static String getSalutation(final InternetAddress recipient) {
+    final String personal = recipient.getPersonal();
+    return "Hello " + (isEmpty(personal) ? recipient.getAddress() : personal) + "," + MailConstants.LF + MailConstants.LF;
+  }
+
+  private static String getUnsubscribeHint(final InternetAddress recipient) {
+    return MailConstants.LF + MailConstants.LF + String.format(UNSUBSCRIBE_HINT, recipient.getAddress());
+  }
+
+  /**
+   * Split the recipients into batches.
+   *
+   * @param addresses all recipients
+   * @param batchSize maximum number of recipients per batch; 0 or less for one batch
+   * @return the batches
+   */
+  static List<InternetAddress[]> getBatches(final InternetAddress[] addresses, final int batchSize) {
+    if (batchSize <= 0 || addresses.length <= batchSize) {
+      return Collections.singletonList(addresses);
+    }
+    final List<InternetAddress[]> batches = new ArrayList<InternetAddress[]>();
+    for (int from = 0; from < addresses.length; from += batchSize) {
+      final int to = Math.min(addresses.length, from + batchSize);
+      final InternetAddress[] batch = new InternetAddress[to - from];
+      System.arraycopy(addresses, from, batch, 0, batch.length);
+      batches.add(batch);
+    }
+    return batches;
+  }
+}
@@ -0,0 +1,72 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+
+import static org.codehaus.plexus.util.StringUtils.isEmpty;
+
+/**
+ * When to send the mail.
+ *
+ * @since 10/18/26 8:05 AM
+ */
+public enum NotificationMode {
+  /**
+   * Send the mail whenever the goal is executed.
+   */
+  ALWAYS("always"),
+  /**
+   * Send one mail at the end of the build if modules failed or recovered from a failure of an earlier build.
+   */
+  FAILURE("failure");
+
+  /**
+   * The value to configure the mode with.
+   */
+  private final String id;
+
+  /**
+   * Constructor.
+   *
+   * @param id the value to configure the mode with
+   */
+  NotificationMode(final String id) {
+    this.id = id;
+  }
+
+  /**
+   * Parses the given mode. Argument will be trimmed.
+   *
+   * @param arg the mode to parse; null and empty string will cause the default value to use.
+   * @param log where to log problems to
+   * @return the parsed mode; guaranteed to be non-null
+   */
+  public static NotificationMode parse(final String arg, final Log log) {
+    if (isEmpty(arg)) {
+      return ALWAYS;
+    }
+    final String trimmed = arg.trim();
+    for (final NotificationMode mode : values()) {
+      if (mode.id.equalsIgnoreCase(trimmed) || mode.name().equalsIgnoreCase(trimmed)) {
+        return mode;
+      }
+    }
+    log.warn("Could not parse notification mode '" + arg + "'. Using default mode.");
+    return ALWAYS;
+  }
+}
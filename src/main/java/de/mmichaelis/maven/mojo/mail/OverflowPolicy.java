@@ -0,0 +1,76 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+
+import static org.codehaus.plexus.util.StringUtils.isEmpty;
+
+/**
+ * What to do if the queue of mails to send in background is full.
+ *
+ * @since 10/17/26 9:15 PM
+ */
+public enum OverflowPolicy {
+  /**
+   * Wait until there is space in the queue.
+   */
+  BLOCK("block"),
+  /**
+   * Drop the oldest mail in the queue.
+   */
+  DROP_OLDEST("drop-oldest"),
+  /**
+   * Write the mail to the outbox directory.
+   */
+  SPOOL("spool");
+
+  /**
+   * The value to configure the policy with.
+   */
+  private final String id;
+
+  /**
+   * Constructor.
+   *
+   * @param id the value to configure the policy with
+   */
+  OverflowPolicy(final String id) {
+    this.id = id;
+  }
+
+  /**
+   * Parses the given policy. Argument will be trimmed.
+   *
+   * @param arg the policy to parse; null and empty string will cause the default value to use.
+   * @param log where to log problems to
+   * @return the parsed policy; guaranteed to be non-null
+   */
+  public static OverflowPolicy parse(final String arg, final Log log) {
+    if (isEmpty(arg)) {
+      return BLOCK;
+    }
+    final String trimmed = arg.trim();
+    for (final OverflowPolicy policy : values()) {
+      if (policy.id.equalsIgnoreCase(trimmed) || policy.name().equalsIgnoreCase(trimmed)) {
+        return policy;
+      }
+    }
+    log.warn("Could not parse overflow policy '" + arg + "'. Using default policy.");
+    return BLOCK;
+  }
+}
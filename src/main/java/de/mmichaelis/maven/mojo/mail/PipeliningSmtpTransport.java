@@ -0,0 +1,364 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import com.sun.mail.smtp.SMTPMessage;
+import com.sun.mail.smtp.SMTPSendFailedException;
+import com.sun.mail.smtp.SMTPTransport;
+import com.sun.mail.util.CRLFOutputStream;
+
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.URLName;
+import javax.mail.event.TransportEvent;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.codehaus.plexus.util.StringUtils.isEmpty;
+
+/**
+ * SMTP transport which saves round trips to high latency relays. If the relay advertises
+ * <code>PIPELINING</code> (RFC 2920) the envelope, <code>MAIL FROM</code> and all <code>RCPT TO</code>,
+ * is sent at once and the replies are read afterwards. If the relay advertises <code>CHUNKING</code>
+ * (RFC 3030) the message is sent in <code>BDAT</code> chunks which need neither dot-stuffing nor a scan for
+ * the end of data; with pipelining the chunks are sent without waiting for their replies. Relays supporting
+ * neither, as well as messages requiring delivery status notifications, are served by the standard transport.
+ * <p>
+ * Enable it by setting <code>mail.smtp.class</code> to this class, see {@link #enable(Properties)}. The size of
+ * the chunks can be configured by <code>mail.smtp.chunksize</code>.
+ * </p>
+ *
+ * @since 10/18/26 6:38 AM
+ */
+public class PipeliningSmtpTransport extends SMTPTransport {
+  /**
+   * Default size of BDAT chunks in bytes.
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+  private static final String[] IGNORED_HEADERS = {"Bcc", "Content-Length"};
+  private static final String CRLF = "\r\n";
+
+  /**
+   * The raw output stream to the relay which the standard transport does not expose.
+   */
+  private static final Field SERVER_OUTPUT = getServerOutputField();
+
+  /**
+   * Constructor used by {@link Session#getTransport()}.
+   *
+   * @param session the session
+   * @param urlname the URL of the relay
+   */
+  public PipeliningSmtpTransport(final Session session, final URLName urlname) {
+    super(session, urlname);
+  }
+
+  /**
+   * Get session properties which use this transport for SMTP.
+   *
+   * @param properties the properties to extend; <code>null</code> for none
+   * @return a copy of the properties using this transport
+   */
+  public static Properties enable(final Properties properties) {
+    final Properties enabled = new Properties();
+    if (properties != null) {
+      enabled.putAll(properties);
+    }
+    enabled.setProperty("mail.smtp.class", PipeliningSmtpTransport.class.getName());
+    return enabled;
+  }
+
+  @Override
+  public synchronized void sendMessage(final Message message, final Address[] addresses) throws MessagingException {
+    final boolean pipelining = supportsExtension("PIPELINING");
+    final boolean chunking = supportsExtension("CHUNKING");
+    final OutputStream out = pipelining || chunking ? getServerOutput() : null;
+    if (out == null || !isSupported(message, addresses)) {
+      super.sendMessage(message, addresses);
+      return;
+    }
+    checkConnected();
+    try {
+      final Address[][] envelope = sendEnvelope(out, (MimeMessage) message, addresses, pipelining);
+      final Address[] valid = envelope[0];
+      final Address[] invalid = envelope[1];
+      if (chunking) {
+        sendChunks(out, (MimeMessage) message, pipelining);
+      } else {
+        ((MimeMessage) message).writeTo(data(), IGNORED_HEADERS);
+        finishData();
+      }
+      if (invalid.length > 0) {
+        notifyTransportListeners(TransportEvent.MESSAGE_PARTIALLY_DELIVERED, valid, new Address[0], invalid, message);
+        throw new SendFailedException("Invalid Addresses", null, valid, new Address[0], invalid);
+      }
+      notifyTransportListeners(TransportEvent.MESSAGE_DELIVERED, valid, new Address[0], invalid, message);
+    } catch (ChunkRejectedException e) {
+      throw (MessagingException) e.getCause();
+    } catch (IOException e) {
+      throw new MessagingException("IOException while sending message", e);
+    }
+  }
+
+  private boolean isSupported(final Message message, final Address[] addresses) {
+    if (!(message instanceof MimeMessage) || message instanceof SMTPMessage || addresses == null || addresses.length == 0) {
+      return false;
+    }
+    if (session.getProperty("mail.smtp.dsn.notify") != null || session.getProperty("mail.smtp.dsn.ret") != null) {
+      return false;
+    }
+    for (final Address address : addresses) {
+      if (!(address instanceof InternetAddress) || ((InternetAddress) address).isGroup()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Send <code>MAIL FROM</code> and <code>RCPT TO</code>, all at once if pipelining.
+   *
+   * @return the accepted and the rejected recipients
+   */
+  private Address[][] sendEnvelope(final OutputStream out, final MimeMessage message, final Address[] addresses,
+                                   final boolean pipelining) throws IOException, MessagingException {
+    final List<String> commands = new ArrayList<String>(addresses.length + 1);
+    commands.add("MAIL FROM:<" + getEnvelopeFrom(message) + ">");
+    for (final Address address : addresses) {
+      commands.add("RCPT TO:<" + ((InternetAddress) address).getAddress() + ">");
+    }
+    final int[] codes = new int[commands.size()];
+    final String[] replies = new String[commands.size()];
+    if (pipelining) {
+      for (final String command : commands) {
+        writeCommand(out, command);
+      }
+      out.flush();
+      for (int i = 0; i < codes.length; i++) {
+        codes[i] = readServerResponse();
+        replies[i] = getLastServerResponse();
+      }
+    } else {
+      for (int i = 0; i < codes.length; i++) {
+        writeCommand(out, commands.get(i));
+        out.flush();
+        codes[i] = readServerResponse();
+        replies[i] = getLastServerResponse();
+      }
+    }
+    if (codes[0] != 250) {
+      reset();
+      throw new SMTPSendFailedException(commands.get(0), codes[0], replies[0], null, null, addresses, null);
+    }
+    final List<Address> valid = new ArrayList<Address>(addresses.length);
+    final List<Address> invalid = new ArrayList<Address>();
+    for (int i = 0; i < addresses.length; i++) {
+      if (codes[i + 1] == 250 || codes[i + 1] == 251) {
+        valid.add(addresses[i]);
+      } else {
+        invalid.add(addresses[i]);
+      }
+    }
+    final Address[] validArray = valid.toArray(new Address[valid.size()]);
+    final Address[] invalidArray = invalid.toArray(new Address[invalid.size()]);
+    if (validArray.length == 0 || (invalidArray.length > 0 && !isSendPartial())) {
+      reset();
+      notifyTransportListeners(TransportEvent.MESSAGE_NOT_DELIVERED, new Address[0], validArray, invalidArray, message);
+      throw new SendFailedException("Invalid Addresses", null, new Address[0], validArray, invalidArray);
+    }
+    return new Address[][]{validArray, invalidArray};
+  }
+
+  /**
+   * Send the message in BDAT chunks. Without pipelining each chunk waits for its reply. Unlike DATA
+   * there is no dot-stuffing, but bare line feeds still have to be sent as CRLF.
+   */
+  private void sendChunks(final OutputStream out, final MimeMessage message, final boolean pipelining)
+          throws IOException, MessagingException {
+    final ChunkOutputStream chunks = new ChunkOutputStream(out, getChunkSize(), pipelining);
+    message.writeTo(new CRLFOutputStream(chunks), IGNORED_HEADERS);
+    chunks.finish();
+  }
+
+  private String getEnvelopeFrom(final MimeMessage message) throws MessagingException {
+    final String from = session.getProperty("mail.smtp.from");
+    if (!isEmpty(from)) {
+      return from;
+    }
+    final Address[] froms = message.getFrom();
+    if (froms != null && froms.length > 0 && froms[0] instanceof InternetAddress) {
+      return ((InternetAddress) froms[0]).getAddress();
+    }
+    final InternetAddress local = InternetAddress.getLocalAddress(session);
+    if (local == null) {
+      throw new MessagingException("can't determine local email address");
+    }
+    return local.getAddress();
+  }
+
+  private boolean isSendPartial() {
+    return Boolean.valueOf(session.getProperty("mail.smtp.sendpartial"));
+  }
+
+  private int getChunkSize() {
+    final String value = session.getProperty("mail.smtp.chunksize");
+    if (!isEmpty(value)) {
+      try {
+        return Math.max(1, Integer.parseInt(value.trim()));
+      } catch (NumberFormatException ignored) {
+        // use default
+      }
+    }
+    return DEFAULT_CHUNK_SIZE;
+  }
+
+  private void reset() {
+    try {
+      simpleCommand("RSET");
+    } catch (MessagingException ignored) {
+      // connection is discarded by the caller anyway
+    }
+  }
+
+  private void writeCommand(final OutputStream out, final String command) throws IOException {
+    if (session.getDebug()) {
+      session.getDebugOut().println(command);
+    }
+    out.write((command + CRLF).getBytes("US-ASCII"));
+  }
+
+  private OutputStream getServerOutput() {
+    if (SERVER_OUTPUT == null) {
+      return null;
+    }
+    try {
+      return (OutputStream) SERVER_OUTPUT.get(this);
+    } catch (IllegalAccessException e) {
+      return null;
+    }
+  }
+
+  private static Field getServerOutputField() {
+    try {
+      final Field field = SMTPTransport.class.getDeclaredField("serverOutput");
+      field.setAccessible(true);
+      return field;
+    } catch (Exception e) {
+      // other JavaMail version; fall back to the standard transport
+      return null;
+    }
+  }
+
+  /**
+   * Writes the data in BDAT chunks; the last chunk is written on {@link #finish()}.
+   */
+  private final class ChunkOutputStream extends OutputStream {
+    private final OutputStream out;
+    private final byte[] buffer;
+    private final boolean pipelining;
+    private int count;
+    private int pending;
+
+    private ChunkOutputStream(final OutputStream out, final int size, final boolean pipelining) {
+      this.out = out;
+      this.buffer = new byte[size];
+      this.pipelining = pipelining;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      if (count == buffer.length) {
+        flushChunk(false);
+      }
+      buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      int offset = off;
+      int remaining = len;
+      while (remaining > 0) {
+        if (count == buffer.length) {
+          flushChunk(false);
+        }
+        final int n = Math.min(remaining, buffer.length - count);
+        System.arraycopy(b, offset, buffer, count, n);
+        count += n;
+        offset += n;
+        remaining -= n;
+      }
+    }
+
+    private void finish() throws IOException, MessagingException {
+      flushChunk(true);
+      readReplies();
+    }
+
+    private void flushChunk(final boolean last) throws IOException {
+      final String command = "BDAT " + count + (last ? " LAST" : "");
+      writeCommand(out, command);
+      out.write(buffer, 0, count);
+      count = 0;
+      pending++;
+      if (!pipelining || last) {
+        out.flush();
+      }
+      if (!pipelining && !last) {
+        try {
+          readReplies();
+        } catch (MessagingException e) {
+          throw new ChunkRejectedException(e);
+        }
+      }
+    }
+
+    private void readReplies() throws MessagingException {
+      MessagingException failure = null;
+      for (; pending > 0; pending--) {
+        final int code = readServerResponse();
+        if (code != 250 && failure == null) {
+          failure = new SMTPSendFailedException("BDAT", code, getLastServerResponse(), null, null, null, null);
+        }
+      }
+      if (failure != null) {
+        throw failure;
+      }
+    }
+  }
+
+  /**
+   * Transports a rejected chunk through {@link MimeMessage#writeTo(OutputStream)}.
+   */
+  private static final class ChunkRejectedException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private ChunkRejectedException(final MessagingException cause) {
+      super(cause.getMessage());
+      initCause(cause);
+    }
+  }
+}
@@ -0,0 +1,56 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import javax.mail.util.SharedByteArrayInputStream;
+
+/**
+ * Message created from a prototype which is already completely encoded. Headers and body are parsed
+ * from the shared bytes without copying them. Headers added afterwards, like the recipients, are written
+ * as they are while the body is written as is without encoding it again.
+ *
+ * @since 10/18/26 9:10 AM
+ */
+final class PrototypeMessage extends MimeMessage {
+  /**
+   * Constructor.
+   *
+   * @param session the session the message is sent with
+   * @param encoded the encoded prototype; must not be modified afterwards
+   * @throws MessagingException if the prototype cannot be parsed
+   */
+  PrototypeMessage(final Session session, final byte[] encoded) throws MessagingException {
+    super(session, new SharedByteArrayInputStream(encoded));
+    // the prototype contains no Message-ID, thus make sure it is added before the message is written
+    saved = false;
+  }
+
+  /**
+   * Only update the Message-ID. Updating the other headers would mark the body as modified and
+   * thus encode it again when written.
+   *
+   * @throws MessagingException if the Message-ID cannot be set
+   */
+  @Override
+  public void saveChanges() throws MessagingException {
+    updateMessageID();
+    saved = true;
+  }
+}
@@ -0,0 +1,34 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import javax.mail.MessagingException;
+
+/**
+ * Signals that a message was not sent because the relay failed repeatedly before and the circuit
+ * breaker of the relay is open.
+ *
+ * @see MailCircuitBreaker
+ * @since 10/18/26 12:04 PM
+ */
+public class RelayUnavailableException extends MessagingException {
+  private static final long serialVersionUID = 1L;
+
+  public RelayUnavailableException(final String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,87 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import javax.activation.DataSource;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UnsupportedEncodingException;
+
+import static javax.mail.internet.MimeUtility.javaCharset;
+
+/**
+ * Plain text body which is streamed from a file. The file is surrounded by a prefix, such as a salutation,
+ * and a suffix, such as the signature. The file is never loaded into memory as a whole.
+ *
+ * @since 10/17/26 10:41 PM
+ */
+final class SignedFileDataSource implements DataSource {
+  private final File file;
+  private final byte[] prefix;
+  private final byte[] suffix;
+  private final String contentType;
+
+  /**
+   * Constructor.
+   *
+   * @param file        the file containing the text; expected to be encoded in the given charset
+   * @param prefix      text to put before the file content
+   * @param suffix      text to put after the file content
+   * @param mimeCharset the charset of the file in MIME format; <code>null</code> for platform encoding
+   * @throws UnsupportedEncodingException if the charset is not supported
+   */
+  SignedFileDataSource(final File file, final String prefix, final String suffix, final String mimeCharset) throws UnsupportedEncodingException {
+    this.file = file;
+    if (mimeCharset == null) {
+      this.prefix = prefix.getBytes();
+      this.suffix = suffix.getBytes();
+      contentType = "text/plain";
+    } else {
+      final String javaCharset = javaCharset(mimeCharset);
+      this.prefix = prefix.getBytes(javaCharset);
+      this.suffix = suffix.getBytes(javaCharset);
+      contentType = "text/plain; charset=" + mimeCharset;
+    }
+  }
+
+  @Override
+  public InputStream getInputStream() throws IOException {
+    final InputStream content = new SequenceInputStream(new BufferedInputStream(new FileInputStream(file)), new ByteArrayInputStream(suffix));
+    return new SequenceInputStream(new ByteArrayInputStream(prefix), content);
+  }
+
+  @Override
+  public OutputStream getOutputStream() throws IOException {
+    throw new IOException("Read only data source: " + file.getAbsolutePath());
+  }
+
+  @Override
+  public String getContentType() {
+    return contentType;
+  }
+
+  @Override
+  public String getName() {
+    return file.getName();
+  }
+}
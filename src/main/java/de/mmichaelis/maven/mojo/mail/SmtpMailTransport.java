@@ -0,0 +1,58 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import java.util.List;
+
+/**
+ * Delivers mails to the configured SMTP relay. Connections are shared with all other deliveries
+ * through the {@link MailTransportPool}, rate limits of the relay apply.
+ *
+ * @since 10/18/26 11:31 AM
+ */
+public final class SmtpMailTransport implements MailTransport {
+  /**
+   * Name of the transport.
+   */
+  public static final String NAME = "smtp";
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public MessagingException[] send(final Session session, final List<MimeMessage> messages, final Log log, final MailMetrics metrics) {
+    final MessagingException[] failures = new MessagingException[messages.size()];
+    final MailTransportPool pool = MailTransportPool.getInstance();
+    for (int i = 0; i < failures.length; i++) {
+      try {
+        pool.send(session, messages.get(i), log, metrics);
+      } catch (MessagingException e) {
+        failures[i] = e;
+      } catch (RuntimeException e) {
+        failures[i] = new MessagingException("Failed to send message.", e);
+      }
+    }
+    return failures;
+  }
+}
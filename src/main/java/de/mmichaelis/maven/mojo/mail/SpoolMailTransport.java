@@ -0,0 +1,66 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import java.io.File;
+import java.util.List;
+
+/**
+ * Stores mails in the outbox instead of sending them. Useful for offline builds: the <code>flush</code>
+ * goal sends the stored mails later on.
+ *
+ * @since 10/18/26 11:35 AM
+ * @see MailOutbox
+ */
+public final class SpoolMailTransport implements MailTransport {
+  /**
+   * Name of the transport.
+   */
+  public static final String NAME = "spool";
+  /**
+   * Session property containing the outbox directory.
+   */
+  public static final String DIRECTORY_PROPERTY = "mail.outbox.directory";
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public MessagingException[] send(final Session session, final List<MimeMessage> messages, final Log log, final MailMetrics metrics) {
+    final String directory = session.getProperty(DIRECTORY_PROPERTY);
+    final MailOutbox outbox = new MailOutbox(directory == null ? null : new File(directory));
+    final MessagingException[] failures = new MessagingException[messages.size()];
+    for (int i = 0; i < failures.length; i++) {
+      try {
+        final MimeMessage message = messages.get(i);
+        message.saveChanges();
+        log.debug("Stored mail in " + outbox.store(message).getAbsolutePath());
+        metrics.recordSpooled();
+      } catch (MessagingException e) {
+        failures[i] = e;
+      }
+    }
+    return failures;
+  }
+}
@@ -0,0 +1,177 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import javax.activation.DataHandler;
+import javax.activation.DataSource;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Zip archive of files which is compressed while it is written. When sending, {@link Handler}
+ * compresses the files straight into the SMTP data stream.
+ *
+ * @since 10/18/26 1:31 AM
+ */
+final class ZipDataSource implements DataSource {
+  private static final int BUFFER_SIZE = 8192;
+
+  private final File basedir;
+  private final List<String> paths;
+  private final String name;
+
+  /**
+   * Constructor.
+   *
+   * @param basedir the directory the paths are relative to
+   * @param paths   the paths of the files which are also used as entry names
+   * @param name    the name of the archive
+   */
+  ZipDataSource(final File basedir, final List<String> paths, final String name) {
+    this.basedir = basedir;
+    this.paths = paths;
+    this.name = name;
+  }
+
+  /**
+   * Compress the files to the given stream. The stream is not closed.
+   *
+   * @param out where to write the archive to
+   * @throws IOException if reading a file or writing the archive fails
+   */
+  void writeTo(final OutputStream out) throws IOException {
+    final ZipOutputStream zip = new ZipOutputStream(out);
+    final byte[] buffer = new byte[BUFFER_SIZE];
+    for (final String path : paths) {
+      zip.putNextEntry(new ZipEntry(path.replace(File.separatorChar, '/')));
+      final InputStream in = new BufferedInputStream(new FileInputStream(new File(basedir, path)));
+      try {
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+          zip.write(buffer, 0, read);
+        }
+      } finally {
+        in.close();
+      }
+      zip.closeEntry();
+    }
+    zip.finish();
+  }
+
+  /**
+   * Provide the archive as stream. Only used if the archive is not written directly via
+   * {@link Handler}; the archive is then compressed by a background thread. If compressing fails
+   * the failure is thrown to the reader at the end of the stream.
+   *
+   * @return the archive
+   * @throws IOException if creating the pipe fails
+   */
+  @Override
+  public InputStream getInputStream() throws IOException {
+    final Pipe in = new Pipe();
+    final PipedOutputStream out = new PipedOutputStream(in);
+    final Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          writeTo(out);
+        } catch (IOException e) {
+          in.failure = e;
+        } finally {
+          try {
+            out.close();
+          } catch (IOException ignored) {
+            // nothing to do
+          }
+        }
+      }
+    }, "maven-mail-plugin zip " + name);
+    thread.setDaemon(true);
+    thread.start();
+    return in;
+  }
+
+  @Override
+  public OutputStream getOutputStream() throws IOException {
+    throw new IOException("Read only data source: " + name);
+  }
+
+  @Override
+  public String getContentType() {
+    return "application/zip";
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Pipe which reports a failure of the writing thread instead of a truncated archive.
+   */
+  private final class Pipe extends PipedInputStream {
+    private volatile IOException failure;
+
+    Pipe() {
+      super(BUFFER_SIZE);
+    }
+
+    @Override
+    public synchronized int read() throws IOException {
+      return checkFailure(super.read());
+    }
+
+    @Override
+    public synchronized int read(final byte[] b, final int off, final int len) throws IOException {
+      return checkFailure(super.read(b, off, len));
+    }
+
+    private int checkFailure(final int read) throws IOException {
+      if (read == -1 && failure != null) {
+        throw new IOException("Failed to compress archive " + name + ".", failure);
+      }
+      return read;
+    }
+  }
+
+  /**
+   * Writes the archive directly to the message stream instead of copying it from
+   * {@link ZipDataSource#getInputStream()}.
+   */
+  static final class Handler extends DataHandler {
+    private final ZipDataSource dataSource;
+
+    Handler(final ZipDataSource dataSource) {
+      super(dataSource);
+      this.dataSource = dataSource;
+    }
+
+    @Override
+    public void writeTo(final OutputStream out) throws IOException {
+      dataSource.writeTo(out);
+    }
+  }
+}
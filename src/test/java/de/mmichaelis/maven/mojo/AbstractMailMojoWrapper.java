@@ -16,12 +16,15 @@
 
 package de.mmichaelis.maven.mojo;
 
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 
+import java.io.File;
 import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
 
 import static org.powermock.api.support.membermodification.MemberMatcher.field;
 
@@ -33,7 +36,11 @@ public class AbstractMailMojoWrapper<T extends AbstractMailMojo> extends Abstrac
   public AbstractMailMojoWrapper(final T mojo) throws IllegalAccessException {
     super(mojo);
 
-    addFields("skip", "from", "smtphost", "smtpport", "expires", "charset", "priority", "failOnError", "topic", "subject", "dryRun");
+    addFields("skip", "from", "smtphost", "smtpport", "expires", "charset", "priority", "failOnError", "topic", "subject", "dryRun", "dryRunDirectory", "maxConnections", "connectionIdleTimeout",
+            "recipientBatchSize", "recipientsAsBcc", "batchThreads", "personalized", "basedir",
+            "sessionProperties", "spoolOnFailure", "outboxDirectory", "metrics", "metricsFile", "session", "logTail",
+            "notify", "notifyStateFile", "suppressWindow", "suppressFile",
+            "transport", "digest", "async");
 
     /* Defaults */
     setSkip(false);
@@ -46,6 +53,12 @@ public class AbstractMailMojoWrapper<T extends AbstractMailMojo> extends Abstrac
     setTopic("maven-mail-plugin");
     setSubject("de.mmichaelis:maven-mail-plugin: Automatic Email");
     setDryRun(false);
+    setMaxConnections(2);
+    setConnectionIdleTimeout(30);
+    setRecipientBatchSize(0);
+    setRecipientsAsBcc(false);
+    setBatchThreads(1);
+    setPersonalized(false);
   }
 
   public T getMojo() {
@@ -99,4 +112,92 @@ public class AbstractMailMojoWrapper<T extends AbstractMailMojo> extends Abstrac
   public void setDryRun(final boolean dryRun) throws IllegalAccessException {
     fieldMap.get("dryRun").set(wrapped, dryRun);
   }
+
+  public void setDryRunDirectory(final File dryRunDirectory) throws IllegalAccessException {
+    fieldMap.get("dryRunDirectory").set(wrapped, dryRunDirectory);
+  }
+
+  public void setMaxConnections(final int maxConnections) throws IllegalAccessException {
+    fieldMap.get("maxConnections").set(wrapped, maxConnections);
+  }
+
+  public void setConnectionIdleTimeout(final int connectionIdleTimeout) throws IllegalAccessException {
+    fieldMap.get("connectionIdleTimeout").set(wrapped, connectionIdleTimeout);
+  }
+
+  public void setRecipientBatchSize(final int recipientBatchSize) throws IllegalAccessException {
+    fieldMap.get("recipientBatchSize").set(wrapped, recipientBatchSize);
+  }
+
+  public void setRecipientsAsBcc(final boolean recipientsAsBcc) throws IllegalAccessException {
+    fieldMap.get("recipientsAsBcc").set(wrapped, recipientsAsBcc);
+  }
+
+  public void setBatchThreads(final int batchThreads) throws IllegalAccessException {
+    fieldMap.get("batchThreads").set(wrapped, batchThreads);
+  }
+
+  public void setPersonalized(final boolean personalized) throws IllegalAccessException {
+    fieldMap.get("personalized").set(wrapped, personalized);
+  }
+
+  public void setBasedir(final File basedir) throws IllegalAccessException {
+    fieldMap.get("basedir").set(wrapped, basedir);
+  }
+
+  public void setSessionProperties(final Properties sessionProperties) throws IllegalAccessException {
+    fieldMap.get("sessionProperties").set(wrapped, sessionProperties);
+  }
+
+  public void setSpoolOnFailure(final boolean spoolOnFailure) throws IllegalAccessException {
+    fieldMap.get("spoolOnFailure").set(wrapped, spoolOnFailure);
+  }
+
+  public void setOutboxDirectory(final File outboxDirectory) throws IllegalAccessException {
+    fieldMap.get("outboxDirectory").set(wrapped, outboxDirectory);
+  }
+
+  public void setMetrics(final boolean metrics) throws IllegalAccessException {
+    fieldMap.get("metrics").set(wrapped, metrics);
+  }
+
+  public void setMetricsFile(final File metricsFile) throws IllegalAccessException {
+    fieldMap.get("metricsFile").set(wrapped, metricsFile);
+  }
+
+  public void setLogTail(final int logTail) throws IllegalAccessException {
+    fieldMap.get("logTail").set(wrapped, logTail);
+  }
+
+  public void setNotify(final String notify) throws IllegalAccessException {
+    fieldMap.get("notify").set(wrapped, notify);
+  }
+
+  public void setNotifyStateFile(final File notifyStateFile) throws IllegalAccessException {
+    fieldMap.get("notifyStateFile").set(wrapped, notifyStateFile);
+  }
+
+  public void setSuppressWindow(final int suppressWindow) throws IllegalAccessException {
+    fieldMap.get("suppressWindow").set(wrapped, suppressWindow);
+  }
+
+  public void setSuppressFile(final File suppressFile) throws IllegalAccessException {
+    fieldMap.get("suppressFile").set(wrapped, suppressFile);
+  }
+
+  public void setTransport(final String transport) throws IllegalAccessException {
+    fieldMap.get("transport").set(wrapped, transport);
+  }
+
+  public void setDigest(final boolean digest) throws IllegalAccessException {
+    fieldMap.get("digest").set(wrapped, digest);
+  }
+
+  public void setAsync(final boolean async) throws IllegalAccessException {
+    fieldMap.get("async").set(wrapped, async);
+  }
+
+  public void setSession(final MavenSession session) throws IllegalAccessException {
+    fieldMap.get("session").set(wrapped, session);
+  }
 }
@@ -16,10 +16,21 @@
 
 package de.mmichaelis.maven.mojo;
 
+import de.mmichaelis.maven.mojo.mail.BuildLogCapture;
+import de.mmichaelis.maven.mojo.mail.MailOutbox;
+import de.mmichaelis.maven.mojo.mail.MemoryMailTransport;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.time.DateUtils;
+import org.apache.maven.execution.BuildFailure;
+import org.apache.maven.execution.BuildSuccess;
+import org.apache.maven.execution.BuildSummary;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.MavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Developer;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.FileUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -28,11 +39,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.mail.Address;
+import javax.mail.BodyPart;
 import javax.mail.Message;
+import javax.mail.Multipart;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.io.File;
 import java.io.InputStream;
 import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.Properties;
+import java.util.zip.ZipInputStream;
 
 import static org.junit.Assert.*;
 import static org.powermock.api.mockito.PowerMockito.mock;
@@ -54,7 +73,9 @@ public class MailDevelopersMojoTest {
   private static final int MAX_DEVELOPERS = 4;
 
   private MailDevelopersMojoWrapper mojoWrapper;
+  private MessageWrapper messageWrapper;
   private Developer[] developers;
+  private File basedir;
 
   @Before
   public void setUp() throws Exception {
@@ -71,11 +92,15 @@ public class MailDevelopersMojoTest {
     final MessageWrapper messageWrapper = new MessageWrapper(new de.mmichaelis.maven.mojo.Message());
     messageWrapper.setText("Lorem Ipsum Dolor Sit Amet.");
     mojoWrapper.setMessage(messageWrapper.getWrapped());
+    this.messageWrapper = messageWrapper;
   }
 
   @After
   public void tearDown() throws Exception {
     Mailbox.clearAll();
+    if (basedir != null) {
+      FileUtils.deleteDirectory(basedir);
+    }
   }
 
   @Test
@@ -121,6 +146,335 @@ public class MailDevelopersMojoTest {
     }
   }
 
+  @Test
+  public void testDuplicateDevelopersGetOneMail() throws Exception {
+    final Developer duplicate = new Developer();
+    duplicate.setId("duplicate");
+    duplicate.setEmail(" DEV0@Example.org");
+    duplicate.setName("Duplicate");
+    final MavenProject project = mock(MavenProject.class);
+    when(project.getDevelopers()).thenReturn(Arrays.asList(developers[0], duplicate, developers[1]));
+    mojoWrapper.setProject(project);
+    mojoWrapper.setPersonalized(true);
+    mojoWrapper.execute();
+    final Mailbox inbox = Mailbox.get(developers[0].getEmail());
+    assertEquals("Should have received one email.", 1, inbox.size());
+    assertTrue("Should greet the first developer.", ((String) inbox.get(0).getContent()).startsWith("Hello Deve Loper 0,"));
+    assertEquals("Other developer should have received one email.", 1, Mailbox.get(developers[1].getEmail()).size());
+  }
+
+  @Test
+  public void testTemplate() throws Exception {
+    final MavenProject project = mock(MavenProject.class);
+    when(project.getDevelopers()).thenReturn(Arrays.asList(developers[0]));
+    when(project.getArtifactId()).thenReturn("demo-module");
+    final MavenExecutionResult result = mock(MavenExecutionResult.class);
+    when(result.getExceptions()).thenReturn(Arrays.<Throwable>asList(new IllegalStateException()));
+    final MavenSession session = mock(MavenSession.class);
+    when(session.getCurrentProject()).thenReturn(project);
+    when(session.getResult()).thenReturn(result);
+    when(session.getRequest()).thenReturn(new DefaultMavenExecutionRequest());
+    mojoWrapper.setProject(project);
+    mojoWrapper.setSession(session);
+    messageWrapper.setText("Module ${project.artifactId}: ${build.result} (${build.failures}), ${project.unknown} ${env.HOME}");
+    messageWrapper.setTemplate(true);
+    mojoWrapper.execute();
+    final Mailbox inbox = Mailbox.get(developers[0].getEmail());
+    assertEquals("Should have received one email.", 1, inbox.size());
+    assertTrue("Should have rendered the template.", ((String) inbox.get(0).getContent())
+            .startsWith("Module demo-module: FAILURE (1), ${project.unknown} ${env.HOME}"));
+  }
+
+  @Test
+  public void testLogTail() throws Exception {
+    final MavenProject project = mock(MavenProject.class);
+    when(project.getDevelopers()).thenReturn(Arrays.asList(developers[0]));
+    mojoWrapper.setProject(project);
+    mojoWrapper.setLogTail(1);
+    BuildLogCapture.install(1);
+    try {
+      System.out.println("[INFO] captured build output");
+      mojoWrapper.execute();
+    } finally {
+      BuildLogCapture.uninstall();
+    }
+    final Mailbox inbox = Mailbox.get(developers[0].getEmail());
+    assertEquals("Should have received one email.", 1, inbox.size());
+    final Multipart multipart = (Multipart) inbox.get(0).getContent();
+    assertEquals("Should contain text and log.", 2, multipart.getCount());
+    final BodyPart log = multipart.getBodyPart(1);
+    assertEquals("build-log-tail.txt", log.getFileName());
+    assertTrue("Should contain the output.", ((String) log.getContent()).contains("[INFO] captured build output"));
+  }
+
+  @Test
+  public void testNotifyOnFailureAndRecovery() throws Exception {
+    basedir = File.createTempFile("notify", "");
+    assertTrue(basedir.delete());
+    final File stateFile = new File(basedir, "notify-state.properties");
+    final MavenProject project = mock(MavenProject.class);
+    when(project.getDevelopers()).thenReturn(Arrays.asList(developers[0]));
+    when(project.getGroupId()).thenReturn("org.example");
+    when(project.getArtifactId()).thenReturn("demo-module");
+    mojoWrapper.setProject(project);
+    mojoWrapper.setNotify("failure");
+    mojoWrapper.setNotifyStateFile(stateFile);
+
+    runNotifyingBuild(project, new BuildFailure(project, 1L, new IllegalStateException("broken")));
+    final Mailbox inbox = Mailbox.get(developers[0].getEmail());
+    assertEquals("Should have received one email for the failure.", 1, inbox.size());
+    assertTrue("Should name the failed module.", inbox.get(0).getSubject().endsWith("1 module failed"));
+    assertTrue("Should list the failed module.", ((String) inbox.get(0).getContent())
+            .startsWith("[FAILED]    org.example:demo-module: broken"));
+
+    runNotifyingBuild(project, new BuildSuccess(project, 1L));
+    assertEquals("Should have received one email for the recovery.", 2, inbox.size());
+    assertTrue("Should list the recovered module.", ((String) inbox.get(1).getContent())
+            .startsWith("[RECOVERED] org.example:demo-module"));
+
+    runNotifyingBuild(project, new BuildSuccess(project, 1L));
+    assertEquals("Should not send mails for successful builds.", 2, inbox.size());
+  }
+
+  @Test
+  public void testNotifySharedState() throws Exception {
+    basedir = File.createTempFile("notify", "");
+    assertTrue(basedir.delete());
+    final File stateFile = new File(basedir, "notify-state.properties");
+    final MavenProject project = mock(MavenProject.class);
+    when(project.getDevelopers()).thenReturn(Arrays.asList(developers[0]));
+    when(project.getGroupId()).thenReturn("org.example");
+    when(project.getArtifactId()).thenReturn("demo-module");
+    mojoWrapper.setProject(project);
+    mojoWrapper.setNotify("failure");
+    mojoWrapper.setNotifyStateFile(stateFile);
+    final MavenProject otherProject = mock(MavenProject.class);
+    when(otherProject.getDevelopers()).thenReturn(Arrays.asList(developers[1]));
+    final MailDevelopersMojoWrapper otherWrapper = new MailDevelopersMojoWrapper(new MailDevelopersMojo());
+    otherWrapper.setMessage(messageWrapper.getWrapped());
+    otherWrapper.setProject(otherProject);
+    otherWrapper.setNotify("failure");
+    otherWrapper.setNotifyStateFile(stateFile);
+
+    runNotifyingBuild(project, new BuildFailure(project, 1L, new IllegalStateException("broken")), otherWrapper);
+    runNotifyingBuild(project, new BuildSuccess(project, 1L), otherWrapper);
+    for (final Developer developer : Arrays.asList(developers[0], developers[1])) {
+      final Mailbox inbox = Mailbox.get(developer.getEmail());
+      assertEquals("Should have received mails for failure and recovery.", 2, inbox.size());
+      assertTrue("Should list the recovered module.", ((String) inbox.get(1).getContent())
+              .startsWith("[RECOVERED] org.example:demo-module"));
+    }
+  }
+
+  private void runNotifyingBuild(final MavenProject project, final BuildSummary summary,
+                                 final MailDevelopersMojoWrapper... otherWrappers) throws Exception {
+    final MavenExecutionResult result = mock(MavenExecutionResult.class);
+    when(result.getBuildSummary(project)).thenReturn(summary);
+    final MavenSession session = mock(MavenSession.class);
+    final DefaultMavenExecutionRequest request = new DefaultMavenExecutionRequest();
+    when(session.getCurrentProject()).thenReturn(project);
+    when(session.getProjects()).thenReturn(Arrays.asList(project));
+    when(session.getResult()).thenReturn(result);
+    when(session.getRequest()).thenReturn(request);
+    mojoWrapper.setSession(session);
+    final int received = Mailbox.get(developers[0].getEmail()).size();
+    mojoWrapper.execute();
+    for (final MailDevelopersMojoWrapper otherWrapper : otherWrappers) {
+      otherWrapper.setSession(session);
+      otherWrapper.execute();
+    }
+    assertEquals("Mail should be deferred to the end of the session.", received, Mailbox.get(developers[0].getEmail()).size());
+    request.getExecutionListener().sessionEnded(null);
+  }
+
+  @Test
+  public void testDigestGroupsByRecipients() throws Exception {
+    final MavenProject project = mock(MavenProject.class);
+    when(project.getDevelopers()).thenReturn(Arrays.asList(developers[0]));
+    final MavenProject otherProject = mock(MavenProject.class);
+    when(otherProject.getDevelopers()).thenReturn(Arrays.asList(developers[1]));
+    final DefaultMavenExecutionRequest request = new DefaultMavenExecutionRequest();
+    final MavenSession session = mock(MavenSession.class);
+    when(session.getRequest()).thenReturn(request);
+    mojoWrapper.setSession(session);
+    mojoWrapper.setDigest(true);
+    mojoWrapper.setProject(project);
+    mojoWrapper.setSubject("First");
+    mojoWrapper.execute();
+    mojoWrapper.setSubject("Second");
+    mojoWrapper.execute();
+    mojoWrapper.setProject(otherProject);
+    mojoWrapper.setSubject("Other");
+    mojoWrapper.execute();
+    assertEquals("Should collect mails until the session ends.", 0, Mailbox.get(developers[0].getEmail()).size());
+
+    request.getExecutionListener().sessionEnded(null);
+    final Mailbox inbox = Mailbox.get(developers[0].getEmail());
+    assertEquals("Should send one digest per set of recipients.", 1, inbox.size());
+    assertTrue(inbox.get(0).getSubject(), inbox.get(0).getSubject().endsWith("Digest of 2 notifications"));
+    final String text = (String) inbox.get(0).getContent();
+    assertTrue(text, text.contains("=== First ===") && text.contains("=== Second ==="));
+    final Mailbox otherInbox = Mailbox.get(developers[1].getEmail());
+    assertEquals("Should send one digest per set of recipients.", 1, otherInbox.size());
+    assertTrue("Single mail keeps its subject.", otherInbox.get(0).getSubject().endsWith("Other"));
+  }
+
+  @Test
+  public void testSuppressIdenticalMails() throws Exception {
+    basedir = File.createTempFile("suppress", "");
+    assertTrue(basedir.delete());
+    final MavenProject project = mock(MavenProject.class);
+    when(project.getDevelopers()).thenReturn(Arrays.asList(developers[0]));
+    mojoWrapper.setProject(project);
+    mojoWrapper.setSuppressWindow(10);
+    mojoWrapper.setSuppressFile(new File(basedir, "suppressed-mails.txt"));
+    mojoWrapper.execute();
+    mojoWrapper.execute();
+    mojoWrapper.execute();
+    assertEquals("Should have suppressed identical mails.", 1, Mailbox.get(developers[0].getEmail()).size());
+    mojoWrapper.setSubject("Other subject");
+    mojoWrapper.execute();
+    assertEquals("Should send mails with other subject.", 2, Mailbox.get(developers[0].getEmail()).size());
+  }
+
+  @Test
+  public void testMemoryTransport() throws Exception {
+    final MavenProject project = mock(MavenProject.class);
+    when(project.getDevelopers()).thenReturn(Arrays.asList(developers));
+    mojoWrapper.setProject(project);
+    mojoWrapper.setTransport("memory");
+    mojoWrapper.setRecipientBatchSize(1);
+    mojoWrapper.setBatchThreads(2);
+    MemoryMailTransport.clear();
+    try {
+      mojoWrapper.execute();
+      assertEquals("Should deliver one message per developer.", MAX_DEVELOPERS, MemoryMailTransport.getMessages().size());
+    } finally {
+      MemoryMailTransport.clear();
+    }
+    assertEquals("Should not send via SMTP.", 0, Mailbox.get(developers[0].getEmail()).size());
+  }
+
+  @Test
+  public void testSpoolTransport() throws Exception {
+    basedir = File.createTempFile("spool", "");
+    assertTrue(basedir.delete());
+    final File outbox = new File(basedir, "outbox");
+    final MavenProject project = mock(MavenProject.class);
+    when(project.getDevelopers()).thenReturn(Arrays.asList(developers[0]));
+    mojoWrapper.setProject(project);
+    mojoWrapper.setTransport("spool");
+    mojoWrapper.setOutboxDirectory(outbox);
+    mojoWrapper.execute();
+    assertEquals("Should store the mail in the outbox.", 1, outbox.list().length);
+    assertEquals("Should not send via SMTP.", 0, Mailbox.get(developers[0].getEmail()).size());
+  }
+
+  @Test
+  public void testDryRunKeepsOutbox() throws Exception {
+    basedir = File.createTempFile("dry-run", "");
+    assertTrue(basedir.delete());
+    final File outbox = new File(basedir, "outbox");
+    final Session mailSession = Session.getInstance(new Properties());
+    final MimeMessage stored = new MimeMessage(mailSession);
+    stored.setRecipient(Message.RecipientType.TO, new InternetAddress(developers[0].getEmail()));
+    stored.setSubject("Stored");
+    stored.setText("Stored by an earlier build.");
+    stored.saveChanges();
+    new MailOutbox(outbox).store(stored);
+    final MavenProject project = mock(MavenProject.class);
+    when(project.getDevelopers()).thenReturn(Arrays.asList(developers[0]));
+    final DefaultMavenExecutionRequest request = new DefaultMavenExecutionRequest();
+    final MavenSession session = mock(MavenSession.class);
+    when(session.getRequest()).thenReturn(request);
+    mojoWrapper.setSession(session);
+    mojoWrapper.setProject(project);
+    mojoWrapper.setDryRun(true);
+    mojoWrapper.setDryRunDirectory(new File(basedir, "dry-run"));
+    mojoWrapper.setSpoolOnFailure(true);
+    mojoWrapper.setOutboxDirectory(outbox);
+    mojoWrapper.execute();
+    request.getExecutionListener().sessionEnded(null);
+    assertEquals("Should keep the stored mail.", 1, outbox.list().length);
+    assertEquals("Should not send via SMTP.", 0, Mailbox.get(developers[0].getEmail()).size());
+  }
+
+  @Test(expected = MojoExecutionException.class)
+  public void testUnknownTransport() throws Exception {
+    final MavenProject project = mock(MavenProject.class);
+    when(project.getDevelopers()).thenReturn(Arrays.asList(developers[0]));
+    mojoWrapper.setProject(project);
+    mojoWrapper.setFailOnError(true);
+    mojoWrapper.setTransport("carrier-pigeon");
+    mojoWrapper.execute();
+  }
+
+  @Test
+  public void testMailToDevelopersInBatches() throws Exception {
+    final MavenProject project = mock(MavenProject.class);
+    when(project.getDevelopers()).thenReturn(Arrays.asList(developers));
+    mojoWrapper.setProject(project);
+    mojoWrapper.setRecipientBatchSize(3);
+    mojoWrapper.setRecipientsAsBcc(true);
+    mojoWrapper.setBatchThreads(2);
+    mojoWrapper.execute();
+    for (final Developer developer : developers) {
+      final Mailbox inbox = Mailbox.get(developer.getEmail());
+      assertEquals("Should have received one email.", 1, inbox.size());
+      final Message message = inbox.get(0);
+      assertNull("Recipients should be hidden.", message.getRecipients(Message.RecipientType.TO));
+      assertTrue("Batch should not exceed batch size.", message.getAllRecipients().length <= 3);
+    }
+  }
+
+  @Test
+  public void testPersonalizedMailToDevelopers() throws Exception {
+    final MavenProject project = mock(MavenProject.class);
+    when(project.getDevelopers()).thenReturn(Arrays.asList(developers));
+    mojoWrapper.setProject(project);
+    mojoWrapper.setPersonalized(true);
+    mojoWrapper.setBatchThreads(2);
+    mojoWrapper.execute();
+    for (final Developer developer : developers) {
+      final Mailbox inbox = Mailbox.get(developer.getEmail());
+      assertEquals("Should have received one email.", 1, inbox.size());
+      final Message message = inbox.get(0);
+      assertEquals("Should be the only recipient.", 1, message.getAllRecipients().length);
+      assertTrue("Should greet the developer.", message.getContent().toString().startsWith("Hello " + developer.getName() + ","));
+    }
+  }
+
+  @Test
+  public void testMailToDevelopersWithZippedAttachments() throws Exception {
+    basedir = File.createTempFile("mail-attachments", "");
+    assertTrue("Should replace temporary file by directory.", basedir.delete() && basedir.mkdir());
+    FileUtils.fileWrite(new File(basedir, "first.txt").getPath(), "First report.");
+    FileUtils.fileWrite(new File(basedir, "second.txt").getPath(), "Second report.");
+    FileUtils.fileWrite(new File(basedir, "ignored.log").getPath(), "Not attached.");
+    final MavenProject project = mock(MavenProject.class);
+    when(project.getDevelopers()).thenReturn(Arrays.asList(developers[0]));
+    mojoWrapper.setProject(project);
+    mojoWrapper.setBasedir(basedir);
+    messageWrapper.setAttachments(Arrays.asList("*.txt"));
+    messageWrapper.setZipAttachments(true);
+    mojoWrapper.execute();
+    final Mailbox inbox = Mailbox.get(developers[0].getEmail());
+    assertEquals("Should have received one email.", 1, inbox.size());
+    final Multipart multipart = (Multipart) inbox.get(0).getContent();
+    assertEquals("Should contain text and archive.", 2, multipart.getCount());
+    final BodyPart archive = multipart.getBodyPart(1);
+    assertEquals("Archive name", "attachments.zip", archive.getFileName());
+    final ZipInputStream zip = new ZipInputStream(archive.getInputStream());
+    try {
+      assertEquals("First entry", "first.txt", zip.getNextEntry().getName());
+      assertEquals("First content", "First report.", IOUtils.toString(zip));
+      assertEquals("Second entry", "second.txt", zip.getNextEntry().getName());
+      assertNull("Should only contain matching files.", zip.getNextEntry());
+    } finally {
+      zip.close();
+    }
+  }
+
   @Test
   public void testFullyConfiguredMail() throws Exception {
     final MavenProject project = mock(MavenProject.class);
@@ -0,0 +1,173 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo;
+
+import de.mmichaelis.maven.mojo.mail.AsyncMailSender;
+import de.mmichaelis.maven.mojo.mail.EmbeddedSmtpServer;
+import de.mmichaelis.maven.mojo.mail.MailOutbox;
+import de.mmichaelis.maven.mojo.mail.MailSessions;
+import de.mmichaelis.maven.mojo.mail.MailTransportPool;
+import org.apache.maven.model.Developer;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.mail.internet.MimeMessage;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+import static org.powermock.api.mockito.PowerMockito.mock;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+/**
+ * Sends mails over the real SMTP transport to an {@link EmbeddedSmtpServer}.
+ *
+ * @since 10/18/26 4:31 AM
+ */
+public class MailIntegrationTest {
+  private static final int DEVELOPERS = 4;
+
+  private EmbeddedSmtpServer server;
+  private MailDevelopersMojoWrapper mojoWrapper;
+  private File outboxDirectory;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new EmbeddedSmtpServer();
+    server.start();
+
+    final Developer[] developers = new Developer[DEVELOPERS];
+    for (int i = 0; i < DEVELOPERS; i++) {
+      developers[i] = new Developer();
+      developers[i].setId("id" + i);
+      developers[i].setEmail("dev" + i + "@example.org");
+      developers[i].setName("Deve Loper " + i);
+    }
+    final MavenProject project = mock(MavenProject.class);
+    when(project.getDevelopers()).thenReturn(Arrays.asList(developers));
+
+    mojoWrapper = new MailDevelopersMojoWrapper(new MailDevelopersMojo());
+    final MessageWrapper messageWrapper = new MessageWrapper(new Message());
+    messageWrapper.setText("Lorem Ipsum Dolor Sit Amet.");
+    mojoWrapper.setMessage(messageWrapper.getWrapped());
+    mojoWrapper.setProject(project);
+    mojoWrapper.setSmtpHost(server.getHost());
+    mojoWrapper.setSmtpPort(server.getPort());
+    mojoWrapper.setSessionProperties(server.getSessionProperties());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    MailTransportPool.getInstance().closeAll();
+    server.stop();
+    if (outboxDirectory != null) {
+      FileUtils.deleteDirectory(outboxDirectory);
+    }
+  }
+
+  @Test
+  public void testSendToAllDevelopers() throws Exception {
+    mojoWrapper.execute();
+    assertTrue("Should have received the mail.", server.awaitMessages(1, 5000L));
+    final List<EmbeddedSmtpServer.ReceivedMessage> messages = server.getMessages();
+    assertEquals("Should have received one mail.", 1, messages.size());
+    assertEquals("Envelope recipients", DEVELOPERS, messages.get(0).getRecipients().size());
+    final MimeMessage message = messages.get(0).toMimeMessage();
+    assertEquals("Subject", "[maven-mail-plugin] de.mmichaelis:maven-mail-plugin: Automatic Email", message.getSubject());
+  }
+
+  @Test
+  public void testPersonalizedInParallel() throws Exception {
+    server.setLatency(20L);
+    mojoWrapper.setPersonalized(true);
+    mojoWrapper.setBatchThreads(DEVELOPERS);
+    mojoWrapper.setMaxConnections(DEVELOPERS);
+    mojoWrapper.execute();
+    final List<EmbeddedSmtpServer.ReceivedMessage> messages = server.getMessages();
+    assertEquals("Should have received one mail per developer.", DEVELOPERS, messages.size());
+    for (final EmbeddedSmtpServer.ReceivedMessage message : messages) {
+      assertEquals("Envelope recipients", 1, message.getRecipients().size());
+      assertTrue("Should have timestamps.", message.getReceived() >= message.getStarted());
+    }
+    assertTrue("Should not exceed the connection limit.", server.getConnections() <= DEVELOPERS);
+  }
+
+  @Test
+  public void testSpoolInjectedFailureAndFlush() throws Exception {
+    outboxDirectory = File.createTempFile("mail-outbox", "");
+    assertTrue("Should replace temporary file by directory.", outboxDirectory.delete() && outboxDirectory.mkdir());
+    server.failNextMessages(1);
+    mojoWrapper.setSpoolOnFailure(true);
+    mojoWrapper.setOutboxDirectory(outboxDirectory);
+    mojoWrapper.execute();
+    assertTrue("Should not have received a mail.", server.getMessages().isEmpty());
+    assertEquals("Should have stored the mail.", 1, outboxDirectory.list().length);
+
+    final Properties properties = server.getSessionProperties();
+    final int remaining = new MailOutbox(outboxDirectory).flush(
+            MailSessions.getSession(properties, server.getHost(), server.getPort(), "localhost", false), 1, new SystemStreamLog());
+    assertEquals("Should have flushed the outbox.", 0, remaining);
+    assertEquals("Should have received the stored mail.", 1, server.getMessages().size());
+    assertEquals("Envelope recipients", DEVELOPERS, server.getMessages().get(0).getRecipients().size());
+  }
+
+  @Test
+  public void testMetrics() throws Exception {
+    final File metricsFile = File.createTempFile("mail-metrics", ".json");
+    try {
+      mojoWrapper.setPersonalized(true);
+      mojoWrapper.setMetrics(true);
+      mojoWrapper.setMetricsFile(metricsFile);
+      mojoWrapper.execute();
+      assertEquals("Should have received one mail per developer.", DEVELOPERS, server.getMessages().size());
+      final String json = FileUtils.fileRead(metricsFile, "UTF-8").trim();
+      assertFalse("Should have written one line.", json.contains("\n"));
+      assertTrue("Should contain the execution: " + json, json.contains("\"execution\":\"MailDevelopersMojo\""));
+      assertTrue("Should contain the messages: " + json, json.contains("\"messages\":" + DEVELOPERS + ","));
+      assertTrue("Should contain the recipients: " + json, json.contains("\"recipients\":" + DEVELOPERS + ","));
+      assertFalse("Should contain the size: " + json, json.contains("\"bytes\":0,"));
+      assertTrue("Should contain the transfer phase: " + json, json.contains("\"transfer\":"));
+    } finally {
+      assertTrue("Should delete metrics file.", metricsFile.delete());
+    }
+  }
+
+  @Test
+  public void testAsyncMetrics() throws Exception {
+    final File metricsFile = File.createTempFile("mail-metrics", ".json");
+    try {
+      mojoWrapper.setPersonalized(true);
+      mojoWrapper.setAsync(true);
+      mojoWrapper.setMetrics(true);
+      mojoWrapper.setMetricsFile(metricsFile);
+      mojoWrapper.execute();
+      AsyncMailSender.getInstance().drain(new SystemStreamLog());
+      assertEquals("Should have received one mail per developer.", DEVELOPERS, server.getMessages().size());
+      final String json = FileUtils.fileRead(metricsFile, "UTF-8").trim();
+      assertFalse("Should have written one line.", json.contains("\n"));
+      assertTrue("Should contain the messages: " + json, json.contains("\"messages\":" + DEVELOPERS + ","));
+    } finally {
+      assertTrue("Should delete metrics file.", metricsFile.delete());
+    }
+  }
+}
@@ -0,0 +1,46 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link MessageTemplate}.
+ *
+ * @since 10/19/26 4:05 PM
+ */
+public class MessageTemplateTest {
+  @Test
+  public void testChangedFile() throws Exception {
+    final File file = File.createTempFile("template", ".txt");
+    try {
+      FileUtils.fileWrite(file.getAbsolutePath(), "UTF-8", "First ${project.name}");
+      final MessageTemplate first = MessageTemplate.compile(file);
+      assertSame("Should not read an unchanged file again.", first, MessageTemplate.compile(file));
+      assertEquals("First ${project.name}", first.render(null));
+      FileUtils.fileWrite(file.getAbsolutePath(), "UTF-8", "Changed text ${project.name}");
+      assertEquals("Should read the changed file.", "Changed text ${project.name}", MessageTemplate.compile(file).render(null));
+    } finally {
+      assertTrue("Should delete template file.", file.delete());
+    }
+  }
+}
@@ -17,6 +17,7 @@
 package de.mmichaelis.maven.mojo;
 
 import java.io.File;
+import java.util.List;
 
 /**
  * @since 6/4/11 11:56 PM
@@ -24,7 +25,7 @@ import java.io.File;
 public final class MessageWrapper extends AbstractClassWrapper<Message> {
   public MessageWrapper(final Message wrapped) {
     super(wrapped);
-    addFields("text", "textFile");
+    addFields("text", "textFile", "template", "attachments", "zipAttachments");
   }
 
   public void setText(final String text) throws IllegalAccessException {
@@ -34,4 +35,16 @@ public final class MessageWrapper extends AbstractClassWrapper<Message> {
   public void setTextFile(final File file) throws IllegalAccessException {
     fieldMap.get("textFile").set(wrapped, file);
   }
+
+  public void setTemplate(final boolean template) throws IllegalAccessException {
+    fieldMap.get("template").set(wrapped, template);
+  }
+
+  public void setAttachments(final List<String> attachments) throws IllegalAccessException {
+    fieldMap.get("attachments").set(wrapped, attachments);
+  }
+
+  public void setZipAttachments(final boolean zipAttachments) throws IllegalAccessException {
+    fieldMap.get("zipAttachments").set(wrapped, zipAttachments);
+  }
 }
@@ -0,0 +1,266 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+import org.jvnet.mock_javamail.Mailbox;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link AsyncMailSender}.
+ *
+ * @since 10/19/26 9:10 AM
+ */
+public class AsyncMailSenderTest {
+  private static final String RECIPIENT = "async@example.org";
+
+  private final Session session = Session.getInstance(new Properties());
+
+  @After
+  public void tearDown() throws Exception {
+    AsyncMailSender.getInstance().drain(new SystemStreamLog());
+    MemoryMailTransport.clear();
+    Mailbox.clearAll();
+  }
+
+  @Test
+  public void testConfiguredTransport() throws Exception {
+    final SystemStreamLog log = new SystemStreamLog();
+    final CountingTask onSent = new CountingTask();
+    AsyncMailSender.getInstance().submit(session, createMessage(), MailTransports.get(MemoryMailTransport.NAME), 10,
+            OverflowPolicy.BLOCK, null, false, MailMetrics.NONE, log, onSent, null);
+    AsyncMailSender.getInstance().drain(log);
+    assertEquals("Should deliver with the configured transport.", 1, MemoryMailTransport.getMessages().size());
+    assertEquals("Should not send via SMTP.", 0, Mailbox.get(RECIPIENT).size());
+    assertEquals("Should report the sent mail.", 1, onSent.count.get());
+  }
+
+  @Test
+  public void testFailedNotReportedAsSent() throws Exception {
+    final SystemStreamLog log = new SystemStreamLog();
+    final CountingTask onSent = new CountingTask();
+    Mailbox.get(RECIPIENT).setError(true);
+    AsyncMailSender.getInstance().submit(session, createMessage(), MailTransports.get(SmtpMailTransport.NAME), 10,
+            OverflowPolicy.BLOCK, null, false, MailMetrics.NONE, log, onSent, null);
+    AsyncMailSender.getInstance().drain(log);
+    assertEquals("Should not report the failed mail as sent.", 0, onSent.count.get());
+  }
+
+  @Test
+  public void testSpoolOnFailure() throws Exception {
+    final SystemStreamLog log = new SystemStreamLog();
+    final File outbox = File.createTempFile("async-outbox", "");
+    assertTrue(outbox.delete());
+    try {
+      final CountingTask onSent = new CountingTask();
+      Mailbox.get(RECIPIENT).setError(true);
+      AsyncMailSender.getInstance().submit(session, createMessage(), MailTransports.get(SmtpMailTransport.NAME), 10,
+              OverflowPolicy.BLOCK, outbox, true, MailMetrics.NONE, log, onSent, null);
+      AsyncMailSender.getInstance().drain(log);
+      assertEquals("Should spool the failed mail.", 1, outbox.list().length);
+      assertEquals("Spooled mail counts as sent.", 1, onSent.count.get());
+    } finally {
+      FileUtils.deleteDirectory(outbox);
+    }
+  }
+
+  @Test
+  public void testDoneForDroppedMails() throws Exception {
+    final GatedTransport transport = new GatedTransport();
+    final CountingTask onDone = new CountingTask();
+    final SystemStreamLog log = new SystemStreamLog();
+    AsyncMailSender.getInstance().submit(session, createMessage(), transport, 1, OverflowPolicy.DROP_OLDEST, null, false,
+            MailMetrics.NONE, log, null, onDone);
+    assertTrue("Sender should pick up the first mail.", transport.started.await(5L, TimeUnit.SECONDS));
+    AsyncMailSender.getInstance().submit(session, createMessage(), transport, 1, OverflowPolicy.DROP_OLDEST, null, false,
+            MailMetrics.NONE, log, null, onDone);
+    AsyncMailSender.getInstance().submit(session, createMessage(), transport, 1, OverflowPolicy.DROP_OLDEST, null, false,
+            MailMetrics.NONE, log, null, onDone);
+    assertEquals("Dropped mail should be done.", 1, onDone.count.get());
+    transport.gate.countDown();
+    AsyncMailSender.getInstance().drain(log);
+    assertEquals("All mails should be done.", 3, onDone.count.get());
+  }
+
+  @Test
+  public void testBlockWhenQueueFull() throws Exception {
+    final GatedTransport transport = new GatedTransport();
+    fillQueue(transport, OverflowPolicy.BLOCK);
+    final Thread blocked = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          submit(transport, OverflowPolicy.BLOCK, "third", null);
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    });
+    blocked.start();
+    blocked.join(200L);
+    assertTrue("Should block while the queue is full.", blocked.isAlive());
+    transport.gate.countDown();
+    blocked.join(5000L);
+    assertFalse("Should continue once there is space.", blocked.isAlive());
+    AsyncMailSender.getInstance().drain(new SystemStreamLog());
+    assertEquals(Arrays.asList("first", "second", "third"), transport.subjects);
+  }
+
+  @Test
+  public void testDropOldestWhenQueueFull() throws Exception {
+    final GatedTransport transport = new GatedTransport();
+    fillQueue(transport, OverflowPolicy.DROP_OLDEST);
+    submit(transport, OverflowPolicy.DROP_OLDEST, "third", null);
+    transport.gate.countDown();
+    AsyncMailSender.getInstance().drain(new SystemStreamLog());
+    assertEquals("Should drop the oldest queued mail.", Arrays.asList("first", "third"), transport.subjects);
+  }
+
+  @Test
+  public void testSpoolWhenQueueFull() throws Exception {
+    final File outbox = File.createTempFile("async-outbox", "");
+    assertTrue(outbox.delete());
+    try {
+      final GatedTransport transport = new GatedTransport();
+      final CountingTask onSent = new CountingTask();
+      fillQueue(transport, OverflowPolicy.SPOOL);
+      submit(transport, OverflowPolicy.SPOOL, "third", outbox, onSent);
+      assertEquals("Should spool the mail right away.", 1, outbox.list().length);
+      assertEquals("Spooled mail counts as sent.", 1, onSent.count.get());
+      transport.gate.countDown();
+      AsyncMailSender.getInstance().drain(new SystemStreamLog());
+      assertEquals(Arrays.asList("first", "second"), transport.subjects);
+    } finally {
+      FileUtils.deleteDirectory(outbox);
+    }
+  }
+
+  @Test
+  public void testDrainWaitsForQueuedMails() throws Exception {
+    final GatedTransport transport = new GatedTransport();
+    fillQueue(transport, OverflowPolicy.BLOCK);
+    final Thread drain = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        AsyncMailSender.getInstance().drain(new SystemStreamLog());
+      }
+    });
+    drain.start();
+    drain.join(200L);
+    assertTrue("Should wait for queued mails.", drain.isAlive());
+    transport.gate.countDown();
+    drain.join(5000L);
+    assertFalse("Should return once the mails are sent.", drain.isAlive());
+    assertEquals(Arrays.asList("first", "second"), transport.subjects);
+    // a new executor is started for later mails
+    submit(MailTransports.get(MemoryMailTransport.NAME), OverflowPolicy.BLOCK, "later", null);
+    AsyncMailSender.getInstance().drain(new SystemStreamLog());
+    assertEquals(1, MemoryMailTransport.getMessages().size());
+  }
+
+  /**
+   * Occupy the sender with one mail and fill the queue of size 1 with a second one.
+   */
+  private void fillQueue(final GatedTransport transport, final OverflowPolicy policy) throws Exception {
+    submit(transport, policy, "first", null);
+    assertTrue("Sender should pick up the first mail.", transport.started.await(5L, TimeUnit.SECONDS));
+    submit(transport, policy, "second", null);
+  }
+
+  private void submit(final MailTransport transport, final OverflowPolicy policy, final String subject, final File outbox)
+          throws Exception {
+    submit(transport, policy, subject, outbox, null);
+  }
+
+  private void submit(final MailTransport transport, final OverflowPolicy policy, final String subject, final File outbox,
+                      final Runnable onSent) throws Exception {
+    final MimeMessage message = createMessage();
+    message.setSubject(subject);
+    AsyncMailSender.getInstance().submit(session, message, transport, 1, policy, outbox, false, MailMetrics.NONE,
+            new SystemStreamLog(), onSent, null);
+  }
+
+  private MimeMessage createMessage() throws Exception {
+    final MimeMessage message = new MimeMessage(session);
+    message.setFrom(new InternetAddress("sender@example.org"));
+    message.setRecipient(MimeMessage.RecipientType.TO, new InternetAddress(RECIPIENT));
+    message.setSubject("Queued");
+    message.setText("Sent in the background.");
+    return message;
+  }
+
+  /**
+   * Holds back all mails until the gate is opened and records their subjects.
+   */
+  private static final class GatedTransport implements MailTransport {
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch gate = new CountDownLatch(1);
+    private final List<String> subjects = Collections.synchronizedList(new ArrayList<String>());
+
+    @Override
+    public String getName() {
+      return "gated";
+    }
+
+    @Override
+    public MessagingException[] send(final Session session, final List<MimeMessage> messages, final Log log, final MailMetrics metrics) {
+      started.countDown();
+      try {
+        gate.await();
+        for (final MimeMessage message : messages) {
+          subjects.add(message.getSubject());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (MessagingException e) {
+        throw new IllegalStateException(e);
+      }
+      return new MessagingException[messages.size()];
+    }
+  }
+
+  /**
+   * Counts its runs.
+   */
+  private static final class CountingTask implements Runnable {
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public void run() {
+      count.incrementAndGet();
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Test;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link BatchSender}.
+ *
+ * @since 10/18/26 1:05 PM
+ */
+public class BatchSenderTest {
+  @Test
+  public void testBoundedSubBatches() throws Exception {
+    final Session session = Session.getInstance(new Properties());
+    final MimeMessage template = new MimeMessage(session);
+    template.setSubject("Batch");
+    final MessageComposer composer = new MessageComposer(session, template, new InternetAddress("sender@example.org"),
+            "Lorem Ipsum", null, "", "UTF-8", false, true, null, null);
+    final InternetAddress[] addresses = new InternetAddress[10];
+    for (int i = 0; i < addresses.length; i++) {
+      addresses[i] = new InternetAddress("recipient" + i + "@example.org");
+    }
+    final RecordingTransport transport = new RecordingTransport();
+    new BatchSender(2, transport, new MailOutbox(null), false, MailMetrics.NONE, new SystemStreamLog())
+            .send(session, composer, MessageComposer.getBatches(addresses, 1));
+    assertEquals("Should deliver all messages.", 10, transport.delivered.get());
+    assertEquals("Should hand over at most as many messages as there are threads.", 2, transport.largestCall.get());
+  }
+
+  @Test
+  public void testFewBatchesSentInParallel() throws Exception {
+    final Session session = Session.getInstance(new Properties());
+    final MimeMessage template = new MimeMessage(session);
+    template.setSubject("Batch");
+    final MessageComposer composer = new MessageComposer(session, template, new InternetAddress("sender@example.org"),
+            "Lorem Ipsum", null, "", "UTF-8", false, true, null, null);
+    final InternetAddress[] addresses = {new InternetAddress("first@example.org"), new InternetAddress("second@example.org")};
+    final ConcurrentTransport transport = new ConcurrentTransport(2);
+    new BatchSender(2, transport, new MailOutbox(null), false, MailMetrics.NONE, new SystemStreamLog())
+            .send(session, composer, MessageComposer.getBatches(addresses, 1));
+    assertEquals("Should send both messages at the same time.", 2, transport.concurrent.get());
+  }
+
+  /**
+   * Waits until the expected number of sends run at the same time.
+   */
+  private static final class ConcurrentTransport implements MailTransport {
+    private final CountDownLatch running;
+    private final AtomicInteger concurrent = new AtomicInteger();
+
+    private ConcurrentTransport(final int expected) {
+      running = new CountDownLatch(expected);
+    }
+
+    @Override
+    public String getName() {
+      return "concurrent";
+    }
+
+    @Override
+    public MessagingException[] send(final Session session, final List<MimeMessage> messages, final Log log, final MailMetrics metrics) {
+      running.countDown();
+      try {
+        if (running.await(5L, TimeUnit.SECONDS)) {
+          concurrent.incrementAndGet();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return new MessagingException[messages.size()];
+    }
+  }
+
+  /**
+   * Records the number of messages handed over.
+   */
+  private static final class RecordingTransport implements MailTransport {
+    private final AtomicInteger delivered = new AtomicInteger();
+    private final AtomicInteger largestCall = new AtomicInteger();
+
+    @Override
+    public String getName() {
+      return "recording";
+    }
+
+    @Override
+    public MessagingException[] send(final Session session, final List<MimeMessage> messages, final Log log, final MailMetrics metrics) {
+      delivered.addAndGet(messages.size());
+      synchronized (largestCall) {
+        largestCall.set(Math.max(largestCall.get(), messages.size()));
+      }
+      return new MessagingException[messages.size()];
+    }
+  }
+}
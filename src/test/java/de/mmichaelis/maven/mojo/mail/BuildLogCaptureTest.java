@@ -0,0 +1,65 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.PrintStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link BuildLogCapture}.
+ *
+ * @since 10/18/26 7:52 AM
+ */
+public class BuildLogCaptureTest {
+  @After
+  public void tearDown() throws Exception {
+    BuildLogCapture.uninstall();
+  }
+
+  @Test
+  public void testKeepsTailOnly() throws Exception {
+    final BuildLogCapture capture = BuildLogCapture.install(1);
+    assertNull("Should have captured nothing yet.", capture.getTail(1024));
+    for (int i = 0; i < 1000; i++) {
+      System.out.println("[INFO] line " + i);
+    }
+    final String tail = capture.getTail(1024);
+    assertTrue("Should keep the last line: " + tail, tail.endsWith("[INFO] line 999" + System.getProperty("line.separator")));
+    assertTrue("Should start with a complete line: " + tail, tail.startsWith("[INFO] line "));
+    assertTrue("Should be bounded: " + tail.length(), tail.length() <= 1024);
+    assertFalse("Should have dropped early lines.", tail.contains("[INFO] line 1\n"));
+    assertTrue("Should limit to requested size.", capture.getTail(100).length() <= 100);
+  }
+
+  @Test
+  public void testUninstallRestoresStreams() throws Exception {
+    final PrintStream out = System.out;
+    final BuildLogCapture capture = BuildLogCapture.install(1);
+    assertSame("Should install only once.", capture, BuildLogCapture.install(2));
+    assertEquals("Should keep the size of the first installation.", 1024, capture.getSize());
+    assertNotSame("Should replace System.out.", out, System.out);
+    System.err.print("error output\n");
+    assertEquals("Should capture System.err.", "error output\n", capture.getTail(1024));
+    BuildLogCapture.uninstall();
+    assertSame("Should restore System.out.", out, System.out);
+    assertNull("Should not capture anymore.", BuildLogCapture.get());
+  }
+}
@@ -0,0 +1,542 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lightweight SMTP server for integration and load tests. Speaks ESMTP with PIPELINING, CHUNKING, SIZE
+ * and 8BITMIME, serves each connection in its own thread and records every received message with
+ * timestamps. Latency and transient failures can be injected to exercise retries and concurrency.
+ * <p>
+ * As mock-javamail replaces the <code>smtp</code> provider in tests, sessions have to set
+ * <code>mail.smtp.class</code> to the real transport, see {@link #getSessionProperties()}.
+ * </p>
+ *
+ * @since 10/18/26 4:05 AM
+ */
+public final class EmbeddedSmtpServer {
+  private static final String HOST = "127.0.0.1";
+  private static final String CHARSET = "ISO-8859-1";
+  private static final Pattern SIZE_PARAMETER = Pattern.compile("\\sSIZE=(\\d+)", Pattern.CASE_INSENSITIVE);
+  private static final Pattern PATH = Pattern.compile("<([^>]*)>");
+  private static final Pattern BDAT = Pattern.compile("BDAT\\s+(\\d+)(\\s+LAST)?\\s*", Pattern.CASE_INSENSITIVE);
+
+  private final List<ReceivedMessage> messages = new ArrayList<ReceivedMessage>();
+  private final AtomicInteger connections = new AtomicInteger();
+  private final AtomicInteger received = new AtomicInteger();
+  private final Set<Socket> openSockets = Collections.synchronizedSet(new HashSet<Socket>());
+  private final AtomicInteger failuresToInject = new AtomicInteger();
+  private final AtomicInteger replyBatches = new AtomicInteger();
+  private volatile boolean pipelining = true;
+  private volatile boolean chunking = true;
+  private volatile boolean keepMessages = true;
+  private volatile long latency;
+  private volatile long maxSize = 10L * 1024L * 1024L;
+  private ServerSocket serverSocket;
+  private ExecutorService executor;
+
+  /**
+   * Start the server on a free port of the loopback interface.
+   *
+   * @throws IOException if the server socket cannot be opened
+   */
+  public void start() throws IOException {
+    serverSocket = new ServerSocket(0, 50, InetAddress.getByName(HOST));
+    executor = Executors.newCachedThreadPool(new ThreadFactory() {
+      private final AtomicInteger counter = new AtomicInteger();
+
+      @Override
+      public Thread newThread(final Runnable runnable) {
+        final Thread thread = new Thread(runnable, "embedded-smtp " + counter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        accept();
+      }
+    });
+  }
+
+  /**
+   * Stop the server and close all connections.
+   */
+  public void stop() {
+    try {
+      serverSocket.close();
+    } catch (IOException ignored) {
+      // nothing to do
+    }
+    executor.shutdownNow();
+  }
+
+  public String getHost() {
+    return HOST;
+  }
+
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * JavaMail properties to send to this server with the real SMTP transport.
+   *
+   * @return session properties
+   */
+  public Properties getSessionProperties() {
+    final Properties properties = new Properties();
+    properties.setProperty("mail.smtp.class", "com.sun.mail.smtp.SMTPTransport");
+    properties.setProperty("mail.smtp.host", HOST);
+    properties.setProperty("mail.smtp.port", Integer.toString(getPort()));
+    return properties;
+  }
+
+  /**
+   * Delay every reply, simulating a slow relay.
+   *
+   * @param latency delay in milliseconds
+   */
+  public void setLatency(final long latency) {
+    this.latency = latency;
+  }
+
+  /**
+   * Maximum message size announced via SIZE and enforced.
+   *
+   * @param maxSize size in bytes
+   */
+  public void setMaxSize(final long maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Whether to announce and accept PIPELINING.
+   *
+   * @param pipelining false to act as a server without pipelining
+   */
+  public void setPipelining(final boolean pipelining) {
+    this.pipelining = pipelining;
+  }
+
+  /**
+   * Whether to announce and accept CHUNKING, i.e. the BDAT command.
+   *
+   * @param chunking false to act as a server without chunking
+   */
+  public void setChunking(final boolean chunking) {
+    this.chunking = chunking;
+  }
+
+  /**
+   * Whether to keep the received messages. Benchmarks turn this off to let the server run without
+   * growing memory; the messages are only counted then.
+   *
+   * @param keepMessages false to discard the received messages
+   */
+  public void setKeepMessages(final boolean keepMessages) {
+    this.keepMessages = keepMessages;
+  }
+
+  /**
+   * Number of times replies were flushed to clients. Pipelined commands are answered by one batch of
+   * replies, thus this counts the round trips.
+   *
+   * @return number of reply batches
+   */
+  public int getReplyBatches() {
+    return replyBatches.get();
+  }
+
+  /**
+   * Reject the next messages with a transient failure after their data was received.
+   *
+   * @param count number of messages to reject
+   */
+  public void failNextMessages(final int count) {
+    failuresToInject.set(count);
+  }
+
+  /**
+   * Number of connections accepted so far.
+   *
+   * @return number of connections
+   */
+  public int getConnections() {
+    return connections.get();
+  }
+
+  /**
+   * Drop all open connections without reply, like a relay which closes idle connections.
+   */
+  public void dropConnections() {
+    synchronized (openSockets) {
+      for (final Socket socket : openSockets) {
+        try {
+          socket.close();
+        } catch (IOException ignored) {
+          // nothing to do
+        }
+      }
+    }
+  }
+
+  /**
+   * Number of messages received so far, including discarded ones.
+   *
+   * @return number of messages
+   */
+  public int getMessageCount() {
+    return received.get();
+  }
+
+  /**
+   * Messages received so far, in order of receipt.
+   *
+   * @return copy of the received messages
+   */
+  public List<ReceivedMessage> getMessages() {
+    synchronized (messages) {
+      return new ArrayList<ReceivedMessage>(messages);
+    }
+  }
+
+  /**
+   * Wait until the given number of messages has been received.
+   *
+   * @param count   number of messages to wait for
+   * @param timeout maximum milliseconds to wait
+   * @return true if the messages were received in time
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean awaitMessages(final int count, final long timeout) throws InterruptedException {
+    final long end = System.currentTimeMillis() + timeout;
+    synchronized (messages) {
+      long remaining = timeout;
+      while (messages.size() < count && remaining > 0L) {
+        messages.wait(remaining);
+        remaining = end - System.currentTimeMillis();
+      }
+      return messages.size() >= count;
+    }
+  }
+
+  private void accept() {
+    while (!serverSocket.isClosed()) {
+      try {
+        final Socket socket = serverSocket.accept();
+        connections.incrementAndGet();
+        openSockets.add(socket);
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            serve(socket);
+          }
+        });
+      } catch (IOException e) {
+        // closed
+      }
+    }
+  }
+
+  private void serve(final Socket socket) {
+    try {
+      final InputStream in = new BufferedInputStream(socket.getInputStream());
+      final OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+      final Transaction transaction = new Transaction();
+      reply(in, out, "220 " + HOST + " ESMTP embedded");
+      String line;
+      while ((line = readLine(in)) != null) {
+        final String command = (line.length() > 4 ? line.substring(0, 4) : line).toUpperCase(Locale.ENGLISH);
+        if ("EHLO".equals(command)) {
+          reply(in, out, "250-" + HOST + (pipelining ? "\r\n250-PIPELINING" : "") + (chunking ? "\r\n250-CHUNKING" : "")
+                  + "\r\n250-8BITMIME\r\n250 SIZE " + maxSize);
+        } else if ("HELO".equals(command)) {
+          reply(in, out, "250 " + HOST);
+        } else if ("MAIL".equals(command)) {
+          final Matcher size = SIZE_PARAMETER.matcher(line);
+          if (size.find() && Long.parseLong(size.group(1)) > maxSize) {
+            reply(in, out, "552 Message size exceeds fixed maximum message size");
+          } else {
+            transaction.reset();
+            transaction.started = System.currentTimeMillis();
+            transaction.from = getPath(line);
+            reply(in, out, "250 OK");
+          }
+        } else if ("RCPT".equals(command)) {
+          transaction.recipients.add(getPath(line));
+          reply(in, out, "250 OK");
+        } else if ("DATA".equals(command)) {
+          if (transaction.from == null || transaction.recipients.isEmpty()) {
+            reply(in, out, "503 Bad sequence of commands");
+            continue;
+          }
+          reply(in, out, "354 End data with <CR><LF>.<CR><LF>");
+          final byte[] data = readData(in);
+          if (data.length > maxSize) {
+            reply(in, out, "552 Message size exceeds fixed maximum message size");
+          } else if (failuresToInject.getAndDecrement() > 0) {
+            reply(in, out, "451 Requested action aborted: injected failure");
+          } else {
+            record(new ReceivedMessage(transaction, data));
+            reply(in, out, "250 OK");
+          }
+          transaction.reset();
+        } else if ("BDAT".equals(command) && chunking) {
+          final Matcher bdat = BDAT.matcher(line);
+          if (!bdat.matches()) {
+            reply(in, out, "501 Syntax error in parameters");
+            continue;
+          }
+          transaction.data.write(readChunk(in, Integer.parseInt(bdat.group(1))));
+          transaction.chunked = true;
+          if (transaction.from == null || transaction.recipients.isEmpty()) {
+            reply(in, out, "503 Bad sequence of commands");
+          } else if (bdat.group(2) == null) {
+            reply(in, out, "250 " + bdat.group(1) + " octets received");
+          } else {
+            final byte[] data = transaction.data.toByteArray();
+            if (data.length > maxSize) {
+              reply(in, out, "552 Message size exceeds fixed maximum message size");
+            } else if (failuresToInject.getAndDecrement() > 0) {
+              reply(in, out, "451 Requested action aborted: injected failure");
+            } else {
+              record(new ReceivedMessage(transaction, data));
+              reply(in, out, "250 OK");
+            }
+            transaction.reset();
+          }
+        } else if ("RSET".equals(command)) {
+          transaction.reset();
+          reply(in, out, "250 OK");
+        } else if ("NOOP".equals(command)) {
+          reply(in, out, "250 OK");
+        } else if ("QUIT".equals(command)) {
+          reply(in, out, "221 Bye");
+          break;
+        } else {
+          reply(in, out, "502 Command not implemented");
+        }
+      }
+    } catch (IOException e) {
+      // connection dropped
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      openSockets.remove(socket);
+      try {
+        socket.close();
+      } catch (IOException ignored) {
+        // nothing to do
+      }
+    }
+  }
+
+  private void record(final ReceivedMessage message) {
+    received.incrementAndGet();
+    if (!keepMessages) {
+      return;
+    }
+    synchronized (messages) {
+      messages.add(message);
+      messages.notifyAll();
+    }
+  }
+
+  /**
+   * Write a reply. Replies are only flushed if no further pipelined command is waiting.
+   */
+  private void reply(final InputStream in, final OutputStream out, final String reply) throws IOException, InterruptedException {
+    if (latency > 0L) {
+      Thread.sleep(latency);
+    }
+    out.write((reply + "\r\n").getBytes(CHARSET));
+    if (!pipelining || in.available() == 0) {
+      out.flush();
+      replyBatches.incrementAndGet();
+    }
+  }
+
+  private static String getPath(final String line) {
+    final Matcher matcher = PATH.matcher(line);
+    return matcher.find() ? matcher.group(1) : "";
+  }
+
+  private static String readLine(final InputStream in) throws IOException {
+    final ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+    int b;
+    while ((b = in.read()) != -1) {
+      if (b == '\n') {
+        final byte[] bytes = line.toByteArray();
+        final int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+        return new String(bytes, 0, length, CHARSET);
+      }
+      line.write(b);
+    }
+    return null;
+  }
+
+  private static byte[] readChunk(final InputStream in, final int size) throws IOException {
+    final byte[] chunk = new byte[size];
+    int read = 0;
+    while (read < size) {
+      final int n = in.read(chunk, read, size - read);
+      if (n < 0) {
+        throw new IOException("Connection closed within chunk.");
+      }
+      read += n;
+    }
+    return chunk;
+  }
+
+  private static byte[] readData(final InputStream in) throws IOException {
+    final ByteArrayOutputStream data = new ByteArrayOutputStream();
+    String line;
+    while ((line = readLine(in)) != null && !".".equals(line)) {
+      // remove dot stuffing
+      data.write((line.startsWith(".") ? line.substring(1) : line).getBytes(CHARSET));
+      data.write('\r');
+      data.write('\n');
+    }
+    return data.toByteArray();
+  }
+
+  /**
+   * State of the current mail transaction of a connection.
+   */
+  private static final class Transaction {
+    private long started;
+    private String from;
+    private final List<String> recipients = new ArrayList<String>();
+    private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+    private boolean chunked;
+
+    private void reset() {
+      started = 0L;
+      from = null;
+      recipients.clear();
+      data.reset();
+      chunked = false;
+    }
+  }
+
+  /**
+   * A message as received by the server.
+   */
+  public static final class ReceivedMessage {
+    private final long started;
+    private final long received;
+    private final String from;
+    private final List<String> recipients;
+    private final byte[] data;
+    private final boolean chunked;
+
+    private ReceivedMessage(final Transaction transaction, final byte[] data) {
+      this.started = transaction.started;
+      this.received = System.currentTimeMillis();
+      this.from = transaction.from;
+      this.recipients = Collections.unmodifiableList(new ArrayList<String>(transaction.recipients));
+      this.data = data;
+      this.chunked = transaction.chunked;
+    }
+
+    /**
+     * Time the transaction started with MAIL FROM.
+     *
+     * @return time in milliseconds
+     */
+    public long getStarted() {
+      return started;
+    }
+
+    /**
+     * Time the data was received completely.
+     *
+     * @return time in milliseconds
+     */
+    public long getReceived() {
+      return received;
+    }
+
+    public String getFrom() {
+      return from;
+    }
+
+    public List<String> getRecipients() {
+      return recipients;
+    }
+
+    public int getSize() {
+      return data.length;
+    }
+
+    /**
+     * The data as received, including headers.
+     *
+     * @return copy of the data
+     */
+    public byte[] getData() {
+      return data.clone();
+    }
+
+    /**
+     * Whether the message was sent in BDAT chunks instead of DATA.
+     *
+     * @return true if chunked
+     */
+    public boolean isChunked() {
+      return chunked;
+    }
+
+    /**
+     * Parse the received data.
+     *
+     * @return the message
+     * @throws MessagingException if parsing fails
+     */
+    public MimeMessage toMimeMessage() throws MessagingException {
+      return new MimeMessage(Session.getInstance(new Properties()), new ByteArrayInputStream(data));
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link LocalHost}.
+ *
+ * @since 10/19/26 11:20 AM
+ */
+public class LocalHostTest {
+  private static final byte[] ADDRESS = {10, 0, 0, 1};
+
+  @After
+  public void tearDown() throws Exception {
+    LocalHost.setResolver(null);
+  }
+
+  @Test
+  public void testConfiguredHostName() throws Exception {
+    final CountingResolver resolver = new CountingResolver();
+    LocalHost.setResolver(resolver);
+    final LocalHost localHost = LocalHost.get("mail.example.org");
+    assertEquals("mail.example.org", localHost.getName());
+    assertNull("Configured host has no address.", localHost.getAddress());
+    assertEquals("Should not look up the local host.", 0, resolver.calls.get());
+  }
+
+  @Test
+  public void testLookupOnce() throws Exception {
+    final CountingResolver resolver = new CountingResolver();
+    LocalHost.setResolver(resolver);
+    assertEquals("build.example.org", LocalHost.get(null).getName());
+    assertEquals("10.0.0.1", LocalHost.get("").getAddress());
+    assertEquals("Should look up the local host once.", 1, resolver.calls.get());
+  }
+
+  @Test
+  public void testFallbackOnSlowLookup() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    LocalHost.setResolver(new Callable<InetAddress>() {
+      @Override
+      public InetAddress call() throws Exception {
+        release.await();
+        return InetAddress.getByAddress("slow.example.org", ADDRESS);
+      }
+    });
+    long start = System.currentTimeMillis();
+    assertEquals("Should fall back after the timeout.", "localhost", LocalHost.get(null).getName());
+    assertTrue("Should wait at most the timeout.", System.currentTimeMillis() - start < LocalHost.LOOKUP_TIMEOUT + 1000L);
+    start = System.currentTimeMillis();
+    assertEquals("Should fall back.", "localhost", LocalHost.get(null).getName());
+    assertTrue("Should not wait again.", System.currentTimeMillis() - start < LocalHost.LOOKUP_TIMEOUT / 2);
+    release.countDown();
+    Thread.sleep(200L);
+    assertEquals("Should use the lookup once done.", "slow.example.org", LocalHost.get(null).getName());
+  }
+
+  @Test
+  public void testFallbackOnFailedLookup() throws Exception {
+    LocalHost.setResolver(new Callable<InetAddress>() {
+      @Override
+      public InetAddress call() throws Exception {
+        throw new UnknownHostException("unknown");
+      }
+    });
+    final LocalHost localHost = LocalHost.get(null);
+    assertEquals("localhost", localHost.getName());
+    assertEquals("127.0.0.1", localHost.getAddress());
+  }
+
+  /**
+   * Counts the lookups.
+   */
+  private static final class CountingResolver implements Callable<InetAddress> {
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Override
+    public InetAddress call() throws Exception {
+      calls.incrementAndGet();
+      return InetAddress.getByAddress("build.example.org", ADDRESS);
+    }
+  }
+}
@@ -0,0 +1,154 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link MailBase}.
+ *
+ * @since 10/19/26 4:40 PM
+ */
+public class MailBaseTest {
+  private static final int THREADS = 6;
+  private static final int ITERATIONS = 20;
+  private static final int RECIPIENTS = 2;
+  private static final long DAY = TimeUnit.DAYS.toMillis(1L);
+  private static final long TOLERANCE = TimeUnit.MINUTES.toMillis(5L);
+
+  @After
+  public void tearDown() throws Exception {
+    MemoryMailTransport.clear();
+  }
+
+  @Test
+  public void testExecutionsUnderContention() throws Exception {
+    final SystemStreamLog log = new SystemStreamLog();
+    final CountDownLatch start = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    MemoryMailTransport.clear();
+    try {
+      final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int t = 0; t < THREADS; t++) {
+        final int thread = t;
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            start.await();
+            for (int i = 0; i < ITERATIONS; i++) {
+              createMailBase(thread, log).execute();
+            }
+            return null;
+          }
+        }));
+      }
+      start.countDown();
+      for (final Future<Void> future : futures) {
+        future.get(60L, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    final List<MimeMessage> messages = MemoryMailTransport.getMessages();
+    assertEquals("Should deliver one message per recipient and execution.", THREADS * ITERATIONS * RECIPIENTS, messages.size());
+    final SimpleDateFormat format = new SimpleDateFormat("EEE, d MMM yyyy HH:mm:ss Z", Locale.US);
+    final Map<String, Integer> perRecipient = new HashMap<String, Integer>();
+    for (final MimeMessage message : messages) {
+      final String subject = message.getSubject();
+      final int thread = Integer.parseInt(subject.substring(subject.lastIndexOf(' ') + 1));
+      final Address[] recipients = message.getRecipients(Message.RecipientType.TO);
+      assertEquals("Should send to one recipient of the batch.", 1, recipients.length);
+      final String recipient = ((InternetAddress) recipients[0]).getAddress();
+      assertTrue("Recipient " + recipient + " should belong to execution " + thread + ".", recipient.startsWith("thread" + thread + "-"));
+      final Integer count = perRecipient.get(recipient);
+      perRecipient.put(recipient, count == null ? 1 : count + 1);
+      assertEquals("Subject", "[contention] Execution " + thread, subject);
+      final String expires = message.getHeader("Expires", null);
+      assertEquals("Both expiration headers should match.", expires, message.getHeader("Expiry-Date", null));
+      final long ahead = format.parse(expires).getTime() - System.currentTimeMillis();
+      assertTrue("Expiration " + expires + " should be " + getDays(thread) + " days ahead.", Math.abs(ahead - getDays(thread) * DAY) < TOLERANCE);
+      assertArrayEquals("Priority of execution " + thread, getPriorityHeader(thread, log), message.getHeader("X-Priority"));
+      assertEquals("Text", "Text of execution " + thread, ((String) message.getContent()).split("\r?\n")[0]);
+    }
+    for (final Integer count : perRecipient.values()) {
+      assertEquals("Each recipient should get one message per execution.", ITERATIONS, count.intValue());
+    }
+    assertEquals(THREADS * RECIPIENTS, perRecipient.size());
+  }
+
+  private static MailBase createMailBase(final int thread, final SystemStreamLog log) throws Exception {
+    final InternetAddress[] recipients = new InternetAddress[RECIPIENTS];
+    for (int i = 0; i < RECIPIENTS; i++) {
+      recipients[i] = new InternetAddress("thread" + thread + "-" + i + "@example.org");
+    }
+    final MailBase base = new MailBase(log);
+    base.setRecipients(recipients);
+    base.setFrom("sender@example.org");
+    base.setSmtphost("localhost");
+    base.setSmtpport(25);
+    base.setHostname("localhost");
+    base.setCharset("UTF-8");
+    base.setFailOnError(true);
+    base.setTopic("contention");
+    base.setSubject("Execution " + thread);
+    base.setPlainText("Text of execution " + thread);
+    base.setExpires(Integer.toString(getDays(thread)));
+    base.setPriority(getPriority(thread).name());
+    base.setRecipientBatchSize(1);
+    base.setBatchThreads(2);
+    base.setTransport(MemoryMailTransport.NAME);
+    return base;
+  }
+
+  private static int getDays(final int thread) {
+    return thread + 1;
+  }
+
+  private static MailPriority getPriority(final int thread) {
+    return MailPriority.values()[thread % MailPriority.values().length];
+  }
+
+  private static String[] getPriorityHeader(final int thread, final SystemStreamLog log) throws Exception {
+    final MimeMessage reference = new MimeMessage(Session.getInstance(new Properties()));
+    MailPriority.parse(getPriority(thread).name(), log).addHeader(reference, log);
+    return reference.getHeader("X-Priority");
+  }
+}
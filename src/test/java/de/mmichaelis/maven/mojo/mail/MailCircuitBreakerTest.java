@@ -0,0 +1,142 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link MailCircuitBreaker}.
+ *
+ * @since 10/18/26 12:20 PM
+ */
+public class MailCircuitBreakerTest {
+  private static final String HOST = "breaker.example.org";
+  private static final int PORT = 2525;
+
+  private final Log log = new SystemStreamLog();
+  private final MailCircuitBreaker breaker = MailCircuitBreaker.getInstance();
+  private Session session;
+
+  @Before
+  public void setUp() throws Exception {
+    final Properties properties = new Properties();
+    properties.setProperty("mail.smtp.host", HOST);
+    properties.setProperty("mail.smtp.port", Integer.toString(PORT));
+    session = Session.getInstance(properties);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    breaker.remove(MailRateLimiter.getRelay(HOST, PORT));
+  }
+
+  @Test
+  public void testOpensAfterConsecutiveFailures() throws Exception {
+    breaker.configure(MailRateLimiter.getRelay(HOST, PORT), 2, 60);
+    breaker.failure(session, new MessagingException("timeout"), log);
+    breaker.success(session, log);
+    breaker.failure(session, new MessagingException("timeout"), log);
+    breaker.failure(session, new SendFailedException("rejected"), log);
+    breaker.failure(session, new MessagingException("timeout"), log);
+    breaker.acquire(session, log);
+    breaker.failure(session, new MessagingException("timeout"), log);
+    try {
+      breaker.acquire(session, log);
+      fail("Should fail fast after two consecutive failures.");
+    } catch (RelayUnavailableException expected) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testClosesAfterSuccessfulProbe() throws Exception {
+    breaker.configure(MailRateLimiter.getRelay(HOST, PORT), 1, 0);
+    breaker.failure(session, new MessagingException("timeout"), log);
+    breaker.acquire(session, log);
+    try {
+      breaker.acquire(session, log);
+      fail("Should only let one probe through.");
+    } catch (RelayUnavailableException expected) {
+      // expected
+    }
+    breaker.failure(session, new MessagingException("timeout"), log);
+    breaker.acquire(session, log);
+    breaker.success(session, log);
+    breaker.acquire(session, log);
+    breaker.acquire(session, log);
+  }
+
+  @Test
+  public void testReleasedProbe() throws Exception {
+    breaker.configure(MailRateLimiter.getRelay(HOST, PORT), 1, 0);
+    breaker.failure(session, new MessagingException("timeout"), log);
+    breaker.acquire(session, log);
+    breaker.release(session);
+    breaker.acquire(session, log);
+    try {
+      breaker.acquire(session, log);
+      fail("Should only let one probe through.");
+    } catch (RelayUnavailableException expected) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testOpenBreakerTakesNoToken() throws Exception {
+    final String relay = MailRateLimiter.getRelay(HOST, PORT);
+    breaker.configure(relay, 1, 60);
+    MailRateLimiter.getInstance().configure(relay, 1, 1, 0);
+    try {
+      breaker.failure(session, new MessagingException("timeout"), log);
+      try {
+        MailTransportPool.getInstance().send(session, new MimeMessage(session), new Address[0], log);
+        fail("Should fail fast while the breaker is open.");
+      } catch (RelayUnavailableException expected) {
+        // expected
+      }
+      MailRateLimiter.getInstance().acquire(session, log);
+    } finally {
+      MailRateLimiter.getInstance().remove(relay);
+    }
+  }
+
+  @Test
+  public void testUnconfiguredExecutionKeepsBreaker() throws Exception {
+    breaker.configure(MailRateLimiter.getRelay(HOST, PORT), 1, 60);
+    breaker.configure(MailRateLimiter.getRelay(HOST, PORT), 0, 0);
+    breaker.failure(session, new MessagingException("timeout"), log);
+    try {
+      breaker.acquire(session, log);
+      fail("Execution without threshold should not remove the configured breaker.");
+    } catch (RelayUnavailableException expected) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.mail.Message.RecipientType;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link MailDryRun}.
+ *
+ * @since 10/18/26 10:58 AM
+ */
+public class MailDryRunTest {
+  private File directory;
+  private Session session;
+
+  @Before
+  public void setUp() throws Exception {
+    directory = File.createTempFile("mail-dry-run", "");
+    assertTrue("Should replace temporary file by directory.", directory.delete() && directory.mkdir());
+    session = Session.getInstance(new Properties());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    FileUtils.deleteDirectory(directory);
+  }
+
+  @Test
+  public void testEml() throws Exception {
+    final File file = new MailDryRun(directory, DryRunFormat.EML, "localhost").write(createMessage());
+    assertTrue("Should write eml file.", file.getName().endsWith(".eml"));
+    final InputStream in = new FileInputStream(file);
+    try {
+      final MimeMessage read = new MimeMessage(session, in);
+      assertEquals("Dry Run", read.getSubject());
+      assertNotNull("Should contain Message-ID.", read.getMessageID());
+    } finally {
+      in.close();
+    }
+  }
+
+  @Test
+  public void testMaildir() throws Exception {
+    final File file = new MailDryRun(directory, DryRunFormat.MAILDIR, "localhost").write(createMessage());
+    assertEquals("Should deliver to new.", new File(directory, "new"), file.getParentFile());
+    assertTrue("Should name file after host.", file.getName().endsWith(".localhost"));
+    assertEquals("Should leave tmp empty.", 0, new File(directory, "tmp").list().length);
+    assertTrue("Should create cur.", new File(directory, "cur").isDirectory());
+  }
+
+  @Test
+  public void testMbox() throws Exception {
+    final MailDryRun dryRun = new MailDryRun(directory, DryRunFormat.MBOX, "localhost");
+    dryRun.write(createMessage());
+    final File file = dryRun.write(createMessage());
+    final String mbox = FileUtils.fileRead(file, "US-ASCII");
+    assertTrue("Should start with From line.", mbox.startsWith("From sender@example.org "));
+    assertEquals("Should contain two messages.", 2, mbox.split("\n\nFrom sender@example.org ").length);
+    assertFalse("Should use LF line endings.", mbox.contains("\r"));
+    assertTrue("Should quote From lines.", mbox.contains("\n>From the team\n"));
+    assertTrue("Should quote quoted From lines.", mbox.contains("\n>>From quoted\n"));
+    assertTrue("Should not quote other lines.", mbox.contains("\nFromage\n"));
+  }
+
+  private MimeMessage createMessage() throws Exception {
+    final MimeMessage message = new MimeMessage(session);
+    message.setFrom(new InternetAddress("sender@example.org"));
+    message.setRecipient(RecipientType.TO, new InternetAddress("recipient@example.org"));
+    message.setSubject("Dry Run");
+    message.setText("Hello\r\nFrom the team\r\n>From quoted\r\nFromage\r\n", "US-ASCII");
+    return message;
+  }
+}
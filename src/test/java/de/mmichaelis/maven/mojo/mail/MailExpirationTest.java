@@ -0,0 +1,96 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Test;
+
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link MailExpiration}.
+ *
+ * @since 10/18/26 6:12 AM
+ */
+public class MailExpirationTest {
+  private static final int THREADS = 8;
+  private static final int ITERATIONS = 500;
+  private static final long DAY = TimeUnit.DAYS.toMillis(1L);
+  private static final long TOLERANCE = TimeUnit.MINUTES.toMillis(1L);
+
+  @Test
+  public void testHeadersUnderContention() throws Exception {
+    final Session session = Session.getInstance(new Properties());
+    final SystemStreamLog log = new SystemStreamLog();
+    final CountDownLatch start = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int t = 0; t < THREADS; t++) {
+        final int days = t + 1;
+        final MailPriority priority = MailPriority.values()[t % MailPriority.values().length];
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            final SimpleDateFormat format = new SimpleDateFormat("EEE, d MMM yyyy HH:mm:ss Z", Locale.US);
+            start.await();
+            for (int i = 0; i < ITERATIONS; i++) {
+              final MimeMessage message = new MimeMessage(session);
+              final long expected = System.currentTimeMillis() + days * DAY;
+              MailExpiration.parse(Integer.toString(days), log).addHeader(message, log);
+              MailPriority.parse(priority.name(), log).addHeader(message, log);
+              final String expires = message.getHeader("Expires", null);
+              assertEquals("Both expiration headers should match.", expires, message.getHeader("Expiry-Date", null));
+              final long actual = format.parse(expires).getTime();
+              assertTrue("Expiration " + expires + " should be " + days + " days ahead.", Math.abs(actual - expected) < TOLERANCE);
+              assertEquals("Priority header", 1, message.getHeader("X-Priority").length);
+            }
+            return null;
+          }
+        }));
+      }
+      start.countDown();
+      for (final Future<Void> future : futures) {
+        future.get(60L, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testNoExpiration() throws Exception {
+    final MimeMessage message = new MimeMessage(Session.getInstance(new Properties()));
+    final SystemStreamLog log = new SystemStreamLog();
+    MailExpiration.parse("0", log).addHeader(message, log);
+    assertNull("Should not expire.", message.getHeader("Expires"));
+  }
+}
@@ -0,0 +1,159 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.jvnet.mock_javamail.Mailbox;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.io.File;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link MailOutbox}.
+ *
+ * @since 10/18/26 2:40 AM
+ */
+public class MailOutboxTest {
+  private static final String RECIPIENT = "outbox@example.org";
+
+  private File directory;
+  private Session session;
+
+  @Before
+  public void setUp() throws Exception {
+    directory = File.createTempFile("mail-outbox", "");
+    assertTrue("Should replace temporary file by directory.", directory.delete() && directory.mkdir());
+    session = Session.getInstance(new Properties());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Mailbox.clearAll();
+    FileUtils.deleteDirectory(directory);
+  }
+
+  @Test
+  public void testStoreAndFlush() throws Exception {
+    final MailOutbox outbox = new MailOutbox(directory);
+    outbox.store(createMessage());
+    assertEquals("Should have stored one mail.", 1, directory.list().length);
+    assertEquals("Should have no remaining mails.", 0, outbox.flush(session, 2, new SystemStreamLog()));
+    assertEquals("Should have sent the stored mail.", 1, Mailbox.get(RECIPIENT).size());
+    assertEquals("Stored subject", "Stored", Mailbox.get(RECIPIENT).get(0).getSubject());
+    assertEquals("Should have removed the sent mail.", 0, directory.list().length);
+  }
+
+  @Test
+  public void testRetryWithBackoff() throws Exception {
+    final MailOutbox outbox = new MailOutbox(directory);
+    outbox.setMaxAttempts(2);
+    outbox.setInitialBackoff(0);
+    outbox.store(createMessage());
+    Mailbox.get(RECIPIENT).setError(true);
+    assertEquals("Should keep the mail for retry.", 1, outbox.flush(session, 1, new SystemStreamLog()));
+    final String[] names = directory.list();
+    assertEquals("Should still contain the mail.", 1, names.length);
+    assertTrue("Should record the failed attempt.", names[0].endsWith(".1.eml"));
+    assertEquals("Should give up after the maximum attempts.", 0, outbox.flush(session, 1, new SystemStreamLog()));
+    assertEquals("Should have moved the mail to the failed mails.", 1, new File(directory, "failed").list().length);
+  }
+
+  @Test
+  public void testFlushWithConfiguredTransport() throws Exception {
+    final MailOutbox outbox = new MailOutbox(directory);
+    outbox.setTransport(MailTransports.get(MemoryMailTransport.NAME));
+    outbox.store(createMessage());
+    MemoryMailTransport.clear();
+    try {
+      assertEquals("Should have no remaining mails.", 0, outbox.flush(session, 1, new SystemStreamLog()));
+      assertEquals("Should deliver with the configured transport.", 1, MemoryMailTransport.getMessages().size());
+    } finally {
+      MemoryMailTransport.clear();
+    }
+    assertEquals("Should not send via SMTP.", 0, Mailbox.get(RECIPIENT).size());
+  }
+
+  @Test
+  public void testNoFlushWithSpoolTransport() throws Exception {
+    final MailOutbox outbox = new MailOutbox(directory);
+    outbox.setTransport(MailTransports.get(SpoolMailTransport.NAME));
+    outbox.store(createMessage());
+    assertEquals("Should keep the mail.", 1, outbox.flush(session, 1, new SystemStreamLog()));
+    assertEquals("Should still contain the mail.", 1, directory.list().length);
+    assertEquals("Should not send via SMTP.", 0, Mailbox.get(RECIPIENT).size());
+  }
+
+  @Test
+  public void testReleaseAbandonedClaim() throws Exception {
+    final MailOutbox outbox = new MailOutbox(directory);
+    final File file = outbox.store(createMessage());
+    final File claimed = new File(file.getPath() + ".sending");
+    assertTrue("Should claim the mail.", file.renameTo(claimed));
+    assertEquals("Should leave a recent claim alone.", 0, outbox.flush(session, 1, new SystemStreamLog()));
+    assertEquals("Should not send a claimed mail.", 0, Mailbox.get(RECIPIENT).size());
+    assertTrue("Should age the claim.", claimed.setLastModified(System.currentTimeMillis() - 2L * 60L * 60L * 1000L));
+    assertEquals("Should have no remaining mails.", 0, outbox.flush(session, 1, new SystemStreamLog()));
+    assertEquals("Should send the abandoned mail.", 1, Mailbox.get(RECIPIENT).size());
+    assertEquals("Should have removed the sent mail.", 0, directory.list().length);
+  }
+
+  @Test
+  public void testRuntimeExceptionReleasesClaim() throws Exception {
+    final MailOutbox outbox = new MailOutbox(directory);
+    outbox.setTransport(new MailTransport() {
+      @Override
+      public String getName() {
+        return "failing";
+      }
+
+      @Override
+      public MessagingException[] send(final Session session, final List<MimeMessage> messages, final Log log, final MailMetrics metrics) {
+        throw new IllegalStateException("Broken transport.");
+      }
+    });
+    outbox.store(createMessage());
+    outbox.store(createMessage());
+    assertEquals("Should keep both mails for retry.", 2, outbox.flush(session, 2, new SystemStreamLog()));
+    final String[] names = directory.list();
+    assertEquals("Should still contain both mails.", 2, names.length);
+    for (final String name : names) {
+      assertTrue("Should release the claim and record the attempt: " + name, name.endsWith(".1.eml"));
+    }
+  }
+
+  private MimeMessage createMessage() throws Exception {
+    final MimeMessage message = new MimeMessage(session);
+    message.setFrom(new InternetAddress("sender@example.org"));
+    message.setRecipient(MimeMessage.RecipientType.TO, new InternetAddress(RECIPIENT));
+    message.setSubject("Stored");
+    message.setText("Stored in outbox.");
+    message.saveChanges();
+    return message;
+  }
+}
@@ -0,0 +1,99 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.mail.Session;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link MailRateLimiter}.
+ *
+ * @since 10/18/26 3:07 AM
+ */
+public class MailRateLimiterTest {
+  private static final String HOST = "ratelimit.example.org";
+  private static final int PORT = 2525;
+
+  @After
+  public void tearDown() throws Exception {
+    MailRateLimiter.getInstance().remove(MailRateLimiter.getRelay(HOST, PORT));
+  }
+
+  @Test
+  public void testBurstThenExceeded() throws Exception {
+    MailRateLimiter.getInstance().configure(MailRateLimiter.getRelay(HOST, PORT), 1, 2, 0);
+    final Session session = createSession(PORT);
+    final SystemStreamLog log = new SystemStreamLog();
+    MailRateLimiter.getInstance().acquire(session, log);
+    MailRateLimiter.getInstance().acquire(session, log);
+    try {
+      MailRateLimiter.getInstance().acquire(session, log);
+      fail("Third message should exceed the burst.");
+    } catch (RateLimitExceededException expected) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testWaitsForToken() throws Exception {
+    MailRateLimiter.getInstance().configure(MailRateLimiter.getRelay(HOST, PORT), 600, 1, 1);
+    final Session session = createSession(PORT);
+    final SystemStreamLog log = new SystemStreamLog();
+    MailRateLimiter.getInstance().acquire(session, log);
+    final long start = System.currentTimeMillis();
+    MailRateLimiter.getInstance().acquire(session, log);
+    assertTrue("Should have waited for the next token.", System.currentTimeMillis() - start >= 50L);
+  }
+
+  @Test
+  public void testOtherRelayUnlimited() throws Exception {
+    MailRateLimiter.getInstance().configure(MailRateLimiter.getRelay(HOST, PORT), 1, 1, 0);
+    final Session session = createSession(PORT + 1);
+    final SystemStreamLog log = new SystemStreamLog();
+    for (int i = 0; i < 10; i++) {
+      MailRateLimiter.getInstance().acquire(session, log);
+    }
+  }
+
+  @Test
+  public void testUnlimitedExecutionKeepsLimit() throws Exception {
+    MailRateLimiter.getInstance().configure(MailRateLimiter.getRelay(HOST, PORT), 1, 1, 0);
+    MailRateLimiter.getInstance().configure(MailRateLimiter.getRelay(HOST, PORT), 0, 0, 0);
+    final Session session = createSession(PORT);
+    final SystemStreamLog log = new SystemStreamLog();
+    MailRateLimiter.getInstance().acquire(session, log);
+    try {
+      MailRateLimiter.getInstance().acquire(session, log);
+      fail("Execution without limit should not remove the configured limit.");
+    } catch (RateLimitExceededException expected) {
+      // expected
+    }
+  }
+
+  private static Session createSession(final int port) {
+    final Properties properties = new Properties();
+    properties.setProperty("mail.smtp.host", HOST);
+    properties.setProperty("mail.smtp.port", Integer.toString(port));
+    return Session.getInstance(properties);
+  }
+}
@@ -0,0 +1,71 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.junit.Test;
+
+import javax.mail.Session;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link MailSessions}.
+ *
+ * @since 10/19/26 11:45 AM
+ */
+public class MailSessionsTest {
+  @Test
+  public void testSessionPerConfiguration() throws Exception {
+    final Session session = MailSessions.getSession(createProperties("relay1.example.org"), false);
+    assertSame("Equal configuration should share the session.", session,
+            MailSessions.getSession(createProperties("relay1.example.org"), false));
+    final Session other = MailSessions.getSession(createProperties("relay2.example.org"), false);
+    assertNotSame("Other configuration should get its own session.", session, other);
+    assertEquals("Later configuration should not be ignored.", "relay2.example.org", other.getProperty("mail.smtp.host"));
+    assertNotSame("Debug output should get its own session.", session,
+            MailSessions.getSession(createProperties("relay1.example.org"), true));
+  }
+
+  @Test
+  public void testRelaySession() throws Exception {
+    final Session session = MailSessions.getSession(null, "relay3.example.org", 2525, "build.example.org", false);
+    assertEquals("relay3.example.org", session.getProperty("mail.smtp.host"));
+    assertEquals("2525", session.getProperty("mail.smtp.port"));
+    assertEquals("build.example.org", session.getProperty("mail.smtp.localhost"));
+    assertSame("Equal configuration should share the session.", session,
+            MailSessions.getSession(null, "relay3.example.org", 2525, "build.example.org", false));
+  }
+
+  @Test
+  public void testTimeouts() throws Exception {
+    final Properties configured = new Properties();
+    configured.setProperty("mail.smtp.timeout", "1000");
+    final Properties properties = MailSessions.withTimeouts(configured, 10, 60);
+    assertEquals("Should add the connect timeout.", "10000", properties.getProperty("mail.smtp.connectiontimeout"));
+    assertEquals("Should keep the configured read timeout.", "1000", properties.getProperty("mail.smtp.timeout"));
+    assertNull("Should not modify the configured properties.", configured.getProperty("mail.smtp.connectiontimeout"));
+    assertTrue("0 should wait forever.", MailSessions.withTimeouts(null, 0, 0).isEmpty());
+  }
+
+  private static Properties createProperties(final String host) {
+    final Properties properties = new Properties();
+    properties.setProperty("mail.smtp.host", host);
+    properties.setProperty("mail.smtp.port", "25");
+    return properties;
+  }
+}
@@ -0,0 +1,106 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.mail.internet.InternetAddress;
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link MailSuppression}.
+ *
+ * @since 10/18/26 10:02 AM
+ */
+public class MailSuppressionTest {
+  private static final long WINDOW = 60000L;
+
+  private final Log log = new SystemStreamLog();
+  private File directory;
+
+  @Before
+  public void setUp() throws Exception {
+    directory = File.createTempFile("mail-suppression", "");
+    assertTrue("Should replace temporary file by directory.", directory.delete() && directory.mkdir());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    FileUtils.deleteDirectory(directory);
+  }
+
+  @Test
+  public void testHashIgnoresOrderAndCase() throws Exception {
+    final InternetAddress a = new InternetAddress("a@example.org");
+    final InternetAddress b = new InternetAddress("B@example.org");
+    final String hash = MailSuppression.hash(new InternetAddress[]{a, b}, "Subject", "Text", null);
+    assertEquals(hash, MailSuppression.hash(new InternetAddress[]{new InternetAddress("b@example.org"), a}, "Subject", "Text", null));
+    assertFalse(hash.equals(MailSuppression.hash(new InternetAddress[]{a, b}, "Subject", "Other", null)));
+    assertFalse(hash.equals(MailSuppression.hash(new InternetAddress[]{a, b}, "SubjectText", "", null)));
+  }
+
+  @Test
+  public void testSuppressAndCountRepetitions() throws Exception {
+    final File file = new File(directory, "suppressed.txt");
+    final MailSuppression suppression = MailSuppression.get(file);
+    assertFalse("Unknown mail should be sent.", suppression.suppress("abc", WINDOW, log));
+    suppression.sent("abc", WINDOW, log);
+    assertTrue("Repeated mail should be suppressed.", suppression.suppress("abc", WINDOW, log));
+    assertTrue("Repeated mail should be suppressed.", suppression.suppress("abc", WINDOW, log));
+    assertFalse("Mail outside window should be sent.", suppression.suppress("abc", 0L, log));
+    assertEquals("Should count suppressed mails.", 2, suppression.getRepeated("abc", log));
+
+    final File copy = new File(directory, "copy.txt");
+    FileUtils.copyFile(file, copy);
+    final MailSuppression reloaded = MailSuppression.get(copy);
+    assertTrue("Should read sent mails from file.", reloaded.suppress("abc", WINDOW, log));
+    assertEquals("Should read suppressed mails from file.", 3, reloaded.getRepeated("abc", log));
+    reloaded.sent("abc", WINDOW, log);
+    assertEquals("Should reset count when sent.", 0, reloaded.getRepeated("abc", log));
+  }
+
+  @Test
+  public void testIncompleteLine() throws Exception {
+    final File file = new File(directory, "suppressed.txt");
+    final long now = System.currentTimeMillis();
+    FileUtils.fileWrite(file.getAbsolutePath(), "UTF-8", "# 1\nabc " + now + " 3\ndef " + now + " 1");
+    final MailSuppression suppression = MailSuppression.get(file);
+    assertEquals("Should read complete line.", 3, suppression.getRepeated("abc", log));
+    assertEquals("Should ignore line still being written.", 0, suppression.getRepeated("def", log));
+    FileUtils.fileAppend(file.getAbsolutePath(), "UTF-8", "2\n");
+    assertEquals("Should read line once complete.", 12, suppression.getRepeated("def", log));
+  }
+
+  @Test
+  public void testReplacedByOtherBuild() throws Exception {
+    final File file = new File(directory, "suppressed.txt");
+    final long now = System.currentTimeMillis();
+    FileUtils.fileWrite(file.getAbsolutePath(), "UTF-8", "# 1\nabc " + now + " 0\n");
+    final MailSuppression suppression = MailSuppression.get(file);
+    assertTrue("Should read sent mail.", suppression.suppress("abc", WINDOW, log));
+    FileUtils.fileWrite(file.getAbsolutePath(), "UTF-8", "# 2\nxyz " + now + " 0\nuvw " + now + " 0\nrst " + now + " 0\n");
+    assertTrue("Should read replaced file.", suppression.suppress("xyz", WINDOW, log));
+    assertFalse("Should forget mails of replaced file.", suppression.suppress("abc", WINDOW, log));
+  }
+}
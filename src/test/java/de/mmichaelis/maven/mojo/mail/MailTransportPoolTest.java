@@ -0,0 +1,141 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.mail.Message.RecipientType;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link MailTransportPool} against an {@link EmbeddedSmtpServer}.
+ *
+ * @since 10/19/26 10:05 AM
+ */
+public class MailTransportPoolTest {
+  private final Log log = new SystemStreamLog();
+  private final MailTransportPool pool = MailTransportPool.getInstance();
+  private EmbeddedSmtpServer server;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new EmbeddedSmtpServer();
+    server.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    pool.closeAll();
+    pool.setMaxConnections(MailTransportPool.DEFAULT_MAX_CONNECTIONS);
+    pool.setIdleTimeout(MailTransportPool.DEFAULT_IDLE_TIMEOUT);
+    server.stop();
+  }
+
+  @Test
+  public void testReuseConnection() throws Exception {
+    final Session session = MailSessions.getSession(server.getSessionProperties(), false);
+    for (int i = 0; i < 3; i++) {
+      pool.send(session, createMessage(session), log);
+    }
+    assertEquals("Should have received all mails.", 3, server.getMessages().size());
+    assertEquals("Should reuse the connection.", 1, server.getConnections());
+  }
+
+  @Test
+  public void testConfigurationsNotShared() throws Exception {
+    final Session session = MailSessions.getSession(server.getSessionProperties(), false);
+    final Properties otherProperties = server.getSessionProperties();
+    otherProperties.setProperty("mail.smtp.timeout", "5000");
+    final Session otherSession = MailSessions.getSession(otherProperties, false);
+    pool.send(session, createMessage(session), log);
+    pool.send(otherSession, createMessage(otherSession), log);
+    assertEquals("Should not reuse a connection of another configuration.", 2, server.getConnections());
+  }
+
+  @Test
+  public void testReplaceStaleConnection() throws Exception {
+    final Session session = MailSessions.getSession(server.getSessionProperties(), false);
+    pool.send(session, createMessage(session), log);
+    server.dropConnections();
+    pool.send(session, createMessage(session), log);
+    assertEquals("Should have received all mails.", 2, server.getMessages().size());
+    assertEquals("Should detect the dropped connection and reconnect.", 2, server.getConnections());
+  }
+
+  @Test
+  public void testMaxConnections() throws Exception {
+    final int mails = 6;
+    pool.setMaxConnections(2);
+    server.setLatency(20L);
+    final Session session = MailSessions.getSession(server.getSessionProperties(), false);
+    final ExecutorService executor = Executors.newFixedThreadPool(mails);
+    try {
+      final List<Future<Void>> futures = new ArrayList<Future<Void>>(mails);
+      for (int i = 0; i < mails; i++) {
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            pool.send(session, createMessage(session), log);
+            return null;
+          }
+        }));
+      }
+      for (final Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals("Should have received all mails.", mails, server.getMessages().size());
+    assertEquals("Should wait for a pooled connection instead of opening more.", 2, server.getConnections());
+  }
+
+  @Test
+  public void testEvictIdleConnection() throws Exception {
+    pool.setIdleTimeout(1);
+    final Session session = MailSessions.getSession(server.getSessionProperties(), false);
+    pool.send(session, createMessage(session), log);
+    Thread.sleep(1100L);
+    pool.evictIdle();
+    pool.send(session, createMessage(session), log);
+    assertEquals("Should have closed the idle connection.", 2, server.getConnections());
+  }
+
+  private static MimeMessage createMessage(final Session session) throws Exception {
+    final MimeMessage message = new MimeMessage(session);
+    message.setFrom(new InternetAddress("sender@example.org"));
+    message.setRecipient(RecipientType.TO, new InternetAddress("pool@example.org"));
+    message.setSubject("Pooled");
+    message.setText("Sent with a pooled connection.");
+    return message;
+  }
+}
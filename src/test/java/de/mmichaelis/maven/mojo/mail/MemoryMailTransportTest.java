@@ -0,0 +1,57 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link MemoryMailTransport}.
+ *
+ * @since 10/19/26 2:31 PM
+ */
+public class MemoryMailTransportTest {
+  @After
+  public void tearDown() throws Exception {
+    MemoryMailTransport.clear();
+  }
+
+  @Test
+  public void testKeepsLatestMessages() throws Exception {
+    final Session session = Session.getInstance(new Properties());
+    final List<MimeMessage> messages = new ArrayList<MimeMessage>();
+    for (int i = 0; i <= MemoryMailTransport.MAX_MESSAGES; i++) {
+      final MimeMessage message = new MimeMessage(session);
+      message.setSubject("Message " + i);
+      message.setText("Lorem Ipsum");
+      messages.add(message);
+    }
+    new MemoryMailTransport().send(session, messages, new SystemStreamLog(), MailMetrics.NONE);
+    final List<MimeMessage> kept = MemoryMailTransport.getMessages();
+    assertEquals("Should keep a bounded number of messages.", MemoryMailTransport.MAX_MESSAGES, kept.size());
+    assertEquals("Should drop the oldest message.", "Message 1", kept.get(0).getSubject());
+  }
+}
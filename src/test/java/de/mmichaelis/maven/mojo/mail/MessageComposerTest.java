@@ -0,0 +1,134 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.mail.Message.RecipientType;
+import javax.mail.Multipart;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link MessageComposer}.
+ *
+ * @since 10/18/26 9:24 AM
+ */
+public class MessageComposerTest {
+  private Session session;
+  private MimeMessage template;
+  private InternetAddress sender;
+
+  @Before
+  public void setUp() throws Exception {
+    session = Session.getInstance(new Properties());
+    template = new MimeMessage(session);
+    template.setSubject("Grüße", "UTF-8");
+    template.setHeader("X-Priority", "1");
+    sender = new InternetAddress("sender@example.org");
+  }
+
+  @Test
+  public void testSharedPrototype() throws Exception {
+    final MessageComposer composer = new MessageComposer(session, template, sender, "Lorem Ipsum äöü",
+            null, "\r\n-- \r\nsignature", "UTF-8", false, false, null, null);
+    final MimeMessage first = composer.compose(new InternetAddress[]{new InternetAddress("first@example.org")});
+    final MimeMessage second = composer.compose(new InternetAddress[]{new InternetAddress("second@example.org")});
+    assertTrue("Should share the encoded prototype.", first instanceof PrototypeMessage);
+    first.saveChanges();
+    second.saveChanges();
+    assertNotNull("Should have a Message-ID.", first.getMessageID());
+    assertFalse("Message-IDs should differ.", first.getMessageID().equals(second.getMessageID()));
+    assertEquals("first@example.org", first.getRecipients(RecipientType.TO)[0].toString());
+    assertEquals("second@example.org", second.getRecipients(RecipientType.TO)[0].toString());
+    assertEquals("Grüße", first.getSubject());
+    assertEquals("1", first.getHeader("X-Priority", null));
+    assertEquals("Lorem Ipsum äöü\r\n-- \r\nsignature", first.getContent());
+    assertEquals("Bodies should be equal.", getBody(first), getBody(second));
+  }
+
+  @Test
+  public void testAttachmentsWithoutPrototype() throws Exception {
+    final File file = File.createTempFile("attachment", ".txt");
+    try {
+      FileUtils.fileWrite(file.getAbsolutePath(), "attached");
+      final MailAttachments attachments = new MailAttachments(file.getParentFile(), Arrays.asList(file.getName()), false);
+      final MessageComposer composer = new MessageComposer(session, template, sender, "Lorem Ipsum", null, "", "UTF-8",
+              false, false, attachments, null);
+      final MimeMessage message = composer.compose(new InternetAddress[]{new InternetAddress("first@example.org")});
+      assertFalse("Attachments should be streamed for each message.", message instanceof PrototypeMessage);
+      message.saveChanges();
+      assertEquals("Should contain text and attachment.", 2, ((Multipart) message.getContent()).getCount());
+    } finally {
+      assertTrue(file.delete());
+    }
+  }
+
+  @Test
+  public void testPersonalizedWithoutPrototype() throws Exception {
+    final MessageComposer composer = new MessageComposer(session, template, sender, "Lorem Ipsum", null, "", "UTF-8",
+            false, true, null, null);
+    final MimeMessage message = composer.compose(new InternetAddress[]{new InternetAddress("first@example.org", "First")});
+    assertFalse("Personalized bodies cannot be shared.", message instanceof PrototypeMessage);
+    assertTrue("Should contain salutation.", ((String) message.getContent()).startsWith("Hello First,"));
+  }
+
+  @Test
+  public void testStreamedTextFile() throws Exception {
+    final File file = File.createTempFile("text", ".txt");
+    try {
+      FileUtils.fileWrite(file.getAbsolutePath(), "UTF-8", "Build log äöü\r\nsecond line");
+      final MessageComposer composer = new MessageComposer(session, template, sender, null, file, "\r\n-- \r\nsignature", "UTF-8",
+              false, true, null, null);
+      final MimeMessage message = composer.compose(new InternetAddress[]{new InternetAddress("first@example.org", "First")});
+      assertFalse("Streamed text cannot be shared.", message instanceof PrototypeMessage);
+      message.saveChanges();
+      assertEquals("quoted-printable", message.getEncoding());
+      assertTrue("Encoded body should be quoted-printable.", getBody(message).contains("Build log =C3=A4=C3=B6=C3=BC"));
+      final MimeMessage received = new MimeMessage(session, new ByteArrayInputStream(getEncoded(message)));
+      final String content = (String) received.getContent();
+      assertTrue("Should start with salutation: " + content, content.startsWith("Hello First,"));
+      assertTrue("Should contain file: " + content, content.contains("Build log äöü\r\nsecond line"));
+      assertTrue("Should end with signature: " + content, content.endsWith("\r\n-- \r\nsignature"));
+    } finally {
+      assertTrue(file.delete());
+    }
+  }
+
+  private static byte[] getEncoded(final MimeMessage message) throws Exception {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    message.writeTo(out);
+    return out.toByteArray();
+  }
+
+  private static String getBody(final MimeMessage message) throws Exception {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    message.writeTo(out);
+    final String encoded = out.toString("US-ASCII");
+    return encoded.substring(encoded.indexOf("\r\n\r\n"));
+  }
+}
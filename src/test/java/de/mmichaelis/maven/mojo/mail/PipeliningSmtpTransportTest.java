@@ -0,0 +1,157 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.mail.Message.RecipientType;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link PipeliningSmtpTransport} against an {@link EmbeddedSmtpServer}.
+ *
+ * @since 10/18/26 6:58 AM
+ */
+public class PipeliningSmtpTransportTest {
+  private static final int RECIPIENTS = 5;
+
+  private EmbeddedSmtpServer server;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new EmbeddedSmtpServer();
+    server.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.stop();
+  }
+
+  @Test
+  public void testChunkedAndPipelined() throws Exception {
+    final String text = createText();
+    final int standardBatches = send(server.getSessionProperties(), text);
+    assertFalse("Standard transport should use DATA.", server.getMessages().get(0).isChunked());
+
+    final Properties properties = PipeliningSmtpTransport.enable(server.getSessionProperties());
+    properties.setProperty("mail.smtp.chunksize", "4096");
+    final int pipelinedBatches = send(properties, text);
+    final EmbeddedSmtpServer.ReceivedMessage received = server.getMessages().get(1);
+    assertTrue("Should have used BDAT.", received.isChunked());
+    assertEquals("Envelope recipients", RECIPIENTS, received.getRecipients().size());
+    assertEquals("Text should be transferred unchanged.", text, normalize((String) received.toMimeMessage().getContent()));
+    assertTrue("Should need fewer round trips: " + pipelinedBatches + " vs. " + standardBatches, pipelinedBatches < standardBatches);
+  }
+
+  @Test
+  public void testPipelinedData() throws Exception {
+    server.setChunking(false);
+    final String text = createText();
+    send(PipeliningSmtpTransport.enable(server.getSessionProperties()), text);
+    final EmbeddedSmtpServer.ReceivedMessage received = server.getMessages().get(0);
+    assertFalse("Should have used DATA.", received.isChunked());
+    assertEquals("Envelope recipients", RECIPIENTS, received.getRecipients().size());
+    assertEquals("Text should be transferred unchanged.", text, normalize((String) received.toMimeMessage().getContent()));
+  }
+
+  @Test
+  public void testChunkedWithoutPipelining() throws Exception {
+    server.setPipelining(false);
+    final Properties properties = PipeliningSmtpTransport.enable(server.getSessionProperties());
+    properties.setProperty("mail.smtp.chunksize", "1000");
+    final String text = createText();
+    send(properties, text);
+    final EmbeddedSmtpServer.ReceivedMessage received = server.getMessages().get(0);
+    assertTrue("Should have used BDAT.", received.isChunked());
+    assertEquals("Text should be transferred unchanged.", text, normalize((String) received.toMimeMessage().getContent()));
+  }
+
+  @Test
+  public void testChunkedBareLineFeeds() throws Exception {
+    final Session session = MailSessions.getSession(PipeliningSmtpTransport.enable(server.getSessionProperties()), false);
+    final MimeMessage message = new MimeMessage(session);
+    message.setFrom(new InternetAddress("sender@example.org"));
+    message.setRecipient(RecipientType.TO, new InternetAddress("rcpt@example.org"));
+    message.setSubject("Line feeds");
+    message.setText("line1\nline2\n");
+    message.saveChanges();
+    Transport.send(message);
+    final EmbeddedSmtpServer.ReceivedMessage received = server.getMessages().get(0);
+    assertTrue("Should have used BDAT.", received.isChunked());
+    final byte[] data = received.getData();
+    for (int i = 0; i < data.length; i++) {
+      if (data[i] == '\n') {
+        assertTrue("Line feed at " + i + " should be preceded by carriage return.", i > 0 && data[i - 1] == '\r');
+      }
+    }
+    assertEquals("Text", "line1\r\nline2\r\n", received.toMimeMessage().getContent());
+  }
+
+  @Test
+  public void testRejectedChunk() throws Exception {
+    server.failNextMessages(1);
+    try {
+      send(PipeliningSmtpTransport.enable(server.getSessionProperties()), createText());
+      fail("Rejected message should fail.");
+    } catch (MessagingException expected) {
+      assertTrue("Should have received nothing.", server.getMessages().isEmpty());
+    }
+  }
+
+  private int send(final Properties properties, final String text) throws Exception {
+    final Session session = MailSessions.getSession(properties, false);
+    final MimeMessage message = new MimeMessage(session);
+    message.setFrom(new InternetAddress("sender@example.org"));
+    for (int i = 0; i < RECIPIENTS; i++) {
+      message.addRecipient(RecipientType.TO, new InternetAddress("rcpt" + i + "@example.org"));
+    }
+    message.setSubject("Large log");
+    message.setText(text, "ISO-8859-1");
+    message.saveChanges();
+    final Transport transport = session.getTransport("smtp");
+    transport.connect();
+    final int before = server.getReplyBatches();
+    try {
+      transport.sendMessage(message, message.getAllRecipients());
+      return server.getReplyBatches() - before;
+    } finally {
+      transport.close();
+    }
+  }
+
+  private static String createText() {
+    final StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 500; i++) {
+      text.append(i % 7 == 0 ? "." : "").append("[INFO] line ").append(i).append(" of the build log\r\n");
+    }
+    return text.append(".\r\n").toString();
+  }
+
+  private static String normalize(final String text) {
+    return text.replace("\r\n", "\n").replace("\n", "\r\n");
+  }
+}
@@ -0,0 +1,73 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Test;
+import org.jvnet.mock_javamail.Mailbox;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link SmtpMailTransport}.
+ *
+ * @since 10/19/26 2:17 PM
+ */
+public class SmtpMailTransportTest {
+  private static final String RECIPIENT = "smtp@example.org";
+
+  private final Session session = Session.getInstance(new Properties());
+
+  @After
+  public void tearDown() throws Exception {
+    Mailbox.clearAll();
+  }
+
+  @Test
+  public void testUnexpectedFailureOfOneMessage() throws Exception {
+    final MimeMessage broken = new MimeMessage(session) {
+      @Override
+      public void saveChanges() {
+        throw new IllegalStateException("Broken message.");
+      }
+    };
+    final MessagingException[] failures = new SmtpMailTransport().send(session,
+            Arrays.asList(createMessage("first"), broken, createMessage("third")), new SystemStreamLog(), MailMetrics.NONE);
+    assertNull("Should deliver the first message.", failures[0]);
+    assertNotNull("Should report the broken message.", failures[1]);
+    assertTrue("Should keep the cause.", failures[1].getCause() instanceof IllegalStateException);
+    assertNull("Should deliver the message after the broken one.", failures[2]);
+    assertEquals(2, Mailbox.get(RECIPIENT).size());
+  }
+
+  private MimeMessage createMessage(final String subject) throws Exception {
+    final MimeMessage message = new MimeMessage(session);
+    message.setFrom(new InternetAddress("sender@example.org"));
+    message.setRecipient(MimeMessage.RecipientType.TO, new InternetAddress(RECIPIENT));
+    message.setSubject(subject);
+    message.setText("Lorem Ipsum");
+    return message;
+  }
+}
@@ -0,0 +1,79 @@
+/******************************************************************************
+ * Copyright 2011 Mark Michaelis                                              *
+ *                                                                            *
+ * Licensed under the Apache License, Version 2.0 (the "License");            *
+ * you may not use this file except in compliance with the License.           *
+ * You may obtain a copy of the License at                                    *
+ *                                                                            *
+ *     http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                            *
+ * Unless required by applicable law or agreed to in writing, software        *
+ * distributed under the License is distributed on an "AS IS" BASIS,          *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.   *
+ * See the License for the specific language governing permissions and        *
+ * limitations under the License.                                             *
+ ******************************************************************************/
+
+package de.mmichaelis.maven.mojo.mail;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link ZipDataSource}.
+ *
+ * @since 10/19/26 9:12 AM
+ */
+public class ZipDataSourceTest {
+  @Test
+  public void testInputStream() throws Exception {
+    final File file = File.createTempFile("zip", ".txt");
+    file.deleteOnExit();
+    final Writer writer = new FileWriter(file);
+    try {
+      writer.write("Lorem Ipsum");
+    } finally {
+      writer.close();
+    }
+    final ZipDataSource dataSource = new ZipDataSource(file.getParentFile(), Arrays.asList(file.getName()), "test.zip");
+    final ZipInputStream in = new ZipInputStream(dataSource.getInputStream());
+    try {
+      final ZipEntry entry = in.getNextEntry();
+      assertEquals(file.getName(), entry.getName());
+      final byte[] buffer = new byte[64];
+      final int read = in.read(buffer);
+      assertEquals("Lorem Ipsum", new String(buffer, 0, read, "US-ASCII"));
+      assertNull(in.getNextEntry());
+    } finally {
+      in.close();
+    }
+  }
+
+  @Test
+  public void testInputStreamFailure() throws Exception {
+    final File missing = new File(System.getProperty("java.io.tmpdir"), "zip-missing-" + System.nanoTime() + ".txt");
+    final ZipDataSource dataSource = new ZipDataSource(missing.getParentFile(), Arrays.asList(missing.getName()), "test.zip");
+    final InputStream in = dataSource.getInputStream();
+    try {
+      final byte[] buffer = new byte[64];
+      while (in.read(buffer) != -1) {
+        // consume
+      }
+      fail("Missing file should not result in a truncated archive.");
+    } catch (IOException expected) {
+      assertNotNull("Should report the cause.", expected.getCause());
+    } finally {
+      in.close();
+    }
+  }
+}